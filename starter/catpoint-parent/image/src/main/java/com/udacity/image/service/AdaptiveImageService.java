@@ -0,0 +1,374 @@
+package com.udacity.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Image service decorator that protects callers from a slow or failing classifier.
+ * <p>
+ * Every camera gets its own sampling interval. Frames arriving faster than the interval are not
+ * classified at all; they are answered with the camera's last verdict. The interval follows an AIMD
+ * rule: each fast, successful classification narrows it by a fixed step, while a slow call, a
+ * timeout or an error widens it by a multiplicative factor. Consecutive failures trip a per-camera
+ * circuit breaker which stops calling the delegate for a while and falls back to the last known
+ * verdict, then lets a single probe through to decide whether to close again.
+ * <p>
+ * Delegate calls run on a bounded pool. A call that timed out may keep its worker busy; once every
+ * worker is busy, further calls fail at once instead of starting more threads.
+ */
+public class AdaptiveImageService implements ImageService {
+
+    /** Camera used when frames are submitted without a camera id. */
+    public static final String DEFAULT_CAMERA = "default";
+
+    public enum BreakerState { CLOSED, OPEN, HALF_OPEN }
+
+    private final Logger log = LoggerFactory.getLogger(AdaptiveImageService.class);
+
+    private final ImageService delegate;
+    private final ExecutorService executor;
+    private final LongSupplier nanoClock;
+    private final long timeoutNanos;
+    private final long latencyTargetNanos;
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+    private final long intervalStepNanos;
+    private final double backoffFactor;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Map<String, CameraState> cameras = new ConcurrentHashMap<>();
+
+    private AdaptiveImageService(Builder builder) {
+        this.delegate = builder.delegate;
+        this.executor = builder.executor != null ? builder.executor : new ThreadPoolExecutor(
+                0, builder.maxConcurrentCalls, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "adaptive-image-service");
+            t.setDaemon(true);
+            return t;
+        });
+        this.nanoClock = builder.nanoClock;
+        this.timeoutNanos = builder.timeout.toNanos();
+        this.latencyTargetNanos = builder.latencyTarget.toNanos();
+        this.minIntervalNanos = builder.minInterval.toNanos();
+        this.maxIntervalNanos = builder.maxInterval.toNanos();
+        this.intervalStepNanos = builder.intervalStep.toNanos();
+        this.backoffFactor = builder.backoffFactor;
+        this.failureThreshold = builder.failureThreshold;
+        this.openNanos = builder.openDuration.toNanos();
+    }
+
+    public static Builder builder(ImageService delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return imageContainsCat(DEFAULT_CAMERA, image, confidenceThreshhold);
+    }
+
+    /**
+     * Classifies a frame from the given camera, unless the camera's sampling interval has not elapsed
+     * or its circuit breaker is open, in which case the last known verdict is returned instead.
+     * @param cameraId Camera the frame came from
+     * @param image Image to scan
+     * @param confidenceThreshhold Minimum threshhold to consider for cat
+     */
+    @Override
+    public boolean imageContainsCat(String cameraId, BufferedImage image, float confidenceThreshhold) {
+        CameraState camera = cameras.computeIfAbsent(cameraId, id -> new CameraState(minIntervalNanos));
+        long start = nanoClock.getAsLong();
+        synchronized (camera) {
+            if (!camera.admit(start)) {
+                camera.skipped++;
+                return camera.lastVerdict;
+            }
+        }
+
+        Boolean verdict = classify(cameraId, image, confidenceThreshhold);
+        long latency = nanoClock.getAsLong() - start;
+
+        synchronized (camera) {
+            camera.inFlight = false;
+            if (verdict == null) {
+                camera.onFailure(start + latency);
+                return camera.lastVerdict;
+            }
+            camera.onSuccess(latency);
+            camera.lastVerdict = verdict;
+            return verdict;
+        }
+    }
+
+    /**
+     * Calls the delegate on the worker pool so the caller can give up after the timeout.
+     * @return The verdict, or null if the call failed or timed out
+     */
+    private Boolean classify(String cameraId, BufferedImage image, float confidenceThreshhold) {
+        Future<Boolean> result;
+        try {
+            result = executor.submit(() -> delegate.imageContainsCat(cameraId, image, confidenceThreshhold));
+        } catch (RejectedExecutionException e) {
+            log.warn("Image classification rejected, every worker is busy");
+            return null;
+        }
+        try {
+            return result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            log.warn("Image classification timed out after {} ms", TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+        } catch (ExecutionException e) {
+            log.warn("Image classification failed", e.getCause());
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * @return The current sampling interval for the camera, or the minimum interval if it has not been seen yet
+     */
+    public Duration getSamplingInterval(String cameraId) {
+        CameraState camera = cameras.get(cameraId);
+        if (camera == null) {
+            return Duration.ofNanos(minIntervalNanos);
+        }
+        synchronized (camera) {
+            return Duration.ofNanos(camera.intervalNanos);
+        }
+    }
+
+    public BreakerState getBreakerState(String cameraId) {
+        CameraState camera = cameras.get(cameraId);
+        if (camera == null) {
+            return BreakerState.CLOSED;
+        }
+        synchronized (camera) {
+            return camera.breaker;
+        }
+    }
+
+    /**
+     * @return Exponentially weighted error rate of the camera's classification calls, between 0 and 1
+     */
+    public double getErrorRate(String cameraId) {
+        CameraState camera = cameras.get(cameraId);
+        if (camera == null) {
+            return 0;
+        }
+        synchronized (camera) {
+            return camera.errorRate;
+        }
+    }
+
+    /**
+     * @return Exponentially weighted latency of the camera's successful classification calls
+     */
+    public Duration getAverageLatency(String cameraId) {
+        CameraState camera = cameras.get(cameraId);
+        if (camera == null) {
+            return Duration.ZERO;
+        }
+        synchronized (camera) {
+            return Duration.ofNanos((long) camera.latencyNanos);
+        }
+    }
+
+    /**
+     * @return Number of frames from the camera that were answered without calling the delegate
+     */
+    public long getSkippedFrames(String cameraId) {
+        CameraState camera = cameras.get(cameraId);
+        if (camera == null) {
+            return 0;
+        }
+        synchronized (camera) {
+            return camera.skipped;
+        }
+    }
+
+    /**
+     * Stops the worker threads. Only needed when the executor was created by this service.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sampling and breaker state of a single camera. Guarded by its own monitor.
+     */
+    private class CameraState {
+        private static final double EWMA_WEIGHT = 0.2;
+
+        long intervalNanos;
+        long lastSampleNanos;
+        boolean sampled;
+        boolean inFlight;
+        boolean lastVerdict;
+        double latencyNanos;
+        double errorRate;
+        int consecutiveFailures;
+        long openedAtNanos;
+        long skipped;
+        BreakerState breaker = BreakerState.CLOSED;
+
+        CameraState(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+
+        /**
+         * Decides whether a frame arriving at {@code now} should be sent to the delegate.
+         */
+        boolean admit(long now) {
+            if (inFlight) {
+                return false;
+            }
+            if (breaker == BreakerState.OPEN) {
+                if (now - openedAtNanos < openNanos) {
+                    return false;
+                }
+                breaker = BreakerState.HALF_OPEN;
+            } else if (sampled && now - lastSampleNanos < intervalNanos) {
+                return false;
+            }
+            sampled = true;
+            inFlight = true;
+            lastSampleNanos = now;
+            return true;
+        }
+
+        void onSuccess(long latency) {
+            latencyNanos = latencyNanos == 0 ? latency : latencyNanos + EWMA_WEIGHT * (latency - latencyNanos);
+            errorRate -= EWMA_WEIGHT * errorRate;
+            consecutiveFailures = 0;
+            breaker = BreakerState.CLOSED;
+            if (latency > latencyTargetNanos) {
+                widen();
+            } else {
+                intervalNanos = Math.max(minIntervalNanos, intervalNanos - intervalStepNanos);
+            }
+        }
+
+        void onFailure(long now) {
+            errorRate += EWMA_WEIGHT * (1 - errorRate);
+            consecutiveFailures++;
+            widen();
+            if (breaker == BreakerState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                breaker = BreakerState.OPEN;
+                openedAtNanos = now;
+            }
+        }
+
+        private void widen() {
+            long base = Math.max(intervalNanos, intervalStepNanos);
+            intervalNanos = Math.min(maxIntervalNanos, (long) (base * backoffFactor));
+        }
+    }
+
+    public static class Builder {
+        private final ImageService delegate;
+        private ExecutorService executor;
+        private int maxConcurrentCalls = 4;
+        private LongSupplier nanoClock = System::nanoTime;
+        private Duration timeout = Duration.ofSeconds(5);
+        private Duration latencyTarget = Duration.ofSeconds(1);
+        private Duration minInterval = Duration.ZERO;
+        private Duration maxInterval = Duration.ofSeconds(30);
+        private Duration intervalStep = Duration.ofMillis(100);
+        private double backoffFactor = 2.0;
+        private int failureThreshold = 3;
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        private Builder(ImageService delegate) {
+            this.delegate = delegate;
+        }
+
+        /** Pool used to run delegate calls. Defaults to a pool of {@link #maxConcurrentCalls} daemon threads. */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /** Most delegate calls running at once in the default pool, including timed-out ones. Defaults to 4. */
+        public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+            if (maxConcurrentCalls < 1) {
+                throw new IllegalArgumentException("Concurrent calls must be positive");
+            }
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        /** Source of nanosecond timestamps, for tests. Defaults to {@link System#nanoTime()}. */
+        public Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        /** How long a single classification may take before it counts as a failure. */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /** Calls slower than this widen the sampling interval even when they succeed. */
+        public Builder latencyTarget(Duration latencyTarget) {
+            this.latencyTarget = latencyTarget;
+            return this;
+        }
+
+        public Builder minInterval(Duration minInterval) {
+            this.minInterval = minInterval;
+            return this;
+        }
+
+        public Builder maxInterval(Duration maxInterval) {
+            this.maxInterval = maxInterval;
+            return this;
+        }
+
+        /** Additive decrease applied to the interval after each fast call. */
+        public Builder intervalStep(Duration intervalStep) {
+            this.intervalStep = intervalStep;
+            return this;
+        }
+
+        /** Multiplicative increase applied to the interval after each slow or failed call. */
+        public Builder backoffFactor(double backoffFactor) {
+            if (backoffFactor <= 1.0) {
+                throw new IllegalArgumentException("Back-off factor must be greater than 1");
+            }
+            this.backoffFactor = backoffFactor;
+            return this;
+        }
+
+        /** Consecutive failures that open the circuit breaker. */
+        public Builder failureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /** How long an open breaker waits before letting a probe through. */
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public AdaptiveImageService build() {
+            return new AdaptiveImageService(this);
+        }
+    }
+}
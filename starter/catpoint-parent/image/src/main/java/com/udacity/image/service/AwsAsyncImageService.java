@@ -0,0 +1,179 @@
+package com.udacity.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClientBuilder;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Image Recognition Service backed by the asynchronous Rekognition client. Unlike {@link AwsImageService},
+ * a caller is not limited to one request at a time: {@link #imageContainsCatAsync} returns as soon as the
+ * request is sent, so many cameras can share one client and keep several requests on the wire while
+ * earlier ones are still travelling. At most {@code maxInFlight} requests are outstanding at once; further
+ * submissions block until a response frees a slot, which pushes back on producers instead of queueing
+ * frames without bound.
+ * <p>
+ * Uses the same config.properties keys as {@link AwsImageService}, plus these optional ones:
+ *      aws.endpoint=[endpoint override, for example a local stand-in such as http://localhost:4566]
+ *      aws.maxInFlight=[maximum outstanding requests, defaults to 8]
+ */
+public class AwsAsyncImageService implements ImageService, AutoCloseable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    private final Logger log = LoggerFactory.getLogger(AwsAsyncImageService.class);
+
+    private final RekognitionAsyncClient rekognitionClient;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    public AwsAsyncImageService() {
+        this(loadConfig());
+    }
+
+    private AwsAsyncImageService(Properties props) {
+        this(clientFromConfig(props), props == null ? DEFAULT_MAX_IN_FLIGHT
+                : Integer.parseInt(props.getProperty("aws.maxInFlight", String.valueOf(DEFAULT_MAX_IN_FLIGHT))));
+    }
+
+    public AwsAsyncImageService(RekognitionAsyncClient rekognitionClient, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("At least one request must be allowed in flight");
+        }
+        this.rekognitionClient = rekognitionClient;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Creates a service that talks to the given endpoint instead of the regional AWS endpoint.
+     */
+    public static AwsAsyncImageService forEndpoint(URI endpoint, AwsCredentials credentials, Region region, int maxInFlight) {
+        RekognitionAsyncClient client = RekognitionAsyncClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .region(region)
+                .endpointOverride(endpoint)
+                .build();
+        return new AwsAsyncImageService(client, maxInFlight);
+    }
+
+    /**
+     * Sends the image for label detection without waiting for the answer. Blocks only while
+     * {@code maxInFlight} requests are already outstanding.
+     * @param image Image to scan
+     * @param confidenceThreshhold Minimum threshhold to consider for cat. For example, 90.0f would require 90% confidence minimum
+     * @return Future completed with true if the image contains a cat
+     */
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+        if (rekognitionClient == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("AWS Rekognition is not configured"));
+        }
+        DetectLabelsRequest detectLabelsRequest;
+        try {
+            detectLabelsRequest = RekognitionSupport.detectLabelsRequest(image, confidenceThreshhold);
+        } catch (IOException ioe) {
+            log.error("Error building image byte array", ioe);
+            return CompletableFuture.failedFuture(ioe);
+        }
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        ImageClassificationEvent event = new ImageClassificationEvent();
+        event.begin();
+        try {
+            return rekognitionClient.detectLabels(detectLabelsRequest)
+                    .whenComplete((response, error) -> inFlight.release())
+                    .thenApply(response -> {
+                        log.info(RekognitionSupport.describeLabels(response));
+                        return RekognitionSupport.containsCat(response);
+                    })
+                    .whenComplete((catDetected, error) ->
+                            event.complete(this, image, confidenceThreshhold, Boolean.TRUE.equals(catDetected), error != null));
+        } catch (RuntimeException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Blocking variant for callers that only work with one image at a time.
+     */
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        try {
+            return imageContainsCatAsync(image, confidenceThreshhold).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            log.error("Image classification failed", e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * @return Number of requests sent but not yet answered
+     */
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    public void close() {
+        if (rekognitionClient != null) {
+            rekognitionClient.close();
+        }
+    }
+
+    private static Properties loadConfig() {
+        Properties props = new Properties();
+        try (InputStream is = AwsAsyncImageService.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (is == null) {
+                throw new IOException("config.properties not found on the classpath");
+            }
+            props.load(is);
+        } catch (IOException ioe) {
+            LoggerFactory.getLogger(AwsAsyncImageService.class)
+                    .error("Unable to initialize AWS Rekognition, no properties file found", ioe);
+            return null;
+        }
+        return props;
+    }
+
+    private static RekognitionAsyncClient clientFromConfig(Properties props) {
+        if (props == null) {
+            return null;
+        }
+        AwsCredentials awsCredentials = AwsBasicCredentials.create(props.getProperty("aws.id"), props.getProperty("aws.secret"));
+        RekognitionAsyncClientBuilder builder = RekognitionAsyncClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .region(Region.of(props.getProperty("aws.region")));
+        String endpoint = props.getProperty("aws.endpoint");
+        if (endpoint != null) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+}
@@ -5,20 +5,15 @@ import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
-import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
-import java.util.stream.Collectors;
 
 /**
  * Image Recognition Service that can identify cats. Requires aws credentials to be entered in config.properties to work.
@@ -33,7 +28,7 @@ import java.util.stream.Collectors;
  *      aws.secret=[your Secret access key]
  *      aws.region=[an aws region of choice. For example: us-east-2]
  */
-public class AwsImageService {
+public class AwsImageService implements ImageService {
 
     private Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
@@ -60,30 +55,31 @@ public class AwsImageService {
                 .build();
     }
 
-    /**
-     * Returns true if the provided image contains a cat.
-     * @param image Image to scan
-     * @param confidenceThreshhold Minimum threshhold to consider for cat. For example, 90.0f would require 90% confidence minimum
-     * @return
-     */
+    @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        Image awsImage = null;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
-        } catch (IOException ioe) {
-            log.error("Error building image byte array", ioe);
-            return false;
+        ImageClassificationEvent event = new ImageClassificationEvent();
+        event.begin();
+        boolean catDetected = false;
+        boolean failed = true;
+        try {
+            DetectLabelsRequest detectLabelsRequest;
+            try {
+                detectLabelsRequest = RekognitionSupport.detectLabelsRequest(image, confidenceThreshhold);
+            } catch (IOException ioe) {
+                log.error("Error building image byte array", ioe);
+                return false;
+            }
+            DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
+            logLabelsForFun(response);
+            catDetected = RekognitionSupport.containsCat(response);
+            failed = false;
+            return catDetected;
+        } finally {
+            event.complete(this, image, confidenceThreshhold, catDetected, failed);
         }
-        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
-        DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
-        logLabelsForFun(response);
-        return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
     }
 
     private void logLabelsForFun(DetectLabelsResponse response) {
-        log.info(response.labels().stream()
-                .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
-                .collect(Collectors.joining(", ")));
+        log.info(RekognitionSupport.describeLabels(response));
     }
 }
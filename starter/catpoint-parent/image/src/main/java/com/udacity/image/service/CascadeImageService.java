@@ -0,0 +1,124 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image service decorator that runs a cheap local {@link PreClassifier} on every frame and only
+ * calls the expensive delegate, such as the {@link AwsImageService}, when the local score is
+ * uncertain. Frames scoring below the uncertainty band are answered "no cat" locally, frames
+ * scoring at or above it are answered "cat" locally, and only frames inside the band pay for the
+ * delegate's latency and cost. How often each stage decided is counted, so the band can be tuned.
+ * <p>
+ * Thread safe as long as the pre-classifier and the delegate are.
+ */
+public class CascadeImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final PreClassifier preClassifier;
+    private final float lowerBound;
+    private final float upperBound;
+
+    private final LongAdder localNegatives = new LongAdder();
+    private final LongAdder localPositives = new LongAdder();
+    private final LongAdder escalations = new LongAdder();
+
+    private CascadeImageService(Builder builder) {
+        this.delegate = builder.delegate;
+        this.preClassifier = builder.preClassifier;
+        this.lowerBound = builder.lowerBound;
+        this.upperBound = builder.upperBound;
+    }
+
+    public static Builder builder(ImageService delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        Boolean verdict = screen(image);
+        return verdict != null ? verdict : delegate.imageContainsCat(image, confidenceThreshhold);
+    }
+
+    /**
+     * Same as {@link #imageContainsCat(BufferedImage, float)}, passing the camera id on to the delegate.
+     */
+    @Override
+    public boolean imageContainsCat(String cameraId, BufferedImage image, float confidenceThreshhold) {
+        Boolean verdict = screen(image);
+        return verdict != null ? verdict : delegate.imageContainsCat(cameraId, image, confidenceThreshhold);
+    }
+
+    /**
+     * @return The pre-classifier's verdict, or null if the frame must go to the delegate
+     */
+    private Boolean screen(BufferedImage image) {
+        float score = preClassifier.catScore(image);
+        if (score < lowerBound) {
+            localNegatives.increment();
+            return false;
+        }
+        if (score >= upperBound) {
+            localPositives.increment();
+            return true;
+        }
+        escalations.increment();
+        return null;
+    }
+
+    /**
+     * @return Number of frames the pre-classifier decided contain no cat
+     */
+    public long getLocalNegatives() {
+        return localNegatives.sum();
+    }
+
+    /**
+     * @return Number of frames the pre-classifier decided contain a cat
+     */
+    public long getLocalPositives() {
+        return localPositives.sum();
+    }
+
+    /**
+     * @return Number of frames sent to the delegate because their score was inside the band
+     */
+    public long getEscalations() {
+        return escalations.sum();
+    }
+
+    public static class Builder {
+        private final ImageService delegate;
+        private PreClassifier preClassifier = new HeuristicPreClassifier();
+        private float lowerBound = 10.0f;
+        private float upperBound = 100.1f;
+
+        private Builder(ImageService delegate) {
+            this.delegate = delegate;
+        }
+
+        /** First stage run on every frame. Defaults to a {@link HeuristicPreClassifier}. */
+        public Builder preClassifier(PreClassifier preClassifier) {
+            this.preClassifier = preClassifier;
+            return this;
+        }
+
+        /**
+         * Scores from {@code lowerBound} up to, but not including, {@code upperBound} are uncertain and
+         * go to the delegate. Defaults to 10 and just above 100, so the default pre-classifier, which
+         * never recognizes a cat, only ever decides "no cat" locally.
+         */
+        public Builder uncertaintyBand(float lowerBound, float upperBound) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            return this;
+        }
+
+        public CascadeImageService build() {
+            if (lowerBound > upperBound) {
+                throw new IllegalArgumentException("Lower bound of the uncertainty band must not exceed its upper bound");
+            }
+            return new CascadeImageService(this);
+        }
+    }
+}
@@ -6,10 +6,15 @@ import java.util.Random;
 /**
  * Service that tries to guess if an image displays a cat.
  */
-public class FakeImageService {
+public class FakeImageService implements ImageService {
     private final Random r = new Random();
 
+    @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        return r.nextBoolean();
+        ImageClassificationEvent event = new ImageClassificationEvent();
+        event.begin();
+        boolean catDetected = r.nextBoolean();
+        event.complete(this, image, confidenceThreshhold, catDetected, false);
+        return catDetected;
     }
 }
@@ -0,0 +1,66 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Default {@link PreClassifier}. Samples the luminance of a coarse grid of pixels and scores frames
+ * by how much detail they contain. Frames that cannot show anything, because they are too dark,
+ * overexposed or nearly uniform, score 0; detailed frames score up to 100. It cannot recognize a
+ * cat, so it is meant to rule out empty frames and leave everything else to the next stage.
+ * <p>
+ * A 32 by 32 grid is read regardless of the frame size, which takes a few microseconds. Instances
+ * are stateless and safe to share between threads.
+ */
+public class HeuristicPreClassifier implements PreClassifier {
+
+    private static final int GRID = 32;
+    private static final int DARK_LIMIT = 12;
+    private static final int BRIGHT_LIMIT = 243;
+    private static final double UNIFORM_LIMIT = 4;
+    /** Average luminance step between neighbouring samples that counts as full detail */
+    private static final double FULL_DETAIL = 32;
+
+    @Override
+    public float catScore(BufferedImage image) {
+        int columns = Math.min(GRID, image.getWidth());
+        int rows = Math.min(GRID, image.getHeight());
+        int[] luminance = new int[columns * rows];
+        long sum = 0;
+        for (int row = 0; row < rows; row++) {
+            int y = (int) ((row + 0.5) * image.getHeight() / rows);
+            for (int column = 0; column < columns; column++) {
+                int x = (int) ((column + 0.5) * image.getWidth() / columns);
+                int rgb = image.getRGB(x, y);
+                //integer Rec. 601 luma
+                int l = (299 * ((rgb >> 16) & 0xFF) + 587 * ((rgb >> 8) & 0xFF) + 114 * (rgb & 0xFF)) / 1000;
+                luminance[row * columns + column] = l;
+                sum += l;
+            }
+        }
+
+        double mean = (double) sum / luminance.length;
+        double variance = 0;
+        long steps = 0;
+        long stepCount = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int l = luminance[row * columns + column];
+                variance += (l - mean) * (l - mean);
+                if (column + 1 < columns) {
+                    steps += Math.abs(l - luminance[row * columns + column + 1]);
+                    stepCount++;
+                }
+                if (row + 1 < rows) {
+                    steps += Math.abs(l - luminance[(row + 1) * columns + column]);
+                    stepCount++;
+                }
+            }
+        }
+        double deviation = Math.sqrt(variance / luminance.length);
+        if (mean < DARK_LIMIT || mean > BRIGHT_LIMIT || deviation < UNIFORM_LIMIT || stepCount == 0) {
+            return 0;
+        }
+        double detail = (double) steps / stepCount;
+        return (float) Math.min(100, 100 * detail / FULL_DETAIL);
+    }
+}
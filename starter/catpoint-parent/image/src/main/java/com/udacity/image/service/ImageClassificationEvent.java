@@ -0,0 +1,57 @@
+package com.udacity.image.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Flight Recorder event for one classification call, from submitting the image to receiving the
+ * verdict. Fields are only filled in when the event is actually recorded, so the cost while Flight
+ * Recorder is off is the allocation, which the JIT usually removes, and two timestamp checks.
+ */
+@Name("com.udacity.image.Classification")
+@Label("Image Classification")
+@Category({"Catpoint", "Image Service"})
+@Description("A call to an image service asking whether an image contains a cat")
+@StackTrace(false)
+final class ImageClassificationEvent extends Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Image Width")
+    int width;
+
+    @Label("Image Height")
+    int height;
+
+    @Label("Confidence Threshold")
+    float confidenceThreshold;
+
+    @Label("Cat Detected")
+    boolean catDetected;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * Ends the event and records it if Flight Recorder wants it.
+     */
+    void complete(ImageService imageService, BufferedImage image, float confidenceThreshold, boolean catDetected, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.service = imageService.getClass().getSimpleName();
+            this.width = image == null ? 0 : image.getWidth();
+            this.height = image == null ? 0 : image.getHeight();
+            this.confidenceThreshold = confidenceThreshold;
+            this.catDetected = catDetected;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Describes a service that can analyze an image and decide whether it displays a cat. Lets the
+ * security system work with the {@link AwsImageService}, the {@link FakeImageService} or any
+ * decorator around them without knowing which one it was given.
+ */
+public interface ImageService {
+
+    /**
+     * Returns true if the provided image contains a cat.
+     * @param image Image to scan
+     * @param confidenceThreshhold Minimum threshhold to consider for cat. For example, 90.0f would require 90% confidence minimum
+     */
+    boolean imageContainsCat(BufferedImage image, float confidenceThreshhold);
+
+    /**
+     * Same as {@link #imageContainsCat(BufferedImage, float)} for a frame from a known camera, for
+     * services that keep state per camera. Others ignore the camera id.
+     * @param cameraId Camera the frame came from
+     * @param image Image to scan
+     * @param confidenceThreshhold Minimum threshhold to consider for cat
+     */
+    default boolean imageContainsCat(String cameraId, BufferedImage image, float confidenceThreshhold) {
+        return imageContainsCat(image, confidenceThreshhold);
+    }
+}
@@ -0,0 +1,17 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Fast local first stage of a {@link CascadeImageService}. Gives a rough score for how likely a
+ * frame is to contain a cat, cheap enough to run on every frame before deciding whether the frame
+ * is worth sending to an expensive classifier.
+ */
+public interface PreClassifier {
+
+    /**
+     * @param image Image to score
+     * @return Score from 0 to 100, on the same scale as the confidence threshold of an {@link ImageService}
+     */
+    float catScore(BufferedImage image);
+}
@@ -0,0 +1,43 @@
+package com.udacity.image.service;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.stream.Collectors;
+
+/**
+ * Request building and response interpretation shared by the Rekognition backed image services.
+ */
+final class RekognitionSupport {
+
+    private RekognitionSupport() {
+    }
+
+    /**
+     * Encodes the image as a jpg and wraps it in a label detection request.
+     */
+    static DetectLabelsRequest detectLabelsRequest(BufferedImage image, float confidenceThreshhold) throws IOException {
+        Image awsImage;
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "jpg", os);
+            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+        }
+        return DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
+    }
+
+    static boolean containsCat(DetectLabelsResponse response) {
+        return response.labels().stream().anyMatch(l -> l.name().toLowerCase().contains("cat"));
+    }
+
+    static String describeLabels(DetectLabelsResponse response) {
+        return response.labels().stream()
+                .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
+                .collect(Collectors.joining(", "));
+    }
+}
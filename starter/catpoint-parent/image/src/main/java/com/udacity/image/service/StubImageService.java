@@ -0,0 +1,60 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a remote image service. Answers with a fixed verdict after an injected
+ * delay and can be told to fail, which makes it useful for exercising timeouts, back-off and
+ * load behaviour without network access. All settings may be changed while in use.
+ */
+public class StubImageService implements ImageService {
+
+    private volatile boolean verdict;
+    private volatile long latencyNanos;
+    private volatile boolean failing;
+    private final AtomicLong calls = new AtomicLong();
+
+    public StubImageService(boolean verdict, long latency, TimeUnit unit) {
+        this.verdict = verdict;
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        calls.incrementAndGet();
+        long latency = latencyNanos;
+        if (latency > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while simulating latency", e);
+            }
+        }
+        if (failing) {
+            throw new IllegalStateException("Simulated image service failure");
+        }
+        return verdict;
+    }
+
+    public void setVerdict(boolean verdict) {
+        this.verdict = verdict;
+    }
+
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    /**
+     * @return How many classification requests reached this stub
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+}
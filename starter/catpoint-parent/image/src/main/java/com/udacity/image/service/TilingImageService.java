@@ -0,0 +1,245 @@
+package com.udacity.image.service;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image service decorator for high resolution frames. Frames larger than a tile are split into
+ * overlapping tiles which are classified in parallel on a fork-join pool, so a small cat in a corner
+ * is seen at full resolution instead of being lost when the whole frame is downscaled. The verdicts
+ * are merged with a logical or: as soon as one tile contains a cat, tiles that have not started yet
+ * are skipped and the frame is reported as a cat.
+ * <p>
+ * Tiles are views onto the frame's raster, not copies. Calls to the delegate are run as managed
+ * blocking operations, so a remote backend that spends most of its time waiting does not starve the
+ * pool, while a local, CPU bound backend scales with the number of cores. The delegate must be safe
+ * to call from several threads at once.
+ */
+public class TilingImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final ForkJoinPool pool;
+    private final int tileSize;
+    private final int overlap;
+    private final boolean includeWholeFrame;
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder tilesClassified = new LongAdder();
+    private final LongAdder tilesSkipped = new LongAdder();
+
+    private TilingImageService(Builder builder) {
+        this.delegate = builder.delegate;
+        this.pool = builder.pool != null ? builder.pool : ForkJoinPool.commonPool();
+        this.tileSize = builder.tileSize;
+        this.overlap = builder.overlap;
+        this.includeWholeFrame = builder.includeWholeFrame;
+    }
+
+    public static Builder builder(ImageService delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * Classifies the frame tile by tile. Frames that fit in a single tile go to the delegate unchanged.
+     */
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        frames.increment();
+        if (image.getWidth() <= tileSize && image.getHeight() <= tileSize) {
+            tilesClassified.increment();
+            return delegate.imageContainsCat(image, confidenceThreshhold);
+        }
+
+        List<Rectangle> tiles = tiles(image.getWidth(), image.getHeight());
+        if (includeWholeFrame) {
+            //a large cat spread over several tiles is still recognizable in the whole frame
+            tiles.add(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        }
+        return pool.invoke(new TileTask(image, confidenceThreshhold, tiles, 0, tiles.size(), new AtomicBoolean()));
+    }
+
+    /**
+     * @return Tiles covering a frame of the given size, in row order. Neighbouring tiles share
+     * {@code overlap} pixels, and the last tile of each row and column is aligned to the frame edge.
+     */
+    List<Rectangle> tiles(int width, int height) {
+        List<Rectangle> tiles = new ArrayList<>();
+        int[] ys = offsets(height);
+        int[] xs = offsets(width);
+        for (int y : ys) {
+            for (int x : xs) {
+                tiles.add(new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y)));
+            }
+        }
+        return tiles;
+    }
+
+    private int[] offsets(int length) {
+        if (length <= tileSize) {
+            return new int[]{0};
+        }
+        int step = tileSize - overlap;
+        int count = (length - tileSize + step - 1) / step + 1;
+        int[] offsets = new int[count];
+        for (int i = 0; i < count - 1; i++) {
+            offsets[i] = i * step;
+        }
+        offsets[count - 1] = length - tileSize;
+        return offsets;
+    }
+
+    /**
+     * @return Number of frames classified so far
+     */
+    public long getFrameCount() {
+        return frames.sum();
+    }
+
+    /**
+     * @return Number of tiles, and whole frames, sent to the delegate so far
+     */
+    public long getTilesClassified() {
+        return tilesClassified.sum();
+    }
+
+    /**
+     * @return Number of tiles skipped because another tile of the same frame already contained a cat
+     */
+    public long getTilesSkipped() {
+        return tilesSkipped.sum();
+    }
+
+    /**
+     * Classifies a range of tiles, splitting it in halves until a single tile is left.
+     */
+    private class TileTask extends RecursiveTask<Boolean> {
+        private final BufferedImage image;
+        private final float confidenceThreshhold;
+        private final List<Rectangle> tiles;
+        private final int from;
+        private final int to;
+        private final AtomicBoolean found;
+
+        TileTask(BufferedImage image, float confidenceThreshhold, List<Rectangle> tiles, int from, int to, AtomicBoolean found) {
+            this.image = image;
+            this.confidenceThreshhold = confidenceThreshhold;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.found = found;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (found.get()) {
+                tilesSkipped.add(to - from);
+                return true;
+            }
+            if (to - from == 1) {
+                return classify(tiles.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            TileTask second = new TileTask(image, confidenceThreshhold, tiles, middle, to, found);
+            second.fork();
+            if (new TileTask(image, confidenceThreshhold, tiles, from, middle, found).compute()) {
+                //no need to wait; the forked half sees the flag and skips its remaining tiles
+                return true;
+            }
+            return second.join();
+        }
+
+        private boolean classify(Rectangle tile) {
+            BufferedImage view = tile.width == image.getWidth() && tile.height == image.getHeight()
+                    ? image
+                    : image.getSubimage(tile.x, tile.y, tile.width, tile.height);
+            Classification classification = new Classification(view, confidenceThreshhold);
+            try {
+                ForkJoinPool.managedBlock(classification);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            tilesClassified.increment();
+            if (classification.catDetected) {
+                found.set(true);
+            }
+            return classification.catDetected;
+        }
+    }
+
+    /**
+     * One delegate call, wrapped so the pool can add a thread while it blocks.
+     */
+    private class Classification implements ForkJoinPool.ManagedBlocker {
+        private final BufferedImage tile;
+        private final float confidenceThreshhold;
+        private boolean done;
+        private boolean catDetected;
+
+        Classification(BufferedImage tile, float confidenceThreshhold) {
+            this.tile = tile;
+            this.confidenceThreshhold = confidenceThreshhold;
+        }
+
+        @Override
+        public boolean block() {
+            catDetected = delegate.imageContainsCat(tile, confidenceThreshhold);
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    public static class Builder {
+        private final ImageService delegate;
+        private ForkJoinPool pool;
+        private int tileSize = 1024;
+        private int overlap = 128;
+        private boolean includeWholeFrame = true;
+
+        private Builder(ImageService delegate) {
+            this.delegate = delegate;
+        }
+
+        /** Pool used to classify tiles. Defaults to the common pool. */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /** Width and height of a tile in pixels. Frames no larger than this are not split. */
+        public Builder tileSize(int tileSize) {
+            this.tileSize = tileSize;
+            return this;
+        }
+
+        /** Pixels shared by neighbouring tiles, so a cat on a tile border is whole in at least one tile. */
+        public Builder overlap(int overlap) {
+            this.overlap = overlap;
+            return this;
+        }
+
+        /** Whether the whole frame is classified too, alongside its tiles. Defaults to true. */
+        public Builder includeWholeFrame(boolean includeWholeFrame) {
+            this.includeWholeFrame = includeWholeFrame;
+            return this;
+        }
+
+        public TilingImageService build() {
+            if (tileSize < 1 || overlap < 0 || overlap >= tileSize) {
+                throw new IllegalArgumentException("Overlap must be at least 0 and smaller than the tile size");
+            }
+            return new TilingImageService(this);
+        }
+    }
+}
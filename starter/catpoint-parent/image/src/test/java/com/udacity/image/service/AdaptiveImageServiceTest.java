@@ -0,0 +1,163 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveImageServiceTest {
+  private static final String CAMERA = "front-door";
+
+  private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+  private final AtomicLong clock = new AtomicLong();
+  private StubImageService stub;
+  private AdaptiveImageService adaptiveService;
+
+  @BeforeEach
+  public void setUp() {
+    stub = new StubImageService(true, 0, TimeUnit.MILLISECONDS);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (adaptiveService != null) {
+      adaptiveService.shutdown();
+    }
+  }
+
+  @Test
+  public void frameWithinSamplingInterval_returnsLastVerdictWithoutClassifying() {
+    adaptiveService = AdaptiveImageService.builder(stub)
+        .nanoClock(clock::get)
+        .minInterval(Duration.ofSeconds(1))
+        .build();
+
+    assertTrue(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    stub.setVerdict(false);
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertTrue(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    assertEquals(1, stub.getCallCount());
+    assertEquals(1, adaptiveService.getSkippedFrames(CAMERA));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertFalse(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    assertEquals(2, stub.getCallCount());
+  }
+
+  @Test
+  public void slowClassifier_widensSamplingInterval_fastClassifierNarrowsIt() {
+    var latency = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(30));
+    ImageService slowService = (img, threshold) -> {
+      clock.addAndGet(latency.get());
+      return true;
+    };
+    adaptiveService = AdaptiveImageService.builder(slowService)
+        .nanoClock(clock::get)
+        .latencyTarget(Duration.ofMillis(10))
+        .intervalStep(Duration.ofMillis(100))
+        .backoffFactor(2.0)
+        .build();
+
+    adaptiveService.imageContainsCat(CAMERA, image, 50.0f);
+    assertEquals(Duration.ofMillis(200), adaptiveService.getSamplingInterval(CAMERA));
+    assertEquals(Duration.ofMillis(30), adaptiveService.getAverageLatency(CAMERA));
+
+    latency.set(0);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    adaptiveService.imageContainsCat(CAMERA, image, 50.0f);
+    assertEquals(Duration.ofMillis(100), adaptiveService.getSamplingInterval(CAMERA));
+  }
+
+  @Test
+  public void consecutiveFailures_openBreakerAndFallBackToLastVerdict() {
+    adaptiveService = AdaptiveImageService.builder(stub)
+        .nanoClock(clock::get)
+        .maxInterval(Duration.ofSeconds(1))
+        .failureThreshold(2)
+        .openDuration(Duration.ofMinutes(1))
+        .build();
+
+    assertTrue(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    stub.setFailing(true);
+    for (int i = 0; i < 2; i++) {
+      clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+      assertTrue(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    }
+    assertEquals(AdaptiveImageService.BreakerState.OPEN, adaptiveService.getBreakerState(CAMERA));
+    assertTrue(adaptiveService.getErrorRate(CAMERA) > 0);
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertTrue(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    assertEquals(3, stub.getCallCount());
+
+    stub.setFailing(false);
+    stub.setVerdict(false);
+    clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+    assertFalse(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    assertEquals(AdaptiveImageService.BreakerState.CLOSED, adaptiveService.getBreakerState(CAMERA));
+  }
+
+  @Test
+  public void classifierSlowerThanTimeout_countsAsFailure() {
+    stub.setLatency(500, TimeUnit.MILLISECONDS);
+    adaptiveService = AdaptiveImageService.builder(stub)
+        .timeout(Duration.ofMillis(50))
+        .build();
+
+    assertFalse(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    assertTrue(adaptiveService.getErrorRate(CAMERA) > 0);
+  }
+
+  @Test
+  public void everyWorkerStuckOnATimedOutCall_failsFurtherCallsWithoutNewThreads() {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+    ImageService stuckService = (img, threshold) -> {
+      calls.incrementAndGet();
+      //ignores the interrupt from the timed-out caller, like a blocking network call
+      while (release.getCount() > 0) {
+        try {
+          release.await();
+        } catch (InterruptedException ignored) {
+        }
+      }
+      return true;
+    };
+    adaptiveService = AdaptiveImageService.builder(stuckService)
+        .timeout(Duration.ofMillis(50))
+        .maxConcurrentCalls(1)
+        .build();
+
+    assertFalse(adaptiveService.imageContainsCat(CAMERA, image, 50.0f));
+    assertFalse(adaptiveService.imageContainsCat("garage", image, 50.0f));
+
+    assertEquals(1, calls.get());
+    assertTrue(adaptiveService.getErrorRate("garage") > 0);
+    release.countDown();
+  }
+
+  @Test
+  public void cameraIdPassedThroughTheImageServiceInterface_keepsStatePerCamera() {
+    ImageService imageService = AdaptiveImageService.builder(stub)
+        .nanoClock(clock::get)
+        .minInterval(Duration.ofSeconds(1))
+        .build();
+    adaptiveService = (AdaptiveImageService) imageService;
+
+    imageService.imageContainsCat(CAMERA, image, 50.0f);
+    imageService.imageContainsCat("garage", image, 50.0f);
+    imageService.imageContainsCat(CAMERA, image, 50.0f);
+
+    assertEquals(2, stub.getCallCount());
+    assertEquals(1, adaptiveService.getSkippedFrames(CAMERA));
+    assertEquals(0, adaptiveService.getSkippedFrames("garage"));
+  }
+}
@@ -0,0 +1,78 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.regions.Region;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AwsAsyncImageServiceTest {
+  private final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+
+  private AwsAsyncImageService serviceFor(LocalRekognitionEndpoint endpoint, int maxInFlight) {
+    return AwsAsyncImageService.forEndpoint(endpoint.getUri(), AwsBasicCredentials.create("test", "test"),
+        Region.US_EAST_1, maxInFlight);
+  }
+
+  @Test
+  public void catLabel_completesFutureWithTrue() throws Exception {
+    try (var endpoint = new LocalRekognitionEndpoint("Cat", 97.5f);
+         var service = serviceFor(endpoint, 2)) {
+      assertTrue(service.imageContainsCatAsync(image, 50.0f).get(30, TimeUnit.SECONDS));
+      assertTrue(service.imageContainsCat(image, 50.0f));
+      assertEquals(0, service.getInFlightCount());
+    }
+  }
+
+  @Test
+  public void otherLabel_completesFutureWithFalse() throws Exception {
+    try (var endpoint = new LocalRekognitionEndpoint("Dog", 97.5f);
+         var service = serviceFor(endpoint, 2)) {
+      assertFalse(service.imageContainsCatAsync(image, 50.0f).get(30, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void manyRequests_arePipelinedUpToMaxInFlight() throws Exception {
+    int maxInFlight = 4;
+    int requests = 12;
+    ExecutorService submitter = Executors.newSingleThreadExecutor();
+    try (var endpoint = new LocalRekognitionEndpoint("Cat", 97.5f);
+         var service = serviceFor(endpoint, maxInFlight)) {
+      service.imageContainsCat(image, 50.0f); // warm up the connection pool
+
+      endpoint.hold();
+      Future<List<CompletableFuture<Boolean>>> submitted = submitter.submit(() -> {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+          results.add(service.imageContainsCatAsync(image, 50.0f));
+        }
+        return results;
+      });
+
+      //the endpoint holds every request, so the service must have sent maxInFlight of them at once
+      assertTrue(endpoint.awaitConcurrentRequests(maxInFlight, 30, TimeUnit.SECONDS), "requests were not pipelined");
+      assertEquals(maxInFlight, service.getInFlightCount());
+      assertFalse(submitted.isDone());
+
+      endpoint.release();
+      List<CompletableFuture<Boolean>> results = submitted.get(30, TimeUnit.SECONDS);
+      CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+      assertTrue(results.stream().allMatch(CompletableFuture::join));
+      assertEquals(requests + 1, endpoint.getRequestCount());
+      assertEquals(maxInFlight, endpoint.getMaxConcurrentRequests());
+    } finally {
+      submitter.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CascadeImageServiceTest {
+  private final StubImageService backend = new StubImageService(true, 0, TimeUnit.MILLISECONDS);
+
+  @Test
+  public void scoresOutsideBand_areDecidedLocally_scoresInsideAreEscalated() {
+    float[] score = {0};
+    CascadeImageService cascade = CascadeImageService.builder(backend)
+        .preClassifier(image -> score[0])
+        .uncertaintyBand(20, 80)
+        .build();
+    BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    score[0] = 5;
+    assertFalse(cascade.imageContainsCat(image, 50.0f));
+    score[0] = 80;
+    assertTrue(cascade.imageContainsCat(image, 50.0f));
+    score[0] = 50;
+    backend.setVerdict(false);
+    assertFalse(cascade.imageContainsCat(image, 50.0f));
+
+    assertEquals(1, backend.getCallCount());
+    assertEquals(1, cascade.getLocalNegatives());
+    assertEquals(1, cascade.getLocalPositives());
+    assertEquals(1, cascade.getEscalations());
+  }
+
+  @Test
+  public void defaultPreClassifier_resolvesEmptyFramesLocally() {
+    CascadeImageService cascade = CascadeImageService.builder(backend).build();
+
+    assertFalse(cascade.imageContainsCat(filled(Color.BLACK), 50.0f));
+    assertFalse(cascade.imageContainsCat(filled(Color.WHITE), 50.0f));
+    assertFalse(cascade.imageContainsCat(filled(Color.GRAY), 50.0f));
+    assertEquals(3, cascade.getLocalNegatives());
+    assertEquals(0, backend.getCallCount());
+
+    assertTrue(cascade.imageContainsCat(checkerboard(), 50.0f));
+    assertEquals(1, cascade.getEscalations());
+  }
+
+  @Test
+  public void heuristicScore_growsWithDetail() {
+    HeuristicPreClassifier preClassifier = new HeuristicPreClassifier();
+
+    assertEquals(0, preClassifier.catScore(filled(Color.DARK_GRAY)));
+    assertEquals(100, preClassifier.catScore(checkerboard()));
+  }
+
+  @Test
+  public void invertedBand_isRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> CascadeImageService.builder(backend).uncertaintyBand(60, 40).build());
+  }
+
+  private static BufferedImage filled(Color color) {
+    BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setColor(color);
+    g.fillRect(0, 0, 640, 480);
+    g.dispose();
+    return image;
+  }
+
+  private static BufferedImage checkerboard() {
+    BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < 480; y++) {
+      for (int x = 0; x < 640; x++) {
+        image.setRGB(x, y, ((x / 20 + y / 15) & 1) == 0 ? 0x202020 : 0xE0E0E0);
+      }
+    }
+    return image;
+  }
+}
@@ -0,0 +1,162 @@
+package com.udacity.image.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP/1.1 stand-in for the Rekognition endpoint. Every request is answered with the same
+ * DetectLabels JSON body, and the endpoint remembers the highest number of requests it was serving at
+ * the same time. While {@link #hold()} is in effect, requests are kept waiting until {@link #release()},
+ * so a test can observe how many are outstanding without depending on timing.
+ */
+class LocalRekognitionEndpoint implements AutoCloseable {
+  private final ServerSocket serverSocket;
+  private final byte[] responseBody;
+  private final AtomicInteger served = new AtomicInteger();
+  private volatile CountDownLatch gate = new CountDownLatch(0);
+  private int active;
+  private int maxActive;
+
+  LocalRekognitionEndpoint(String label, float confidence) throws IOException {
+    this.responseBody = String.format(Locale.ROOT, "{\"Labels\":[{\"Name\":\"%s\",\"Confidence\":%.1f}]}", label, confidence)
+        .getBytes(StandardCharsets.UTF_8);
+    this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::accept, "rekognition-stand-in");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  URI getUri() {
+    return URI.create("http://localhost:" + serverSocket.getLocalPort());
+  }
+
+  synchronized int getMaxConcurrentRequests() {
+    return maxActive;
+  }
+
+  /**
+   * Keeps every request that arrives from now on waiting until {@link #release()}.
+   */
+  void hold() {
+    gate = new CountDownLatch(1);
+  }
+
+  /**
+   * Answers the requests kept waiting by {@link #hold()}, and any later ones straight away.
+   */
+  void release() {
+    gate.countDown();
+  }
+
+  /**
+   * Waits until the endpoint is serving at least the given number of requests at once.
+   * @return False if that did not happen before the timeout
+   */
+  synchronized boolean awaitConcurrentRequests(int requests, long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (active < requests) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+    return true;
+  }
+
+  private synchronized void requestStarted() {
+    active++;
+    maxActive = Math.max(maxActive, active);
+    notifyAll();
+  }
+
+  private synchronized void requestFinished() {
+    active--;
+  }
+
+  int getRequestCount() {
+    return served.get();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        Thread connection = new Thread(() -> serve(socket), "rekognition-stand-in-connection");
+        connection.setDaemon(true);
+        connection.start();
+      } catch (IOException e) {
+        return;
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket; InputStream in = new BufferedInputStream(socket.getInputStream()); OutputStream out = socket.getOutputStream()) {
+      while (true) {
+        int contentLength = -1;
+        String line = readLine(in);
+        if (line == null) {
+          return;
+        }
+        while (!(line = readLine(in)).isEmpty()) {
+          String header = line.toLowerCase(Locale.ROOT);
+          if (header.startsWith("content-length:")) {
+            contentLength = Integer.parseInt(header.substring("content-length:".length()).trim());
+          } else if (header.startsWith("expect:") && header.contains("100-continue")) {
+            out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+          }
+        }
+        in.readNBytes(Math.max(0, contentLength));
+
+        requestStarted();
+        try {
+          gate.await();
+        } finally {
+          requestFinished();
+        }
+        served.incrementAndGet();
+
+        out.write(("HTTP/1.1 200 OK\r\n"
+            + "Content-Type: application/x-amz-json-1.1\r\n"
+            + "Content-Length: " + responseBody.length + "\r\n"
+            + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(responseBody);
+        out.flush();
+      }
+    } catch (IOException | InterruptedException e) {
+      // client went away, nothing left to serve
+    }
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != -1) {
+      if (b == '\n') {
+        return line.toString(StandardCharsets.US_ASCII).stripTrailing();
+      }
+      line.write(b);
+    }
+    return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII);
+  }
+
+  @Override
+  public void close() throws IOException {
+    release();
+    serverSocket.close();
+  }
+}
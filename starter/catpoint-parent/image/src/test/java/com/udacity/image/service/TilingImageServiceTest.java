@@ -0,0 +1,115 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TilingImageServiceTest {
+  private static final int CAT = Color.ORANGE.getRGB();
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+  private final AtomicInteger calls = new AtomicInteger();
+
+  /**
+   * Pretends to be a classifier that only recognizes a cat when it is whole: at least 32x32 orange
+   * pixels, which is only true when the tile is not downscaled below that.
+   */
+  private final ImageService wholeCatDetector = (image, confidenceThreshhold) -> {
+    calls.incrementAndGet();
+    int catPixels = 0;
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        if (image.getRGB(x, y) == CAT) {
+          catPixels++;
+        }
+      }
+    }
+    return catPixels >= 32 * 32;
+  };
+
+  @AfterEach
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  private static BufferedImage frameWithCatAt(int width, int height, int catX, int catY) {
+    BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    if (catX >= 0) {
+      Graphics2D g = frame.createGraphics();
+      g.setColor(Color.ORANGE);
+      g.fillRect(catX, catY, 32, 32);
+      g.dispose();
+    }
+    return frame;
+  }
+
+  @Test
+  public void tiles_coverTheFrameWithOverlapAndEndAtTheEdge() {
+    TilingImageService service = TilingImageService.builder(wholeCatDetector).tileSize(100).overlap(20).build();
+
+    List<Rectangle> tiles = service.tiles(250, 100);
+
+    assertEquals(3, tiles.size());
+    assertEquals(new Rectangle(0, 0, 100, 100), tiles.get(0));
+    assertEquals(new Rectangle(80, 0, 100, 100), tiles.get(1));
+    assertEquals(new Rectangle(150, 0, 100, 100), tiles.get(2));
+  }
+
+  @Test
+  public void catOnTileBorder_isWholeInOneTile() {
+    TilingImageService service = TilingImageService.builder(wholeCatDetector)
+        .pool(pool).tileSize(256).overlap(64).includeWholeFrame(false).build();
+
+    assertTrue(service.imageContainsCat(frameWithCatAt(1024, 768, 200, 180), 50f));
+  }
+
+  @Test
+  public void frameWithoutCat_classifiesEveryTile() {
+    TilingImageService service = TilingImageService.builder(wholeCatDetector)
+        .pool(pool).tileSize(256).overlap(64).build();
+
+    assertFalse(service.imageContainsCat(frameWithCatAt(1024, 768, -1, -1), 50f));
+    int expected = service.tiles(1024, 768).size() + 1;
+    assertEquals(expected, calls.get());
+    assertEquals(expected, service.getTilesClassified());
+    assertEquals(0, service.getTilesSkipped());
+  }
+
+  @Test
+  public void catInFirstTile_skipsRemainingTiles() {
+    TilingImageService service = TilingImageService.builder(wholeCatDetector)
+        .pool(pool).tileSize(128).overlap(16).includeWholeFrame(false).build();
+
+    assertTrue(service.imageContainsCat(frameWithCatAt(2048, 2048, 10, 10), 50f));
+    //subtasks forked before the hit still run, but only to find the flag set
+    pool.awaitQuiescence(10, TimeUnit.SECONDS);
+    assertTrue(service.getTilesSkipped() > 0);
+    assertTrue(calls.get() < service.tiles(2048, 2048).size());
+  }
+
+  @Test
+  public void smallFrame_goesToDelegateUnchanged() {
+    BufferedImage frame = frameWithCatAt(200, 100, 5, 5);
+    TilingImageService service = TilingImageService.builder((image, confidenceThreshhold) -> image == frame)
+        .pool(pool).tileSize(256).overlap(32).build();
+
+    assertTrue(service.imageContainsCat(frame, 50f));
+    assertEquals(1, service.getTilesClassified());
+  }
+
+  @Test
+  public void overlapNotSmallerThanTile_isRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> TilingImageService.builder(wholeCatDetector).tileSize(64).overlap(64).build());
+  }
+}
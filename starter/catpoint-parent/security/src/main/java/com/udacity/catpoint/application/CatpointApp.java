@@ -1,11 +1,31 @@
 package com.udacity.catpoint.application;
 
+import com.udacity.catpoint.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.data.SecurityRepository;
+import com.udacity.image.service.AdaptiveImageService;
+import com.udacity.image.service.FakeImageService;
+import com.udacity.image.service.ImageService;
+
+import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
+
 /**
- * This is the main class that launches the application.
+ * This is the main class that launches the application. Stored state is loaded and the image service
+ * created in the background while the window is built, and the time of each phase is logged.
  */
 public class CatpointApp {
     public static void main(String[] args) {
-        CatpointGui gui = new CatpointGui();
-        gui.setVisible(true);
+        StartupTimer startupTimer = new StartupTimer();
+        CompletableFuture<SecurityRepository> securityRepository = CompletableFuture.supplyAsync(() ->
+                startupTimer.time("load repository", PretendDatabaseSecurityRepositoryImpl::new));
+        CompletableFuture<ImageService> imageService = CompletableFuture.supplyAsync(() ->
+                startupTimer.time("create image service",
+                        () -> AdaptiveImageService.builder(new FakeImageService()).build()));
+        SwingUtilities.invokeLater(() -> {
+            CatpointGui gui = startupTimer.time("build window",
+                    () -> new CatpointGui(securityRepository, imageService, startupTimer));
+            gui.setVisible(true);
+            startupTimer.milestone("window shown");
+        });
     }
 }
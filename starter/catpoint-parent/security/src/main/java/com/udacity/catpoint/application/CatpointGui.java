@@ -1,42 +1,104 @@
 package com.udacity.catpoint.application;
 
-import com.udacity.catpoint.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.camera.EvidenceRecorder;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
 import com.udacity.catpoint.data.SecurityRepository;
 import com.udacity.catpoint.service.SecurityService;
-import com.udacity.image.service.FakeImageService;
+import com.udacity.image.service.ImageService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
  *
  * We're not using any dependency injection framework, so this class also handles constructing
  * all our dependencies and providing them to other classes as necessary.
+ *
+ * The window is shown while the stored state is still loading. Once the repository and image service
+ * are ready, the panels are built one per turn of the EDT, so the window stays responsive and the
+ * time to the first frame does not grow with the stored state.
+ *
+ * The panels never call the security service's mutators on the EDT. Those calls run one at a time on
+ * a single service thread, together with the camera feed's frames, so a slow image service cannot
+ * freeze the window and the service is still only changed from one thread.
  */
 public class CatpointGui extends JFrame {
-    private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private FakeImageService imageService = new FakeImageService();
-    private SecurityService securityService = new SecurityService(securityRepository, imageService);
-    private DisplayPanel displayPanel = new DisplayPanel(securityService);
-    private ControlPanel controlPanel = new ControlPanel(securityService);
-    private SensorPanel sensorPanel = new SensorPanel(securityService);
-    private ImagePanel imagePanel = new ImagePanel(securityService);
-
-    public CatpointGui() {
+    private final StartupTimer startupTimer;
+    private final UiFrameClock frameClock = new UiFrameClock();
+    private final ExecutorService serviceExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "security-service");
+        t.setDaemon(true);
+        return t;
+    });
+    private final JPanel mainPanel = new JPanel();
+    private final JLabel loadingLabel = new JLabel("Loading...");
+
+    /**
+     * @param securityRepository Repository being loaded in the background
+     * @param imageService Image service being created in the background
+     */
+    public CatpointGui(CompletableFuture<SecurityRepository> securityRepository,
+                       CompletableFuture<ImageService> imageService, StartupTimer startupTimer) {
+        this.startupTimer = startupTimer;
         setLocation(100, 100);
         setSize(600, 850);
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        JPanel mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
-        mainPanel.add(displayPanel, "wrap");
-        mainPanel.add(imagePanel, "wrap");
-        mainPanel.add(controlPanel, "wrap");
-        mainPanel.add(sensorPanel);
-
+        mainPanel.add(loadingLabel, "wrap");
         getContentPane().add(mainPanel);
+        frameClock.start();
+
+        CompletableFuture<EvidenceRecorder> evidenceRecorder = CompletableFuture.supplyAsync(() ->
+                startupTimer.time("reserve evidence buffers",
+                        () -> EvidenceRecorder.builder(Paths.get("evidence")).cameras(1).build()));
+        securityRepository
+                .exceptionally(e -> {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Unable to load saved state."));
+                    return new InMemorySecurityRepository();
+                })
+                .thenCombine(imageService, (repository, images) ->
+                        startupTimer.time("create security service", () -> new SecurityService(repository, images)))
+                .thenCombine(evidenceRecorder, (securityService, recorder) -> {
+                    recorder.attach(securityService);
+                    SwingUtilities.invokeLater(() -> addPanels(securityService, recorder));
+                    return securityService;
+                })
+                .whenComplete((securityService, e) -> {
+                    if (e != null) {
+                        SwingUtilities.invokeLater(() -> loadingLabel.setText("Unable to start: " + e.getCause()));
+                    }
+                });
+    }
+
+    /**
+     * Adds the panels in display order, each built in its own EDT event so repaints and input are
+     * handled in between.
+     */
+    private void addPanels(SecurityService securityService, EvidenceRecorder evidenceRecorder) {
+        mainPanel.remove(loadingLabel);
+        addPanel("display panel", () -> new DisplayPanel(securityService, frameClock), null);
+        addPanel("image panel", () -> new ImagePanel(securityService, serviceExecutor, frameClock, evidenceRecorder), null);
+        addPanel("control panel", () -> new ControlPanel(securityService, serviceExecutor, frameClock), null);
+        addPanel("sensor panel", () -> new SensorPanel(securityService, serviceExecutor, frameClock),
+                () -> startupTimer.milestone("all panels shown"));
+    }
 
+    private void addPanel(String name, Supplier<JPanel> panel, Runnable then) {
+        SwingUtilities.invokeLater(() -> {
+            mainPanel.add(startupTimer.time("build " + name, panel), "wrap");
+            mainPanel.revalidate();
+            mainPanel.repaint();
+            if (then != null) {
+                then.run();
+            }
+        });
     }
 }
@@ -1,6 +1,7 @@
 package com.udacity.catpoint.application;
 
 import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.event.ArmingStatusChangedEvent;
 import com.udacity.catpoint.service.SecurityService;
 import com.udacity.catpoint.service.StyleService;
 import net.miginfocom.swing.MigLayout;
@@ -8,21 +9,30 @@ import net.miginfocom.swing.MigLayout;
 import javax.swing.*;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
- * JPanel containing the buttons to manipulate arming status of the system.
+ * JPanel containing the buttons to manipulate arming status of the system. The button of the
+ * current status is highlighted, also when the status is changed elsewhere.
  */
 public class ControlPanel extends JPanel {
 
     private final SecurityService securityService;
+    private final Executor serviceExecutor;
     private final Map<ArmingStatus, JButton> buttonMap;
+    private final UiFrameClock.Renderer renderer = this::render;
+    private volatile ArmingStatus latestStatus;
 
 
-    public ControlPanel(SecurityService securityService) {
+    /**
+     * @param serviceExecutor Runs the calls that change the security service, off the EDT
+     */
+    public ControlPanel(SecurityService securityService, Executor serviceExecutor, UiFrameClock frameClock) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
+        this.serviceExecutor = serviceExecutor;
 
         JLabel panelLabel = new JLabel("System Control");
         panelLabel.setFont(StyleService.HEADING_FONT);
@@ -36,7 +46,7 @@ public class ControlPanel extends JPanel {
         //add an action listener to each button that applies its arming status and recolors all the buttons
         buttonMap.forEach((k, v) -> {
             v.addActionListener(e -> {
-                securityService.setArmingStatus(k);
+                serviceExecutor.execute(() -> securityService.setArmingStatus(k));
                 buttonMap.forEach((status, button) -> button.setBackground(status == k ? status.getColor() : null));
             });
         });
@@ -47,6 +57,14 @@ public class ControlPanel extends JPanel {
         ArmingStatus currentStatus = securityService.getArmingStatus();
         buttonMap.get(currentStatus).setBackground(currentStatus.getColor());
 
+        securityService.getEventBus().subscribe(ArmingStatusChangedEvent.class, e -> {
+            latestStatus = e.getStatus();
+            frameClock.markDirty(renderer);
+        });
+    }
 
+    private void render() {
+        ArmingStatus status = latestStatus;
+        buttonMap.forEach((s, button) -> button.setBackground(s == status ? s.getColor() : null));
     }
 }
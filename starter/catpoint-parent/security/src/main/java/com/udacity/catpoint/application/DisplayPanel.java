@@ -1,6 +1,7 @@
 package com.udacity.catpoint.application;
 
 import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.event.AlarmStatusChangedEvent;
 import com.udacity.catpoint.service.SecurityService;
 import com.udacity.catpoint.service.StyleService;
 import net.miginfocom.swing.MigLayout;
@@ -8,18 +9,24 @@ import net.miginfocom.swing.MigLayout;
 import javax.swing.*;
 
 /**
- * Displays the current status of the system. Implements the StatusListener
- * interface so that it can be notified whenever the status changes.
+ * Displays the current status of the system. Subscribes to alarm status events
+ * so that it is updated whenever the status changes; the label is redrawn on the
+ * next frame of the {@link UiFrameClock} with the latest status.
  */
-public class DisplayPanel extends JPanel implements StatusListener {
+public class DisplayPanel extends JPanel {
 
     private final JLabel currentStatusLabel;
+    private final UiFrameClock.Renderer renderer = this::render;
+    private volatile AlarmStatus latestStatus;
 
-    public DisplayPanel(SecurityService securityService) {
+    public DisplayPanel(SecurityService securityService, UiFrameClock frameClock) {
         super();
         setLayout(new MigLayout());
 
-        securityService.addStatusListener(this);
+        securityService.getEventBus().subscribe(AlarmStatusChangedEvent.class, e -> {
+            latestStatus = e.getStatus();
+            frameClock.markDirty(renderer);
+        });
 
         JLabel panelLabel = new JLabel("Very Secure Home Security");
         JLabel systemStatusLabel = new JLabel("System Status:");
@@ -27,7 +34,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
         panelLabel.setFont(StyleService.HEADING_FONT);
 
-        notify(securityService.getAlarmStatus());
+        showStatus(securityService.getAlarmStatus());
 
         add(panelLabel, "span 2, wrap");
         add(systemStatusLabel);
@@ -35,20 +42,13 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
     }
 
-    @Override
-    public void notify(AlarmStatus status) {
+    private void render() {
+        showStatus(latestStatus);
+    }
+
+    private void showStatus(AlarmStatus status) {
         currentStatusLabel.setText(status.getDescription());
         currentStatusLabel.setBackground(status.getColor());
         currentStatusLabel.setOpaque(true);
     }
-
-    @Override
-    public void catDetected(boolean catDetected) {
-        // no behavior necessary
-    }
-
-    @Override
-    public void sensorStatusChanged() {
-        // no behavior necessary
-    }
 }
@@ -1,35 +1,76 @@
 package com.udacity.catpoint.application;
 
-import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.camera.CameraFeedIngestor;
+import com.udacity.catpoint.camera.DirectoryFrameSource;
+import com.udacity.catpoint.camera.EvidenceRecorder;
+import com.udacity.catpoint.camera.FrameSource;
+import com.udacity.catpoint.camera.MjpegFrameSource;
+import com.udacity.catpoint.event.CatDetectedEvent;
 import com.udacity.catpoint.service.SecurityService;
 import com.udacity.catpoint.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
- * by uploading their own picture, and 'scan' the picture, sending it for image analysis
+ * by uploading their own picture, and 'scan' the picture, sending it for image analysis.
+ * Users can also start a continuous feed from an MJPEG recording or a directory of frames,
+ * which scans frames at the selected rate. The feed's recent frames are kept by the evidence recorder
+ * and saved when the alarm goes off.
+ * <p>
+ * Images are classified on the service thread, never on the EDT, so a slow image service does not
+ * freeze the window; the EDT only shows the results and thumbnails.
  */
-public class ImagePanel extends JPanel implements StatusListener {
+public class ImagePanel extends JPanel {
     private final SecurityService securityService;
+    private final Executor serviceExecutor;
+    private final UiFrameClock frameClock;
+    private final EvidenceRecorder evidenceRecorder;
 
     private final JLabel cameraHeader;
     private final JLabel cameraLabel;
+    private final JButton feedButton;
     private BufferedImage currentCameraImage;
+    private CameraImageLoader pendingLoad;
+    private CameraFeedIngestor feed;
+    private FeedThumbnails feedThumbnails;
+    private final UiFrameClock.Renderer renderer = this::render;
+    private volatile boolean latestCatDetected;
 
     private final int IMAGE_WIDTH = 300;
     private final int IMAGE_HEIGHT = 225;
 
-    public ImagePanel(SecurityService securityService) {
+    /**
+     * @param serviceExecutor Runs the calls to the security service, off the EDT and one at a time
+     */
+    public ImagePanel(SecurityService securityService, Executor serviceExecutor, UiFrameClock frameClock,
+                      EvidenceRecorder evidenceRecorder) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        this.serviceExecutor = serviceExecutor;
+        this.frameClock = frameClock;
+        this.evidenceRecorder = evidenceRecorder;
+        securityService.getEventBus().subscribe(CatDetectedEvent.class, SecurityService.DEFAULT_CAMERA, e -> {
+            latestCatDetected = e.isCatDetected();
+            frameClock.markDirty(renderer);
+        });
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -49,44 +90,258 @@ public class ImagePanel extends JPanel implements StatusListener {
             if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
                 return;
             }
-            try {
-                currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
-            } catch (IOException |NullPointerException ioe) {
-                JOptionPane.showMessageDialog(null, "Invalid image selected.");
-            }
-            repaint();
+            loadCameraImage(chooser.getSelectedFile());
         });
 
         //button that sends the image to the image service
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
-            securityService.processImage(currentCameraImage);
+            if (currentCameraImage == null) {
+                JOptionPane.showMessageDialog(null, "No picture to scan.");
+                return;
+            }
+            BufferedImage image = currentCameraImage;
+            serviceExecutor.execute(() -> securityService.processImage(image));
+        });
+
+        //controls for a continuous feed, scanned at the selected number of frames per second
+        JSpinner feedRateSpinner = new JSpinner(new SpinnerNumberModel(15, 1, 30, 1));
+        feedButton = new JButton("Start Feed");
+        feedButton.addActionListener(e -> {
+            if (feed != null && feed.isRunning()) {
+                feed.close();
+                feedButton.setText("Start Feed");
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            chooser.setCurrentDirectory(new File("."));
+            chooser.setDialogTitle("Select MJPEG Recording or Frame Directory");
+            chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+            if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            if (startFeed(chooser.getSelectedFile(), (Integer) feedRateSpinner.getValue())) {
+                feedButton.setText("Stop Feed");
+            }
         });
 
-        add(cameraHeader, "span 3, wrap");
-        add(cameraLabel, "span 3, wrap");
+        add(cameraHeader, "span 4, wrap");
+        add(cameraLabel, "span 4, wrap");
         add(addPictureButton);
         add(scanPictureButton);
+        add(feedButton);
+        add(feedRateSpinner, "wrap");
+    }
+
+    /**
+     * Starts scanning frames from an MJPEG file, or from the images in a directory as they appear.
+     * Frames are decoded on the feed's own thread and scanned on the service thread, in turn with the
+     * panels' other service calls. The feed waits for each scan, as the frame is overwritten by the
+     * next one, but never for the EDT: it draws the thumbnail itself and hands it over.
+     * @return True if the feed started
+     */
+    private boolean startFeed(File selection, int framesPerSecond) {
+        FrameSource source;
+        try {
+            source = selection.isDirectory()
+                    ? new DirectoryFrameSource(selection.toPath(), DirectoryFrameSource.DEFAULT_PATTERN, true)
+                    : MjpegFrameSource.open(selection.toPath());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Unable to open camera feed.");
+            return false;
+        }
+        if (pendingLoad != null) {
+            pendingLoad.cancel(true);
+            pendingLoad = null;
+        }
+        FeedThumbnails thumbnails = new FeedThumbnails(cameraLabel.getGraphicsConfiguration());
+        feed = new CameraFeedIngestor(source, framesPerSecond, frame -> {
+            try {
+                CompletableFuture.runAsync(() -> securityService.processImage(frame), serviceExecutor).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Unable to process camera frame", e.getCause());
+            }
+        });
+        feed.setFrameListener(thumbnails::draw);
+        feedThumbnails = thumbnails;
+        feed.setFrameRecorder(evidenceRecorder.ring(SecurityService.DEFAULT_CAMERA));
+        feed.start("camera-feed");
+        return true;
+    }
+
+    /**
+     * Thumbnails of the feed, drawn on the feed's thread and shown on the EDT. Three images take turns:
+     * one shown, one drawn and waiting for the next frame of the clock, and one being drawn. When the
+     * EDT falls behind, the feed skips the thumbnail of a frame instead of waiting.
+     */
+    private class FeedThumbnails {
+        private final BlockingQueue<BufferedImage> free = new ArrayBlockingQueue<>(3);
+        private final AtomicReference<BufferedImage> drawn = new AtomicReference<>();
+        private final UiFrameClock.Renderer renderer = this::show;
+        //EDT only
+        private BufferedImage shown;
+        private ImageIcon icon;
+
+        /**
+         * @param gc The label's graphics configuration, read on the EDT
+         */
+        FeedThumbnails(GraphicsConfiguration gc) {
+            for (int i = 0; i < 3; i++) {
+                free.add(newThumbnail(gc));
+            }
+        }
+
+        /**
+         * Draws a frame into a free thumbnail and schedules it to be shown. Called on the feed's thread.
+         */
+        void draw(BufferedImage frame) {
+            BufferedImage thumbnail = free.poll();
+            if (thumbnail == null) {
+                return;
+            }
+            drawThumbnail(frame, thumbnail);
+            BufferedImage replaced = drawn.getAndSet(thumbnail);
+            if (replaced != null) {
+                free.add(replaced);
+            }
+            frameClock.markDirty(renderer);
+        }
+
+        private void show() {
+            BufferedImage next = drawn.getAndSet(null);
+            if (next == null || feedThumbnails != this) {
+                return;
+            }
+            if (icon == null) {
+                icon = new ImageIcon(next);
+            } else {
+                icon.setImage(next);
+                free.add(shown);
+            }
+            shown = next;
+            cameraLabel.setIcon(icon);
+            cameraLabel.repaint();
+        }
+    }
+
+    /**
+     * Starts decoding the selected file off the EDT. Any load still in progress is cancelled so
+     * a slow, earlier selection can never overwrite a newer one.
+     * @param file The picture selected by the user
+     */
+    private void loadCameraImage(File file) {
+        if (pendingLoad != null) {
+            pendingLoad.cancel(true);
+        }
+        if (feed != null) {
+            feed.close();
+            feedThumbnails = null;
+            feedButton.setText("Start Feed");
+        }
+        currentCameraImage = null;
+        pendingLoad = new CameraImageLoader(file, cameraLabel.getGraphicsConfiguration());
+        pendingLoad.execute();
+    }
+
+    /**
+     * Builds the thumbnail shown in the camera label. The image is drawn once into a screen-compatible
+     * image so Swing can cache it as a managed (accelerated) image instead of rescaling on every paint.
+     * @param gc The label's graphics configuration, read on the EDT, or null if it is not showing yet
+     */
+    private BufferedImage createThumbnail(BufferedImage source, GraphicsConfiguration gc) {
+        BufferedImage thumbnail = newThumbnail(gc);
+        drawThumbnail(source, thumbnail);
+        return thumbnail;
     }
 
-    @Override
-    public void notify(AlarmStatus status) {
-        //no behavior necessary
+    private BufferedImage newThumbnail(GraphicsConfiguration gc) {
+        return gc != null
+                ? gc.createCompatibleImage(IMAGE_WIDTH, IMAGE_HEIGHT)
+                : new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
     }
 
-    @Override
-    public void catDetected(boolean catDetected) {
+    private void drawThumbnail(BufferedImage source, BufferedImage thumbnail) {
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, IMAGE_WIDTH, IMAGE_HEIGHT, null);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Decodes a camera still in the background. A subsampled pass decoded straight to roughly the display
+     * size is published first so the thumbnail appears quickly, then the full resolution frame is decoded
+     * and kept for classification.
+     */
+    private class CameraImageLoader extends SwingWorker<BufferedImage, Image> {
+        private final File file;
+        private final GraphicsConfiguration gc;
+
+        CameraImageLoader(File file, GraphicsConfiguration gc) {
+            this.file = file;
+            this.gc = gc;
+        }
+
+        @Override
+        protected BufferedImage doInBackground() throws IOException {
+            try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+                Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+                if (readers == null || !readers.hasNext()) {
+                    throw new IOException("No image reader available for " + file);
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, false, true);
+
+                    //only keep every nth pixel so the decoded image is no smaller than the label
+                    int subsampling = Math.max(1, Math.min(reader.getWidth(0) / IMAGE_WIDTH, reader.getHeight(0) / IMAGE_HEIGHT));
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    publish(createThumbnail(reader.read(0, param), gc));
+
+                    return isCancelled() ? null : reader.read(0);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+
+        @Override
+        protected void process(List<Image> thumbnails) {
+            if (pendingLoad == this) {
+                cameraLabel.setIcon(new ImageIcon(thumbnails.get(thumbnails.size() - 1)));
+                repaint();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (pendingLoad != this || isCancelled()) {
+                return;
+            }
+            pendingLoad = null;
+            try {
+                currentCameraImage = get();
+            } catch (ExecutionException | InterruptedException e) {
+                currentCameraImage = null;
+                JOptionPane.showMessageDialog(null, "Invalid image selected.");
+            }
+        }
+    }
+
+    private void render() {
+        catDetected(latestCatDetected);
+    }
+
+    private void catDetected(boolean catDetected) {
         if(catDetected) {
             cameraHeader.setText("DANGER - CAT DETECTED");
         } else {
             cameraHeader.setText("Camera Feed - No Cats Detected");
         }
     }
-
-    @Override
-    public void sensorStatusChanged() {
-        //no behavior necessary
-    }
 }
@@ -1,49 +1,70 @@
 package com.udacity.catpoint.application;
 
-import com.udacity.catpoint.data.AlarmStatus;
 import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorSnapshot;
 import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
 import com.udacity.catpoint.service.SecurityService;
 import com.udacity.catpoint.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
- * manually set to "active" and "inactive" to test the system.
+ * manually set to "active" and "inactive" to test the system. Sensor changes made
+ * elsewhere are shown on the next frame of the {@link UiFrameClock}. A long sensor list is
+ * built a few rows per frame, so the panel appears without waiting for every row.
  */
-public class SensorPanel extends JPanel implements StatusListener{
+public class SensorPanel extends JPanel {
+
+    private static final int ROWS_PER_FRAME = 25;
 
     private final SecurityService securityService;
+    private final Executor serviceExecutor;
+    private final UiFrameClock frameClock;
 
     private final JLabel panelLabel = new JLabel("Sensor Management");
     private final JLabel newSensorName = new JLabel("Name:");
     private final JLabel newSensorType = new JLabel("Sensor Type:");
+    private final JLabel newSensorZone = new JLabel("Zone:");
     private final JTextField newSensorNameField = new JTextField();
+    private final JTextField newSensorZoneField = new JTextField(Sensor.DEFAULT_ZONE);
     private final JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
     private final JButton addNewSensorButton = new JButton("Add New Sensor");
 
     private final JPanel sensorListPanel;
     private final JPanel newSensorPanel;
+    private long displayedVersion = -1;
+    private SensorSnapshot pendingSnapshot;
+    private List<Sensor> pendingRows;
+    private int nextRow;
+    private final UiFrameClock.Renderer renderer = this::render;
 
-    public SensorPanel(SecurityService securityService) {
+    /**
+     * @param serviceExecutor Runs the calls that change the security service, off the EDT
+     */
+    public SensorPanel(SecurityService securityService, Executor serviceExecutor, UiFrameClock frameClock) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
+        this.serviceExecutor = serviceExecutor;
+        this.frameClock = frameClock;
 
         panelLabel.setFont(StyleService.HEADING_FONT);
         addNewSensorButton.addActionListener(e ->
                 addSensor(new Sensor(newSensorNameField.getText(),
-                        SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
-
-        securityService.addStatusListener(this);
+                        SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()),
+                        newSensorZoneField.getText().isBlank() ? Sensor.DEFAULT_ZONE : newSensorZoneField.getText().trim())));
 
         newSensorPanel = buildAddSensorPanel();
         sensorListPanel = new JPanel();
         sensorListPanel.setLayout(new MigLayout());
 
         updateSensorList(sensorListPanel);
+        securityService.getEventBus().subscribe(SensorStatusChangedEvent.class, e -> frameClock.markDirty(renderer));
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
@@ -59,80 +80,100 @@ public class SensorPanel extends JPanel implements StatusListener{
         p.add(newSensorName);
         p.add(newSensorNameField, "width 50:100:200");
         p.add(newSensorType);
-        p.add(newSensorTypeDropdown, "wrap");
+        p.add(newSensorTypeDropdown);
+        p.add(newSensorZone);
+        p.add(newSensorZoneField, "width 50:100:200, wrap");
         p.add(addNewSensorButton, "span 3");
         return p;
     }
 
     /**
      * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
+     * will display in the order that they are created. Nothing is rebuilt if the sensor snapshot has
+     * not changed since the last update. Only the first rows are added right away; the rest follow
+     * on the next frames.
      * @param p The Panel to populate with the current list of sensors
      */
     private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
-
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
-        });
+        SensorSnapshot snapshot = securityService.getSensorSnapshot();
+        if (snapshot.getVersion() != displayedVersion) {
+            displayedVersion = snapshot.getVersion();
+            p.removeAll();
+            pendingRows = snapshot.getSortedSensors();
+            pendingSnapshot = snapshot;
+            nextRow = 0;
+        }
+        if (pendingRows == null) {
+            return;
+        }
+
+        int end = Math.min(pendingRows.size(), nextRow + ROWS_PER_FRAME);
+        for (; nextRow < end; nextRow++) {
+            Sensor sensor = pendingRows.get(nextRow);
+            addSensorRow(p, sensor, pendingSnapshot.isActive(sensor));
+        }
+        if (nextRow == pendingRows.size()) {
+            pendingRows = null;
+        } else {
+            frameClock.markDirty(renderer);
+        }
 
         repaint();
         revalidate();
     }
 
+    private void addSensorRow(JPanel p, Sensor s, boolean active) {
+        JLabel sensorLabel = new JLabel(String.format("%s(%s, %s): %s", s.getName(),  s.getSensorType().toString(), s.getZone(),(active ? "Active" : "Inactive")));
+        JButton sensorToggleButton = new JButton((active ? "Deactivate" : "Activate"));
+        JButton sensorRemoveButton = new JButton("Remove Sensor");
+
+        sensorToggleButton.addActionListener(e -> setSensorActivity(s, !active) );
+        sensorRemoveButton.addActionListener(e -> removeSensor(s));
+
+        //hard code some sizes, tsk tsk
+        p.add(sensorLabel, "width 300:300:300");
+        p.add(sensorToggleButton, "width 100:100:100");
+        p.add(sensorRemoveButton, "wrap");
+    }
+
+    private void render() {
+        updateSensorList(sensorListPanel);
+    }
+
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
+     * Asks the securityService to change a sensor activation status. The list is rebuilt on the frame
+     * after the change, when its event arrives.
      * @param sensor The sensor to update
      * @param isActive The sensor's activation status
      */
     private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+        serviceExecutor.execute(() -> securityService.changeSensorActivationStatus(sensor, isActive));
     }
 
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
+     * Adds a sensor to the securityService and then rebuilds the sensor list on the next frame
      * @param sensor The sensor to add
      */
     private void addSensor(Sensor sensor) {
-        if(securityService.getSensors().size() < 4) {
-            securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
-        } else {
-            JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
-        }
+        serviceExecutor.execute(() -> {
+            if(securityService.getSensors().size() < 4) {
+                securityService.addSensor(sensor);
+                frameClock.markDirty(renderer);
+            } else {
+                SwingUtilities.invokeLater(() ->
+                        JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!"));
+            }
+        });
     }
 
     /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
+     * Remove a sensor from the securityService and then rebuild the sensor list on the next frame
      * @param sensor The sensor to remove
      */
     private void removeSensor(Sensor sensor) {
-        securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
-    }
-
-    @Override
-    public void notify(AlarmStatus status) {
-
-    }
-
-    @Override
-    public void catDetected(boolean catDetected) {
-
-    }
-
-    @Override
-    public void sensorStatusChanged() {
-        updateSensorList(sensorListPanel);
+        serviceExecutor.execute(() -> {
+            securityService.removeSensor(sensor);
+            frameClock.markDirty(renderer);
+        });
     }
 }
@@ -0,0 +1,65 @@
+package com.udacity.catpoint.application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the phases of application startup, which run on several threads at once, and logs each one
+ * as it ends, so a phase that grows with the stored state shows up before it slows the first frame.
+ */
+public class StartupTimer {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimer.class);
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Runs one phase of startup on the calling thread and records how long it took.
+     */
+    public <T> T time(String phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            long millis = record(phase, System.nanoTime() - start);
+            log.info("Startup: {} took {} ms on {}", phase, millis, Thread.currentThread().getName());
+        }
+    }
+
+    public void time(String phase, Runnable work) {
+        time(phase, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Records a point reached, such as the window becoming visible, as the time since launch.
+     */
+    public void milestone(String name) {
+        long millis = record(name, System.nanoTime() - startNanos);
+        log.info("Startup: {} after {} ms", name, millis);
+    }
+
+    private long record(String phase, long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        phaseMillis.put(phase, millis);
+        return millis;
+    }
+
+    /**
+     * @return Duration of every phase and milestone recorded so far, in the order they ended
+     */
+    public Map<String, Long> getPhaseMillis() {
+        synchronized (phaseMillis) {
+            return new LinkedHashMap<>(phaseMillis);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.udacity.catpoint.application;
+
+import javax.swing.*;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared frame clock for the Swing panels. Panels keep the latest state they were told about and
+ * mark themselves dirty, from any thread and as often as events arrive; once per frame the clock
+ * renders every dirty panel on the EDT. However many events arrive between two frames, each panel
+ * is rendered at most once per frame with the latest state, so the cost of keeping the UI current
+ * does not grow with the event rate.
+ */
+public class UiFrameClock {
+
+    public static final int DEFAULT_FRAMES_PER_SECOND = 60;
+
+    /**
+     * Something that brings its Swing components up to date with its latest state. Always called on the EDT.
+     */
+    public interface Renderer {
+        void render();
+    }
+
+    private final Timer timer;
+    private final Set<Renderer> dirty = ConcurrentHashMap.newKeySet();
+    private final LongAdder marks = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+
+    public UiFrameClock() {
+        this(DEFAULT_FRAMES_PER_SECOND);
+    }
+
+    public UiFrameClock(int framesPerSecond) {
+        if (framesPerSecond < 1 || framesPerSecond > 1000) {
+            throw new IllegalArgumentException("Frame rate must be between 1 and 1000");
+        }
+        timer = new Timer(1000 / framesPerSecond, e -> renderFrame());
+        timer.setCoalesce(true);
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    /**
+     * Schedules the renderer for the next frame. Marking it again before then has no further effect,
+     * so renderers should be kept in a field rather than created for every call.
+     */
+    public void markDirty(Renderer renderer) {
+        marks.increment();
+        dirty.add(renderer);
+    }
+
+    /**
+     * Renders everything marked dirty since the last frame. Called by the timer on the EDT.
+     */
+    void renderFrame() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        for (Iterator<Renderer> it = dirty.iterator(); it.hasNext(); ) {
+            Renderer renderer = it.next();
+            //removed before rendering, so a change made meanwhile marks it again for the next frame
+            it.remove();
+            renderer.render();
+            renders.increment();
+        }
+    }
+
+    /**
+     * @return Number of times renderers were marked dirty
+     */
+    public long getMarkCount() {
+        return marks.sum();
+    }
+
+    /**
+     * @return Number of times renderers actually ran
+     */
+    public long getRenderCount() {
+        return renders.sum();
+    }
+}
@@ -0,0 +1,75 @@
+package com.udacity.catpoint.camera;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.nio.ByteBuffer;
+
+/**
+ * Image input stream over a byte buffer that can be pointed at new contents, so one instance serves
+ * every frame of a feed. The buffer may be a heap array or a memory-mapped file; it is read with
+ * absolute gets and its position is left alone.
+ */
+class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    private ByteBuffer data = ByteBuffer.allocate(0);
+    private int offset;
+    private int length;
+    private byte[] wrappedArray;
+    private ByteBuffer wrapped;
+
+    /**
+     * Reads the first {@code length} bytes of the array. Wrapping the same array again reuses the wrapper.
+     */
+    void reset(byte[] array, int length) {
+        if (array != wrappedArray) {
+            wrappedArray = array;
+            wrapped = ByteBuffer.wrap(array);
+        }
+        reset(wrapped, 0, length);
+    }
+
+    /**
+     * Reads the bytes between the buffer's position and its limit.
+     */
+    void reset(ByteBuffer buffer) {
+        reset(buffer, buffer.position(), buffer.remaining());
+    }
+
+    private void reset(ByteBuffer buffer, int offset, int length) {
+        this.data = buffer;
+        this.offset = offset;
+        this.length = length;
+        rewind();
+    }
+
+    /**
+     * Starts reading the same contents again from the beginning, even if a reader flushed part of them.
+     */
+    void rewind() {
+        this.streamPos = 0;
+        this.flushedPos = 0;
+        this.bitOffset = 0;
+    }
+
+    @Override
+    public int read() {
+        bitOffset = 0;
+        return streamPos < length ? data.get(offset + (int) streamPos++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return len == 0 ? 0 : -1;
+        }
+        int count = Math.min(len, length - (int) streamPos);
+        data.get(offset + (int) streamPos, b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+}
@@ -0,0 +1,227 @@
+package com.udacity.catpoint.camera;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Pulls frames from a {@link FrameSource} on a background thread, decodes them into a reused image
+ * and hands them to a consumer, typically {@code SecurityService.processImage}, at no more than the
+ * configured rate. Frames of a live source that arrive before the next frame is due are read and
+ * dropped without being decoded. A recorded source is instead read no faster than the rate.
+ * <p>
+ * The consumer and frame listener are called on the ingestion thread with an image that is
+ * overwritten by the next frame, so they must finish with it before returning. A frame that fails to
+ * decode, or that the consumer or listener throws on, is counted and skipped; the feed stops when the
+ * source ends, fails, or {@link #close()} is called.
+ */
+public class CameraFeedIngestor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CameraFeedIngestor.class);
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final FrameSource source;
+    private final long frameIntervalNanos;
+    private final Consumer<BufferedImage> consumer;
+    private final FrameBuffer buffer = new FrameBuffer();
+    private final FrameDecoder decoder = new FrameDecoder();
+
+    private final LongAdder framesRead = new LongAdder();
+    private final LongAdder framesProcessed = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder framesCorrupt = new LongAdder();
+    private final LongAdder framesFailed = new LongAdder();
+
+    private volatile Consumer<BufferedImage> frameListener;
+    private volatile PreAlarmFrameRing frameRecorder;
+    private volatile boolean running;
+    private volatile IOException failure;
+    private Thread thread;
+
+    /**
+     * @param source Where frames come from; closed when the feed stops
+     * @param framesPerSecond Maximum rate at which frames are passed to the consumer
+     * @param consumer Receives each frame to process
+     */
+    public CameraFeedIngestor(FrameSource source, double framesPerSecond, Consumer<BufferedImage> consumer) {
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive");
+        }
+        this.source = source;
+        this.frameIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+        this.consumer = consumer;
+    }
+
+    /**
+     * Registers a callback run after the consumer for every processed frame, for example to show it.
+     */
+    public void setFrameListener(Consumer<BufferedImage> frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Keeps every frame read, including dropped ones, in the given ring as it was encoded, so it can
+     * be saved as evidence. Null stops recording.
+     */
+    public void setFrameRecorder(PreAlarmFrameRing frameRecorder) {
+        this.frameRecorder = frameRecorder;
+    }
+
+    /**
+     * Starts ingesting on a new daemon thread with the given name.
+     */
+    public synchronized void start(String threadName) {
+        if (thread != null) {
+            throw new IllegalStateException("Feed already started");
+        }
+        running = true;
+        thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the feed and closes the source, which also unblocks a thread waiting on a socket.
+     */
+    @Override
+    public void close() {
+        running = false;
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current != null) {
+            current.interrupt();
+        }
+        try {
+            source.close();
+        } catch (IOException e) {
+            // stopping anyway
+        }
+    }
+
+    /**
+     * Waits for the ingestion thread to finish, for example after a recording has been read to the end.
+     * @return True if the feed has stopped
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current != null) {
+            current.join(Math.max(1, unit.toMillis(timeout)));
+            return !current.isAlive();
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return The error that stopped the feed, or null if it is running or ended normally
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    public long getFramesRead() {
+        return framesRead.sum();
+    }
+
+    public long getFramesProcessed() {
+        return framesProcessed.sum();
+    }
+
+    /**
+     * @return Frames of a live source skipped because they arrived before the next frame was due
+     */
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    public long getFramesCorrupt() {
+        return framesCorrupt.sum();
+    }
+
+    /**
+     * @return Frames skipped because the consumer or the frame listener threw
+     */
+    public long getFramesFailed() {
+        return framesFailed.sum();
+    }
+
+    private void run() {
+        long due = System.nanoTime();
+        try {
+            while (running) {
+                if (!source.nextFrame(buffer)) {
+                    LockSupport.parkNanos(Math.min(frameIntervalNanos, IDLE_POLL_NANOS));
+                    continue;
+                }
+                framesRead.increment();
+
+                long now = System.nanoTime();
+                PreAlarmFrameRing recorder = frameRecorder;
+                if (recorder != null) {
+                    recorder.record(buffer, now);
+                }
+                if (source.isLive()) {
+                    if (now - due < 0) {
+                        framesDropped.increment();
+                        continue;
+                    }
+                } else {
+                    while (running && (now = System.nanoTime()) - due < 0) {
+                        LockSupport.parkNanos(due - now);
+                    }
+                }
+                //never fall more than one frame behind schedule, so a stall is not followed by a burst
+                due = Math.max(due, now - frameIntervalNanos) + frameIntervalNanos;
+
+                BufferedImage frame;
+                try {
+                    frame = decoder.decode(buffer);
+                } catch (IOException e) {
+                    framesCorrupt.increment();
+                    continue;
+                }
+                try {
+                    consumer.accept(frame);
+                    framesProcessed.increment();
+                    Consumer<BufferedImage> listener = frameListener;
+                    if (listener != null) {
+                        listener.accept(frame);
+                    }
+                } catch (RuntimeException e) {
+                    //one bad frame, or a failing scan, must not end the feed
+                    framesFailed.increment();
+                    log.warn("Unable to process camera frame", e);
+                }
+            }
+        } catch (EOFException e) {
+            // the source ended normally
+        } catch (IOException e) {
+            if (running) {
+                failure = e;
+            }
+        } finally {
+            running = false;
+            decoder.close();
+            try {
+                source.close();
+            } catch (IOException e) {
+                // already stopping
+            }
+        }
+    }
+}
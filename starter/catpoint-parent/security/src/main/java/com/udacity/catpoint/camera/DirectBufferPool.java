@@ -0,0 +1,64 @@
+package com.udacity.catpoint.camera;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Fixed pool of equally sized direct buffers, all carved out of one slab allocated up front. Direct
+ * memory is slow to allocate and only returned when the garbage collector gets around to it, so
+ * long-lived buffers are taken from the pool and given back instead of allocated per use.
+ */
+public class DirectBufferPool {
+
+    private final int segmentSize;
+    private final int segmentCount;
+    private final ArrayDeque<ByteBuffer> free;
+
+    /**
+     * @param segmentSize Capacity of each buffer in bytes
+     * @param segmentCount Number of buffers
+     */
+    public DirectBufferPool(int segmentSize, int segmentCount) {
+        if (segmentSize < 1 || segmentCount < 1 || (long) segmentSize * segmentCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Pool must hold at least one buffer and fit in one slab");
+        }
+        this.segmentSize = segmentSize;
+        this.segmentCount = segmentCount;
+        this.free = new ArrayDeque<>(segmentCount);
+        ByteBuffer slab = ByteBuffer.allocateDirect(segmentSize * segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            slab.limit((i + 1) * segmentSize).position(i * segmentSize);
+            free.push(slab.slice());
+        }
+    }
+
+    /**
+     * @return A cleared buffer of {@link #getSegmentSize()} bytes
+     * @throws IllegalStateException If every buffer is in use
+     */
+    public synchronized ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            throw new IllegalStateException("All " + segmentCount + " buffers are in use");
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * Returns a buffer taken from this pool. It must not be used afterwards.
+     */
+    public synchronized void release(ByteBuffer buffer) {
+        if (buffer.capacity() != segmentSize || free.size() == segmentCount) {
+            throw new IllegalArgumentException("Buffer does not belong to this pool");
+        }
+        free.push(buffer);
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public synchronized int getAvailable() {
+        return free.size();
+    }
+}
@@ -0,0 +1,87 @@
+package com.udacity.catpoint.camera;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Reads frames from a directory of still images, in file name order. The directory may keep growing
+ * while it is read: once every known frame has been read, the directory is listed again for names
+ * sorting after the last frame read. Cameras writing into the directory should name frames so they
+ * sort by time, for example with a zero padded sequence number, and should write each frame under a
+ * name that does not match the pattern before renaming it, so half written frames are never read.
+ */
+public class DirectoryFrameSource implements FrameSource {
+
+    public static final String DEFAULT_PATTERN = "*.{jpg,jpeg,png,bmp}";
+
+    private final Path directory;
+    private final String pattern;
+    private final boolean live;
+    private final Deque<Path> pending = new ArrayDeque<>();
+    private String lastName = "";
+
+    /**
+     * @param directory Directory holding the frames
+     * @param pattern Glob matching frame file names, such as {@link #DEFAULT_PATTERN}
+     * @param live True if a camera is writing frames into the directory in real time
+     */
+    public DirectoryFrameSource(Path directory, String pattern, boolean live) {
+        this.directory = directory;
+        this.pattern = pattern;
+        this.live = live;
+    }
+
+    @Override
+    public boolean nextFrame(FrameBuffer buffer) throws IOException {
+        if (pending.isEmpty()) {
+            listNewFrames();
+            if (pending.isEmpty()) {
+                return false;
+            }
+        }
+        Path frame = pending.poll();
+        lastName = frame.getFileName().toString();
+        try (FileChannel channel = FileChannel.open(frame)) {
+            int size = (int) channel.size();
+            buffer.clear();
+            buffer.ensureCapacity(size);
+            ByteBuffer target = ByteBuffer.wrap(buffer.getData(), 0, size);
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                // keep reading until the whole frame is in the buffer
+            }
+            buffer.setLength(target.position());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isLive() {
+        return live;
+    }
+
+    @Override
+    public void close() {
+        pending.clear();
+    }
+
+    private void listNewFrames() throws IOException {
+        List<Path> frames = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, pattern)) {
+            for (Path frame : stream) {
+                if (frame.getFileName().toString().compareTo(lastName) > 0) {
+                    frames.add(frame);
+                }
+            }
+        }
+        frames.sort(null);
+        pending.addAll(frames);
+    }
+}
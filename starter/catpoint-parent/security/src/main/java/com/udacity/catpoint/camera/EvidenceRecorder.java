@@ -0,0 +1,226 @@
+package com.udacity.catpoint.camera;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.event.AlarmStatusChangedEvent;
+import com.udacity.catpoint.event.Subscription;
+import com.udacity.catpoint.service.SecurityService;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a {@link PreAlarmFrameRing} per camera and saves every camera's window as an evidence clip
+ * whenever the system goes to {@link AlarmStatus#ALARM}. The rings share one {@link DirectBufferPool},
+ * so the memory for all cameras is allocated once, up front.
+ * <p>
+ * Clips are written on a background thread so the thread raising the alarm is not held up by the
+ * disk, one file per camera named after the camera and the time of the alarm.
+ */
+public class EvidenceRecorder implements AutoCloseable {
+
+    private static final DateTimeFormatter CLIP_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path directory;
+    private final DirectBufferPool pool;
+    private final long windowNanos;
+    private final int maxFrames;
+    private final Map<String, PreAlarmFrameRing> rings = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "evidence-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder clipsWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private volatile AlarmStatus lastStatus;
+    private Subscription subscription;
+
+    private EvidenceRecorder(Builder builder) {
+        this.directory = builder.directory;
+        this.pool = new DirectBufferPool(builder.bytesPerCamera, builder.cameras);
+        this.windowNanos = builder.windowNanos;
+        this.maxFrames = builder.maxFrames;
+    }
+
+    /**
+     * @param directory Where evidence clips are written; created when the first clip is saved
+     */
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * Saves clips on every transition to {@link AlarmStatus#ALARM} of the given service.
+     */
+    public synchronized void attach(SecurityService securityService) {
+        if (subscription != null) {
+            throw new IllegalStateException("Already attached");
+        }
+        lastStatus = securityService.getAlarmStatus();
+        subscription = securityService.getEventBus().subscribe(AlarmStatusChangedEvent.class, e -> {
+            AlarmStatus previous = lastStatus;
+            lastStatus = e.getStatus();
+            if (e.getStatus() == AlarmStatus.ALARM && previous != AlarmStatus.ALARM) {
+                long alarmNanos = System.nanoTime();
+                writer.execute(() -> saveClipsQuietly(alarmNanos));
+            }
+        });
+    }
+
+    /**
+     * @return The ring recording the given camera, taking a buffer from the pool the first time
+     * @throws IllegalStateException If every camera buffer is already in use
+     */
+    public PreAlarmFrameRing ring(String cameraId) {
+        return rings.computeIfAbsent(cameraId,
+                id -> new PreAlarmFrameRing(pool.acquire(), windowNanos, TimeUnit.NANOSECONDS, maxFrames));
+    }
+
+    /**
+     * Stops recording a camera and gives its buffer back to the pool. The ring is detached first, so a
+     * feed still holding it records nothing more into the buffer; give the feed a new {@link #ring}
+     * to resume recording.
+     */
+    public void release(String cameraId) {
+        PreAlarmFrameRing ring = rings.remove(cameraId);
+        if (ring != null) {
+            //waits for a clip being written from this buffer
+            ring.detach();
+            pool.release(ring.getBuffer());
+        }
+    }
+
+    /**
+     * Same as {@link #saveClips(long)} for an alarm raised now.
+     */
+    public List<Path> saveClips() throws IOException {
+        return saveClips(System.nanoTime());
+    }
+
+    /**
+     * Writes the window of every camera that has frames within the window before the alarm, then
+     * clears it so frames are never saved twice. Older frames, for example from a feed that stopped
+     * long ago, are dropped.
+     * @param alarmNanos {@link System#nanoTime()} of the alarm
+     * @return The clips written
+     */
+    public List<Path> saveClips(long alarmNanos) throws IOException {
+        Files.createDirectories(directory);
+        String time = LocalDateTime.now().format(CLIP_TIME);
+        List<Path> clips = new ArrayList<>();
+        for (Map.Entry<String, PreAlarmFrameRing> entry : rings.entrySet()) {
+            PreAlarmFrameRing ring = entry.getValue();
+            synchronized (ring) {
+                ring.dropExpired(alarmNanos);
+                if (ring.getFrameCount() == 0) {
+                    continue;
+                }
+                Path clip = directory.resolve(entry.getKey().replaceAll("[^A-Za-z0-9_-]", "_") + "-" + time + ".mjpeg");
+                try (FileChannel channel = FileChannel.open(clip, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    bytesWritten.add(ring.writeTo(channel));
+                }
+                ring.clear();
+                clips.add(clip);
+                clipsWritten.increment();
+            }
+        }
+        return clips;
+    }
+
+    private void saveClipsQuietly(long alarmNanos) {
+        try {
+            saveClips(alarmNanos);
+        } catch (IOException e) {
+            failures.increment();
+        }
+    }
+
+    /**
+     * Stops saving clips, waiting for a clip being written. Buffers are not returned to the pool.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getClipsWritten() {
+        return clipsWritten.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return Alarms whose clips could not all be written
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private long windowNanos = TimeUnit.SECONDS.toNanos(10);
+        private int bytesPerCamera = 16 * 1024 * 1024;
+        private int cameras = 4;
+        private int maxFrames = 1024;
+
+        private Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        /** How far back before an alarm frames are kept. Defaults to 10 seconds. */
+        public Builder window(long window, TimeUnit unit) {
+            this.windowNanos = unit.toNanos(window);
+            return this;
+        }
+
+        /** Direct memory reserved for each camera's frames. Defaults to 16 MB. */
+        public Builder bytesPerCamera(int bytesPerCamera) {
+            this.bytesPerCamera = bytesPerCamera;
+            return this;
+        }
+
+        /** Number of cameras that can be recorded at once. Defaults to 4. */
+        public Builder cameras(int cameras) {
+            this.cameras = cameras;
+            return this;
+        }
+
+        /** Most frames kept per camera, however small. Defaults to 1024. */
+        public Builder maxFrames(int maxFrames) {
+            this.maxFrames = maxFrames;
+            return this;
+        }
+
+        public EvidenceRecorder build() {
+            return new EvidenceRecorder(this);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.udacity.catpoint.camera;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte array holding one encoded frame. Frame sources fill the same buffer again for every
+ * frame, so after the first few frames reading allocates nothing.
+ */
+public class FrameBuffer {
+
+    private byte[] data;
+    private int length;
+
+    public FrameBuffer() {
+        this(256 * 1024);
+    }
+
+    public FrameBuffer(int initialCapacity) {
+        this.data = new byte[initialCapacity];
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void clear() {
+        length = 0;
+    }
+
+    public void append(int b) {
+        ensureCapacity(length + 1);
+        data[length++] = (byte) b;
+    }
+
+    public void append(byte[] bytes, int offset, int count) {
+        ensureCapacity(length + count);
+        System.arraycopy(bytes, offset, data, length, count);
+        length += count;
+    }
+
+    /**
+     * Makes room for at least the given number of bytes, keeping the current contents.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    /**
+     * Sets the length after the caller has written directly into {@link #getData()}.
+     */
+    public void setLength(int length) {
+        this.length = length;
+    }
+}
@@ -0,0 +1,82 @@
+package com.udacity.catpoint.camera;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Decodes encoded frames into one reused {@link BufferedImage}. The image reader, its input stream
+ * and the destination raster are kept from frame to frame and only replaced when the format or the
+ * frame size changes, so a steady feed decodes without allocating new rasters. Frames can be read from
+ * a {@link FrameBuffer} or straight from a byte buffer, such as a memory-mapped file.
+ * <p>
+ * The returned image is overwritten by the next call to {@link #decode}; callers must not keep it.
+ */
+public class FrameDecoder implements AutoCloseable {
+
+    private final ByteBufferImageInputStream input = new ByteBufferImageInputStream();
+    private ImageReader reader;
+    private ImageReadParam param;
+    private BufferedImage destination;
+
+    public BufferedImage decode(FrameBuffer frame) throws IOException {
+        input.reset(frame.getData(), frame.getLength());
+        return decodeInput();
+    }
+
+    /**
+     * Decodes the bytes between the buffer's position and limit. The buffer's position is not changed.
+     */
+    public BufferedImage decode(ByteBuffer frame) throws IOException {
+        input.reset(frame);
+        return decodeInput();
+    }
+
+    private BufferedImage decodeInput() throws IOException {
+        if (reader == null || !reader.getOriginatingProvider().canDecodeInput(input)) {
+            useReaderFor();
+        }
+        reader.setInput(input, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if (destination == null || destination.getWidth() != width || destination.getHeight() != height) {
+            destination = reader.getImageTypes(0).next().createBufferedImage(width, height);
+            param.setDestination(destination);
+        }
+        try {
+            return reader.read(0, param);
+        } catch (IIOException e) {
+            //the frame's colour layout differs from the previous ones; decode into a fresh image once
+            destination = reader.getImageTypes(0).next().createBufferedImage(width, height);
+            param.setDestination(destination);
+            input.rewind();
+            reader.setInput(input, true, true);
+            return reader.read(0, param);
+        }
+    }
+
+    private void useReaderFor() throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("No image reader for a " + input.length() + " byte frame");
+        }
+        close();
+        reader = readers.next();
+        param = reader.getDefaultReadParam();
+        destination = null;
+        input.rewind();
+    }
+
+    @Override
+    public void close() {
+        if (reader != null) {
+            reader.dispose();
+            reader = null;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.udacity.catpoint.camera;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Supplies encoded camera frames one at a time.
+ */
+public interface FrameSource extends Closeable {
+
+    /**
+     * Reads the next encoded frame into the buffer, replacing its contents.
+     * @return True if a frame was read, false if none is available right now
+     * @throws java.io.EOFException If the source has ended and will never supply another frame
+     */
+    boolean nextFrame(FrameBuffer buffer) throws IOException;
+
+    /**
+     * @return True if frames arrive in real time whether or not they are read, like a network camera,
+     * so frames read too early should be dropped. False if the source can be read at any pace, like a
+     * recording, so reading should wait for the next frame to be due.
+     */
+    boolean isLive();
+}
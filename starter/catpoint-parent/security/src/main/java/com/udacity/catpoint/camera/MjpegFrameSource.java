@@ -0,0 +1,188 @@
+package com.udacity.catpoint.camera;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads JPEG frames from a Motion JPEG stream: a file or socket carrying JPEG images back to back,
+ * with or without multipart headers between them. Anything outside a JPEG image, such as the HTTP
+ * multipart boundaries of a network camera, is skipped.
+ * <p>
+ * Frames are found by walking the JPEG marker segments rather than searching for the end-of-image
+ * marker, so an embedded EXIF thumbnail does not cut a frame short. Bytes are read in large chunks
+ * into an internal buffer and copied into the caller's {@link FrameBuffer} in runs, without
+ * allocating per frame.
+ */
+public class MjpegFrameSource implements FrameSource {
+
+    private static final int SOI = 0xD8;
+    private static final int EOI = 0xD9;
+    private static final int SOS = 0xDA;
+
+    private final InputStream in;
+    private final boolean live;
+    private final byte[] chunk = new byte[64 * 1024];
+    private int position;
+    private int limit;
+
+    public MjpegFrameSource(InputStream in, boolean live) {
+        this.in = in;
+        this.live = live;
+    }
+
+    /**
+     * Opens a recorded MJPEG file. Recordings are not live, so they are read at the ingestion rate.
+     */
+    public static MjpegFrameSource open(Path file) throws IOException {
+        return new MjpegFrameSource(Files.newInputStream(file), false);
+    }
+
+    /**
+     * Connects to a camera streaming MJPEG over a plain socket.
+     */
+    public static MjpegFrameSource connect(InetSocketAddress address, int timeoutMillis) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(address, timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            return new MjpegFrameSource(socket.getInputStream(), true);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean nextFrame(FrameBuffer buffer) throws IOException {
+        skipToStartOfImage();
+        buffer.clear();
+        buffer.append(0xFF);
+        buffer.append(SOI);
+
+        int marker = readMarker();
+        while (true) {
+            if (marker == SOI) {
+                //the previous image was cut off, start over with this one
+                buffer.setLength(2);
+                marker = readMarker();
+                continue;
+            }
+            buffer.append(0xFF);
+            buffer.append(marker);
+            if (marker == EOI) {
+                return true;
+            }
+            if ((marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) {
+                //restart markers and TEM carry no length
+                marker = readMarker();
+                continue;
+            }
+            int high = readByte();
+            int low = readByte();
+            buffer.append(high);
+            buffer.append(low);
+            copy(buffer, ((high << 8) | low) - 2);
+            marker = marker == SOS ? copyEntropyCodedData(buffer) : readMarker();
+        }
+    }
+
+    @Override
+    public boolean isLive() {
+        return live;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void skipToStartOfImage() throws IOException {
+        int previous = 0;
+        while (true) {
+            int b = readByte();
+            if (previous == 0xFF && b == SOI) {
+                return;
+            }
+            previous = b;
+        }
+    }
+
+    /**
+     * Reads up to the next marker, skipping stray bytes and fill bytes.
+     * @return The marker code, the byte following 0xFF
+     */
+    private int readMarker() throws IOException {
+        int b = readByte();
+        while (b != 0xFF) {
+            b = readByte();
+        }
+        while (b == 0xFF) {
+            b = readByte();
+        }
+        return b;
+    }
+
+    /**
+     * Copies scan data up to the next marker. Inside scan data 0xFF is always followed by a stuffed
+     * zero or a restart marker; anything else ends the scan.
+     * @return The marker code that ended the scan
+     */
+    private int copyEntropyCodedData(FrameBuffer buffer) throws IOException {
+        while (true) {
+            if (position == limit) {
+                fill();
+            }
+            int start = position;
+            while (position < limit && chunk[position] != (byte) 0xFF) {
+                position++;
+            }
+            buffer.append(chunk, start, position - start);
+            if (position == limit) {
+                continue;
+            }
+            position++;
+            int code = readByte();
+            while (code == 0xFF) {
+                code = readByte();
+            }
+            if (code != 0 && (code < 0xD0 || code > 0xD7)) {
+                return code;
+            }
+            buffer.append(0xFF);
+            buffer.append(code);
+        }
+    }
+
+    private void copy(FrameBuffer buffer, int count) throws IOException {
+        while (count > 0) {
+            if (position == limit) {
+                fill();
+            }
+            int run = Math.min(count, limit - position);
+            buffer.append(chunk, position, run);
+            position += run;
+            count -= run;
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+        return chunk[position++] & 0xFF;
+    }
+
+    private void fill() throws IOException {
+        int read = in.read(chunk);
+        if (read < 0) {
+            throw new EOFException("End of MJPEG stream");
+        }
+        position = 0;
+        limit = read;
+    }
+}
@@ -0,0 +1,200 @@
+package com.udacity.catpoint.camera;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling window of the most recent encoded frames of one camera, kept in a direct buffer so the
+ * moments before an alarm can be saved as evidence. Frames are stored back to back in a circular
+ * layout and the oldest are dropped once they fall out of the time window, or to make room.
+ * <p>
+ * The frames in the window always occupy at most two contiguous runs of the buffer, so they are
+ * written out with a single gathering write straight from direct memory, with no copy onto the
+ * heap. Recording copies each frame into the buffer once and allocates nothing. Frames are written
+ * exactly as the camera encoded them, so a window of JPEG frames is a Motion JPEG clip.
+ */
+public class PreAlarmFrameRing {
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer writeView;
+    private final ByteBuffer[] regions;
+    private final long windowNanos;
+
+    //index of the frames in the window, oldest first, as a circular queue
+    private final long[] timestamps;
+    private final int[] offsets;
+    private final int[] lengths;
+    private int first;
+    private int count;
+    private int bytes;
+    //end of the last frame written before the layout wrapped back to the start of the buffer
+    private int wrapEnd;
+
+    private long framesRecorded;
+    private long framesOversized;
+    private boolean detached;
+
+    /**
+     * @param buffer Direct buffer holding the frames, typically from a {@link DirectBufferPool}
+     * @param window How long frames are kept
+     * @param maxFrames Most frames kept at once, whatever their size
+     */
+    public PreAlarmFrameRing(ByteBuffer buffer, long window, TimeUnit unit, int maxFrames) {
+        if (maxFrames < 1 || window <= 0) {
+            throw new IllegalArgumentException("Window and frame count must be positive");
+        }
+        this.buffer = buffer;
+        this.writeView = buffer.duplicate();
+        this.regions = new ByteBuffer[]{buffer.duplicate(), buffer.duplicate()};
+        this.windowNanos = unit.toNanos(window);
+        this.timestamps = new long[maxFrames];
+        this.offsets = new int[maxFrames];
+        this.lengths = new int[maxFrames];
+    }
+
+    /**
+     * Adds an encoded frame read at the given {@link System#nanoTime()}. A frame larger than the
+     * whole buffer is counted and skipped.
+     */
+    public synchronized void record(FrameBuffer frame, long nanoTime) {
+        record(frame.getData(), 0, frame.getLength(), nanoTime);
+    }
+
+    public synchronized void record(byte[] data, int offset, int length, long nanoTime) {
+        if (detached) {
+            return;
+        }
+        if (length > buffer.capacity()) {
+            framesOversized++;
+            return;
+        }
+        evictOlderThanWindow(nanoTime);
+        if (count == timestamps.length) {
+            evictOldest();
+        }
+
+        int head = count == 0 ? 0 : offsets[newest()] + lengths[newest()];
+        if (head + length > buffer.capacity()) {
+            //frames between the head and the end of the buffer are the oldest; they go first
+            while (count > 0 && offsets[first] >= head) {
+                evictOldest();
+            }
+            wrapEnd = head;
+            head = 0;
+        }
+        while (count > 0 && offsets[first] < head + length && head < offsets[first] + lengths[first]) {
+            evictOldest();
+        }
+
+        writeView.limit(head + length).position(head);
+        writeView.put(data, offset, length);
+        int slot = (first + count) % timestamps.length;
+        timestamps[slot] = nanoTime;
+        offsets[slot] = head;
+        lengths[slot] = length;
+        count++;
+        bytes += length;
+        framesRecorded++;
+    }
+
+    /**
+     * Drops the frames that fell out of the window as of the given {@link System#nanoTime()}, such as
+     * the time of an alarm. Recording only drops them when the next frame arrives, which for a feed
+     * that stopped may be never.
+     */
+    public synchronized void dropExpired(long nanoTime) {
+        evictOlderThanWindow(nanoTime);
+    }
+
+    /**
+     * Writes every frame in the window, oldest first, and leaves the window unchanged. Recording
+     * waits until the write is done.
+     * @return Bytes written
+     */
+    public synchronized long writeTo(GatheringByteChannel channel) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+        int start = offsets[first];
+        int end = offsets[newest()] + lengths[newest()];
+        int regionCount;
+        if (start < end) {
+            regions[0].limit(end).position(start);
+            regionCount = 1;
+        } else {
+            regions[0].limit(wrapEnd).position(start);
+            regions[1].limit(end).position(0);
+            regionCount = 2;
+        }
+        long written = 0;
+        while (written < bytes) {
+            written += channel.write(regions, 0, regionCount);
+        }
+        return written;
+    }
+
+    /**
+     * Drops every frame, for example after they have been saved.
+     */
+    public synchronized void clear() {
+        first = 0;
+        count = 0;
+        bytes = 0;
+    }
+
+    /**
+     * Drops every frame and ignores any recorded after this, so the buffer can be given to another
+     * ring while a feed still holds this one.
+     */
+    public synchronized void detach() {
+        clear();
+        detached = true;
+    }
+
+    /**
+     * @return Frames currently in the window
+     */
+    public synchronized int getFrameCount() {
+        return count;
+    }
+
+    /**
+     * @return Bytes of the frames currently in the window
+     */
+    public synchronized int getByteCount() {
+        return bytes;
+    }
+
+    public synchronized long getFramesRecorded() {
+        return framesRecorded;
+    }
+
+    /**
+     * @return Frames skipped because they were larger than the buffer
+     */
+    public synchronized long getFramesOversized() {
+        return framesOversized;
+    }
+
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    private int newest() {
+        return (first + count - 1) % timestamps.length;
+    }
+
+    private void evictOlderThanWindow(long nanoTime) {
+        while (count > 0 && nanoTime - timestamps[first] > windowNanos) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        bytes -= lengths[first];
+        first = (first + 1) % timestamps.length;
+        count--;
+    }
+}
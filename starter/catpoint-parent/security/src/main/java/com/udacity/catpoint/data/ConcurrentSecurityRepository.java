@@ -0,0 +1,285 @@
+package com.udacity.catpoint.data;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe repository for many concurrent writers. Sensors live in a {@link ConcurrentHashMap}
+ * keyed by id, so threads updating different sensors do not contend, and the alarm and arming
+ * status are atomic fields. Nothing is copied on write: each change only bumps a version counter,
+ * and {@link #getSensorSnapshot()} builds a new snapshot when the version has moved on since the
+ * last one. When only sensor states changed, the previous snapshot's sorted set is reused.
+ * <p>
+ * Persisting is write-behind. A change schedules a single write on a background thread after a short
+ * delay, and changes made until that write starts are saved with it, so a burst of updates costs one
+ * write instead of one per update and writers never wait for storage. Batches are applied without a
+ * global lock: a snapshot taken while another thread is writing may contain part of its changes.
+ * Changes made after {@link #close()} are kept in memory but no longer saved.
+ */
+public class ConcurrentSecurityRepository implements SecurityRepository, AutoCloseable {
+
+    private final Map<UUID, Sensor> sensors = new ConcurrentHashMap<>();
+    private final AtomicReference<AlarmStatus> alarmStatus = new AtomicReference<>(AlarmStatus.NO_ALARM);
+    private final AtomicReference<ArmingStatus> armingStatus = new AtomicReference<>(ArmingStatus.DISARMED);
+
+    /** Bumped on every sensor change */
+    private final AtomicLong version = new AtomicLong();
+    /** Bumped when a sensor is added, removed or replaced by another object */
+    private final AtomicLong membership = new AtomicLong();
+    private final Object snapshotLock = new Object();
+    private volatile SensorSnapshot snapshot = SensorSnapshot.EMPTY;
+    private long snapshotMembership;
+
+    private final SecurityStatePersister persister;
+    private final ScheduledExecutorService writer;
+    private final long writeDelayNanos;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+
+    private ConcurrentSecurityRepository(Builder builder) {
+        this.persister = builder.persister;
+        this.writeDelayNanos = builder.writeDelay.toNanos();
+        this.writer = persister == null ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "repository-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        if (builder.initialState != null) {
+            for (Sensor sensor : builder.initialState.getSensors()) {
+                sensors.put(sensor.getSensorId(), sensor);
+            }
+            alarmStatus.set(builder.initialState.getAlarmStatus());
+            armingStatus.set(builder.initialState.getArmingStatus());
+            version.incrementAndGet();
+            membership.incrementAndGet();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        sensors.put(sensor.getSensorId(), sensor);
+        membership.incrementAndGet();
+        sensorsChanged();
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        if (sensors.remove(sensor.getSensorId()) != null) {
+            membership.incrementAndGet();
+            sensorsChanged();
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        put(sensor);
+        sensorsChanged();
+    }
+
+    private void put(Sensor sensor) {
+        if (sensors.put(sensor.getSensorId(), sensor) != sensor) {
+            membership.incrementAndGet();
+        }
+    }
+
+    private void sensorsChanged() {
+        version.incrementAndGet();
+        changed();
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus.set(alarmStatus);
+        changed();
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus.set(armingStatus);
+        changed();
+    }
+
+    /**
+     * Applies the sensor updates, then the status changes, and schedules one write for all of them.
+     */
+    @Override
+    public void applyBatch(SecurityBatch batch) {
+        if (!batch.getUpdatedSensors().isEmpty()) {
+            for (Sensor sensor : batch.getUpdatedSensors()) {
+                put(sensor);
+            }
+            version.incrementAndGet();
+        }
+        if (batch.getAlarmStatus() != null) {
+            alarmStatus.set(batch.getAlarmStatus());
+        }
+        if (batch.getArmingStatus() != null) {
+            armingStatus.set(batch.getArmingStatus());
+        }
+        changed();
+    }
+
+    @Override
+    public SensorSnapshot getSensorSnapshot() {
+        SensorSnapshot current = snapshot;
+        if (current.getVersion() == version.get()) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            current = snapshot;
+            //read the counters before the map, so a change made while copying shows up as a newer version
+            long currentVersion = version.get();
+            long currentMembership = membership.get();
+            if (current.getVersion() == currentVersion) {
+                return current;
+            }
+            current = currentMembership == snapshotMembership
+                    ? current.withCurrentState(currentVersion)
+                    : SensorSnapshot.of(currentVersion, sensors.values());
+            snapshotMembership = currentMembership;
+            snapshot = current;
+            return current;
+        }
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus.get();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus.get();
+    }
+
+    private void changed() {
+        changes.increment();
+        if (persister == null || closed || !writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writer.schedule(this::write, writeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            //closed since the check above; the final write has already been made
+        }
+    }
+
+    private void write() {
+        //cleared first, so a change made during the write schedules another one
+        writeScheduled.set(false);
+        try {
+            persister.persist(getSensorSnapshot(), alarmStatus.get(), armingStatus.get());
+            writes.increment();
+        } catch (RuntimeException e) {
+            failedWrites.increment();
+        }
+    }
+
+    /**
+     * Writes the current state now and waits for it, for example before shutting down. Does nothing
+     * once the repository is closed.
+     */
+    public void flush() {
+        if (persister == null || closed) {
+            return;
+        }
+        writeNow();
+    }
+
+    private void writeNow() {
+        try {
+            writer.submit(this::write).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to persist repository", e.getCause());
+        }
+    }
+
+    /**
+     * @return Number of changes made to this repository
+     */
+    public long getChangeCount() {
+        return changes.sum();
+    }
+
+    /**
+     * @return Number of writes made by the persister. Usually far fewer than the number of changes.
+     */
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    /**
+     * @return Number of writes that failed. A failed write is retried with the next change.
+     */
+    public long getFailedWriteCount() {
+        return failedWrites.sum();
+    }
+
+    /**
+     * Writes the current state and stops the background writer. A write that was still waiting for
+     * its delay is dropped, as the final write already saved everything it would have.
+     */
+    @Override
+    public synchronized void close() {
+        if (persister == null || closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeNow();
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    public static class Builder {
+        private SecurityStatePersister persister;
+        private Duration writeDelay = Duration.ofMillis(100);
+        private SecurityRepository initialState;
+
+        private Builder() {
+        }
+
+        /** Where to save the state. By default nothing is persisted. */
+        public Builder persister(SecurityStatePersister persister) {
+            this.persister = persister;
+            return this;
+        }
+
+        /** How long a change waits before it is written, so that later changes are written with it. */
+        public Builder writeDelay(Duration writeDelay) {
+            this.writeDelay = writeDelay;
+            return this;
+        }
+
+        /** Repository to copy sensors and statuses from, for example one that loaded them from storage. */
+        public Builder initialState(SecurityRepository initialState) {
+            this.initialState = initialState;
+            return this;
+        }
+
+        public ConcurrentSecurityRepository build() {
+            return new ConcurrentSecurityRepository(this);
+        }
+    }
+}
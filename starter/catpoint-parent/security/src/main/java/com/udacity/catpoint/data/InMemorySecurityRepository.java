@@ -0,0 +1,66 @@
+package com.udacity.catpoint.data;
+
+/**
+ * Repository implementation that keeps all state in local memory and never persists it. Useful
+ * for tools and tests that should not touch the user preferences written by
+ * {@link PretendDatabaseSecurityRepositoryImpl}. Like that class, it is not thread safe.
+ */
+public class InMemorySecurityRepository implements SecurityRepository {
+
+    private SensorSnapshot sensors = SensorSnapshot.EMPTY;
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        sensors = sensors.with(sensor);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        sensors = sensors.without(sensor);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        sensors = sensors.withUpdated(sensor);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public void applyBatch(SecurityBatch batch) {
+        if (!batch.getUpdatedSensors().isEmpty()) {
+            sensors = sensors.withUpdated(batch.getUpdatedSensors());
+        }
+        if (batch.getAlarmStatus() != null) {
+            alarmStatus = batch.getAlarmStatus();
+        }
+        if (batch.getArmingStatus() != null) {
+            armingStatus = batch.getArmingStatus();
+        }
+    }
+
+    @Override
+    public SensorSnapshot getSensorSnapshot() {
+        return sensors;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
@@ -0,0 +1,47 @@
+package com.udacity.catpoint.data;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flight Recorder event for a repository writing one value to storage, including the time spent
+ * serializing it. The size is only computed when the event is recorded.
+ */
+@Name("com.udacity.catpoint.PersistenceFlush")
+@Label("Persistence Flush")
+@Category({"Catpoint", "Repository"})
+@Description("A repository serialized and stored a value")
+@StackTrace(false)
+final class PersistenceFlushEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Key")
+    String key;
+
+    @Label("Items")
+    int items;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytes;
+
+    void complete(Object writer, String key, String value, int items) {
+        end();
+        if (shouldCommit()) {
+            this.repository = writer.getClass().getSimpleName();
+            this.key = key;
+            this.items = items;
+            this.bytes = value.getBytes(StandardCharsets.UTF_8).length;
+            commit();
+        }
+    }
+}
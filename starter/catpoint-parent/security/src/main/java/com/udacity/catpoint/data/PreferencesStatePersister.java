@@ -0,0 +1,38 @@
+package com.udacity.catpoint.data;
+
+/**
+ * Persists state to the same user preferences as {@link PretendDatabaseSecurityRepositoryImpl}, so
+ * a {@link ConcurrentSecurityRepository} loaded from that repository can take over saving it. Only
+ * values that changed since the last call are written, and they are flushed to the backing store
+ * together.
+ */
+public class PreferencesStatePersister implements SecurityStatePersister {
+
+    private long savedVersion = -1;
+    private AlarmStatus savedAlarmStatus;
+    private ArmingStatus savedArmingStatus;
+
+    @Override
+    public synchronized void persist(SensorSnapshot sensors, AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        boolean sensorsChanged = sensors.getVersion() != savedVersion;
+        boolean alarmStatusChanged = alarmStatus != savedAlarmStatus;
+        boolean armingStatusChanged = armingStatus != savedArmingStatus;
+        if (!sensorsChanged && !alarmStatusChanged && !armingStatusChanged) {
+            return;
+        }
+        if (sensorsChanged) {
+            SecurityPreferences.saveSensors(this, sensors);
+        }
+        if (alarmStatusChanged) {
+            SecurityPreferences.saveAlarmStatus(this, alarmStatus);
+        }
+        if (armingStatusChanged) {
+            SecurityPreferences.saveArmingStatus(this, armingStatus);
+        }
+        //if this throws, nothing is marked as saved, so the next call writes the same values again
+        SecurityPreferences.flush();
+        savedVersion = sensors.getVersion();
+        savedAlarmStatus = alarmStatus;
+        savedArmingStatus = armingStatus;
+    }
+}
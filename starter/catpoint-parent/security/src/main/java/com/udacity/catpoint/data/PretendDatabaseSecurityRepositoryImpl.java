@@ -1,12 +1,6 @@
 package com.udacity.catpoint.data;
 
-import com.google.common.reflect.TypeToken;
-import com.google.gson.Gson;
-
-import java.lang.reflect.Type;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
@@ -15,68 +9,80 @@ import java.util.prefs.Preferences;
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
 
-    private Set<Sensor> sensors;
+    private volatile SensorSnapshot sensors;
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
 
-    //preference keys
-    private static final String SENSORS = "SENSORS";
-    private static final String ALARM_STATUS = "ALARM_STATUS";
-    private static final String ARMING_STATUS = "ARMING_STATUS";
-
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-    private static final Gson gson = new Gson(); //used to serialize objects into JSON
-
     public PretendDatabaseSecurityRepositoryImpl() {
         //load system state from prefs, or else default
-        alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
-        armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
+        alarmStatus = SecurityPreferences.loadAlarmStatus();
+        armingStatus = SecurityPreferences.loadArmingStatus();
 
         //we've serialized our sensor objects for storage, which should be a good warning sign that
         // this is likely an impractical solution for a real system
-        String sensorString = prefs.get(SENSORS, null);
-        if(sensorString == null) {
-            sensors = new TreeSet<>();
+        Set<Sensor> storedSensors = SecurityPreferences.loadSensors();
+        if(storedSensors == null) {
+            sensors = SensorSnapshot.EMPTY;
         } else {
-            Type type = new TypeToken<Set<Sensor>>() {
-            }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            sensors = SensorSnapshot.of(storedSensors);
         }
     }
 
     @Override
     public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        sensors = sensors.with(sensor);
+        saveSensors();
     }
 
     @Override
     public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        sensors = sensors.without(sensor);
+        saveSensors();
     }
 
     @Override
     public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        sensors = sensors.withUpdated(sensor);
+        saveSensors();
+    }
+
+    private void saveSensors() {
+        SecurityPreferences.saveSensors(this, sensors);
     }
 
     @Override
     public void setAlarmStatus(AlarmStatus alarmStatus) {
         this.alarmStatus = alarmStatus;
-        prefs.put(ALARM_STATUS, this.alarmStatus.toString());
+        SecurityPreferences.saveAlarmStatus(this, this.alarmStatus);
     }
 
     @Override
     public void setArmingStatus(ArmingStatus armingStatus) {
         this.armingStatus = armingStatus;
-        prefs.put(ARMING_STATUS, this.armingStatus.toString());
+        SecurityPreferences.saveArmingStatus(this, this.armingStatus);
+    }
+
+    /**
+     * Stores every value the batch changes, then flushes them to the backing store with one call.
+     * The preferences' own background sync may still run between two of the puts.
+     */
+    @Override
+    public void applyBatch(SecurityBatch batch) {
+        if (!batch.getUpdatedSensors().isEmpty()) {
+            sensors = sensors.withUpdated(batch.getUpdatedSensors());
+            saveSensors();
+        }
+        if (batch.getAlarmStatus() != null) {
+            setAlarmStatus(batch.getAlarmStatus());
+        }
+        if (batch.getArmingStatus() != null) {
+            setArmingStatus(batch.getArmingStatus());
+        }
+        SecurityPreferences.flush();
     }
 
     @Override
-    public Set<Sensor> getSensors() {
+    public SensorSnapshot getSensorSnapshot() {
         return sensors;
     }
 
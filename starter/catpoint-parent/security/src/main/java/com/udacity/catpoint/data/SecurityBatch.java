@@ -0,0 +1,53 @@
+package com.udacity.catpoint.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A group of changes to apply to a {@link SecurityRepository} in one step: any number of sensor
+ * updates plus an optional alarm and arming status change. Repositories apply the whole batch
+ * before returning and persist it with a single flush, so resetting every sensor on a large premise
+ * costs one flush instead of one per sensor. Persisting is not transactional: storage that fails
+ * partway through a flush may keep only part of a batch.
+ */
+public class SecurityBatch {
+
+    private final List<Sensor> updatedSensors = new ArrayList<>();
+    private final List<Sensor> updatedSensorsView = Collections.unmodifiableList(updatedSensors);
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+
+    public SecurityBatch updateSensor(Sensor sensor) {
+        updatedSensors.add(sensor);
+        return this;
+    }
+
+    public SecurityBatch setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        return this;
+    }
+
+    public SecurityBatch setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        return this;
+    }
+
+    public List<Sensor> getUpdatedSensors() {
+        return updatedSensorsView;
+    }
+
+    /**
+     * @return The new alarm status, or null if the batch leaves it unchanged
+     */
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    /**
+     * @return The new arming status, or null if the batch leaves it unchanged
+     */
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
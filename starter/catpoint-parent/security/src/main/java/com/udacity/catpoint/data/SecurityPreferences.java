@@ -0,0 +1,90 @@
+package com.udacity.catpoint.data;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+
+import java.lang.reflect.Type;
+import java.util.Set;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * The user preferences the security state is saved to, shared by
+ * {@link PretendDatabaseSecurityRepositoryImpl} and {@link PreferencesStatePersister} so both read
+ * and write the same keys in the same format.
+ */
+final class SecurityPreferences {
+
+    //preference keys
+    private static final String SENSORS = "SENSORS";
+    private static final String ALARM_STATUS = "ALARM_STATUS";
+    private static final String ARMING_STATUS = "ARMING_STATUS";
+
+    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
+    private static final Gson gson = new Gson(); //used to serialize objects into JSON
+    private static final Type SENSOR_SET_TYPE = new TypeToken<Set<Sensor>>() {
+    }.getType();
+
+    private SecurityPreferences() {
+    }
+
+    /**
+     * @return The saved sensors, or null if none were ever saved
+     */
+    static Set<Sensor> loadSensors() {
+        String sensorString = prefs.get(SENSORS, null);
+        return sensorString == null ? null : gson.fromJson(sensorString, SENSOR_SET_TYPE);
+    }
+
+    static AlarmStatus loadAlarmStatus() {
+        return AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
+    }
+
+    static ArmingStatus loadArmingStatus() {
+        return ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
+    }
+
+    /**
+     * Stores the sensors with the activation state recorded in the snapshot.
+     *
+     * @param writer The repository or persister saving them, reported in the flush event
+     */
+    static void saveSensors(Object writer, SensorSnapshot sensors) {
+        //begun before serializing, so the event includes the time spent in Gson
+        PersistenceFlushEvent event = new PersistenceFlushEvent();
+        event.begin();
+        put(event, writer, SENSORS, gson.toJson(sensors.copySensors(), SENSOR_SET_TYPE), sensors.size());
+    }
+
+    static void saveAlarmStatus(Object writer, AlarmStatus alarmStatus) {
+        save(writer, ALARM_STATUS, alarmStatus.toString(), 1);
+    }
+
+    static void saveArmingStatus(Object writer, ArmingStatus armingStatus) {
+        save(writer, ARMING_STATUS, armingStatus.toString(), 1);
+    }
+
+    private static void save(Object writer, String key, String value, int items) {
+        PersistenceFlushEvent event = new PersistenceFlushEvent();
+        event.begin();
+        put(event, writer, key, value, items);
+    }
+
+    private static void put(PersistenceFlushEvent event, Object writer, String key, String value, int items) {
+        prefs.put(key, value);
+        event.complete(writer, key, value, items);
+    }
+
+    /**
+     * Writes the stored values to the backing store with one call.
+     *
+     * @throws IllegalStateException if the backing store cannot be written
+     */
+    static void flush() {
+        try {
+            prefs.flush();
+        } catch (BackingStoreException e) {
+            throw new IllegalStateException("Unable to persist security state", e);
+        }
+    }
+}
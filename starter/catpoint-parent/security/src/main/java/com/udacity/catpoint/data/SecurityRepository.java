@@ -11,9 +11,26 @@ public interface SecurityRepository {
     void updateSensor(Sensor sensor);
     void setAlarmStatus(AlarmStatus alarmStatus);
     void setArmingStatus(ArmingStatus armingStatus);
-    Set<Sensor> getSensors();
-    AlarmStatus getAlarmStatus();
-    ArmingStatus getArmingStatus();
 
+    /**
+     * Applies all changes in the batch at once, persisting them with a single flush.
+     * @param batch Sensor updates and status changes to apply
+     */
+    void applyBatch(SecurityBatch batch);
+
+    /**
+     * @return The current immutable snapshot of all sensors. Cheap to call; implementations replace
+     * the snapshot when sensors change rather than copying on read.
+     */
+    SensorSnapshot getSensorSnapshot();
 
+    /**
+     * @return Unmodifiable set of all sensors, taken from the current snapshot
+     */
+    default Set<Sensor> getSensors() {
+        return getSensorSnapshot().getSensors();
+    }
+
+    AlarmStatus getAlarmStatus();
+    ArmingStatus getArmingStatus();
 }
@@ -0,0 +1,9 @@
+package com.udacity.catpoint.data;
+
+/**
+ * Writes the complete state of a repository to storage. Used by {@link ConcurrentSecurityRepository}
+ * to persist in the background; every call replaces what the previous one wrote.
+ */
+public interface SecurityStatePersister {
+    void persist(SensorSnapshot sensors, AlarmStatus alarmStatus, ArmingStatus armingStatus);
+}
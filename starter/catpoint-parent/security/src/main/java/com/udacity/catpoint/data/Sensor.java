@@ -10,17 +10,25 @@ import java.util.UUID;
  * Sensor POJO. Needs to know how to sort itself for display purposes.
  */
 public class Sensor implements Comparable<Sensor> {
+    public static final String DEFAULT_ZONE = "Main";
+
     private UUID sensorId;
     private String name;
     private Boolean active;
     private SensorType sensorType;
+    private String zone;
 
     public Sensor() {
     }
 
     public Sensor(String name, SensorType sensorType) {
+        this(name, sensorType, DEFAULT_ZONE);
+    }
+
+    public Sensor(String name, SensorType sensorType, String zone) {
         this.name = name;
         this.sensorType = sensorType;
+        this.zone = zone;
         this.sensorId = UUID.randomUUID();
         this.active = Boolean.FALSE;
     }
@@ -62,6 +70,18 @@ public class Sensor implements Comparable<Sensor> {
         this.sensorType = sensorType;
     }
 
+    /**
+     * @return Name of the zone this sensor belongs to. Sensors saved before zones existed belong to
+     * {@link #DEFAULT_ZONE}.
+     */
+    public String getZone() {
+        return zone == null ? DEFAULT_ZONE : zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
     public UUID getSensorId() {
         return sensorId;
     }
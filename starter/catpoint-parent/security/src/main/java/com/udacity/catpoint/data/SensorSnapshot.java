@@ -0,0 +1,249 @@
+package com.udacity.catpoint.data;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Immutable, versioned view of the sensors held by a repository. Repositories replace their snapshot
+ * on every change (copy-on-write) and hand the current one to readers, so reading never copies, never
+ * sorts and can never observe a half-applied update. The set is kept in display order, which makes the
+ * sorted view a free by-product of building the snapshot.
+ * <p>
+ * The {@link Sensor} objects are shared between snapshots and are updated in place by the security
+ * service, so {@link Sensor#getActive()} always returns the latest state. The activation state as of
+ * this snapshot is recorded separately, one bit per sensor, and is read with {@link #isActive(Sensor)};
+ * it never changes once the snapshot is handed out.
+ */
+public final class SensorSnapshot {
+
+    public static final SensorSnapshot EMPTY = new SensorSnapshot(0, ImmutableSortedSet.of(), 0, null);
+
+    private final long version;
+    private final ImmutableSortedSet<Sensor> sensors;
+    /** Activation state of the first 64 sensors in display order, one bit each */
+    private final long active;
+    /** Activation state of the sensors after the first 64, or null if there are no more */
+    private final long[] moreActive;
+
+    private SensorSnapshot(long version, ImmutableSortedSet<Sensor> sensors, long active, long[] moreActive) {
+        this.version = version;
+        this.sensors = sensors;
+        this.active = active;
+        this.moreActive = moreActive;
+    }
+
+    /**
+     * Creates the first snapshot of a repository, for example from sensors loaded from storage.
+     */
+    public static SensorSnapshot of(Collection<Sensor> sensors) {
+        return of(0, sensors);
+    }
+
+    /**
+     * Creates a snapshot with the given version, for repositories that track changes themselves and
+     * build snapshots on demand.
+     */
+    public static SensorSnapshot of(long version, Collection<Sensor> sensors) {
+        return create(version, ImmutableSortedSet.copyOf(sensors), null, null);
+    }
+
+    /**
+     * Builds a snapshot of the set. Sensors in {@code current}, or every sensor if {@code previous} is
+     * null, are recorded with their current state; the others keep the state they had in {@code previous}.
+     */
+    private static SensorSnapshot create(long version, ImmutableSortedSet<Sensor> sensors,
+                                         Collection<Sensor> current, SensorSnapshot previous) {
+        List<Sensor> list = sensors.asList();
+        long active = 0;
+        long[] moreActive = list.size() > Long.SIZE ? new long[(list.size() - 1) / Long.SIZE] : null;
+        for (int i = 0; i < list.size(); i++) {
+            Sensor sensor = list.get(i);
+            boolean state = previous == null || current.contains(sensor)
+                    ? Boolean.TRUE.equals(sensor.getActive())
+                    : previous.isActive(sensor);
+            if (!state) {
+                continue;
+            }
+            if (i < Long.SIZE) {
+                active |= 1L << i;
+            } else {
+                moreActive[i / Long.SIZE - 1] |= 1L << i;
+            }
+        }
+        return new SensorSnapshot(version, sensors, active, moreActive);
+    }
+
+    /**
+     * @return A new snapshot of the same sensors with another version and their current activation
+     * state, for when only their state changed
+     */
+    public SensorSnapshot withCurrentState(long version) {
+        return create(version, sensors, null, null);
+    }
+
+    /**
+     * @return Version of this snapshot. Increases every time the repository's sensors change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Unmodifiable set of sensors, iterating in display order. Their activation state is live;
+     * use {@link #isActive(Sensor)} for the state recorded in this snapshot.
+     */
+    public SortedSet<Sensor> getSensors() {
+        return sensors;
+    }
+
+    /**
+     * @return Unmodifiable list of sensors in display order
+     */
+    public List<Sensor> getSortedSensors() {
+        return sensors.asList();
+    }
+
+    public int size() {
+        return sensors.size();
+    }
+
+    /**
+     * @return True if the sensor was active when this snapshot was taken. False for sensors that are not
+     * part of it.
+     */
+    public boolean isActive(Sensor sensor) {
+        int index = indexOf(sensor);
+        if (index < 0) {
+            return false;
+        }
+        return index < Long.SIZE
+                ? (active & (1L << index)) != 0
+                : (moreActive[index / Long.SIZE - 1] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return Number of sensors that were active when this snapshot was taken
+     */
+    public int getActiveCount() {
+        int count = Long.bitCount(active);
+        if (moreActive != null) {
+            for (long word : moreActive) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Copies of the sensors in display order, carrying the activation state recorded in this
+     * snapshot, for writing the snapshot to storage
+     */
+    public List<Sensor> copySensors() {
+        List<Sensor> copies = new ArrayList<>(sensors.size());
+        for (Sensor sensor : sensors) {
+            Sensor copy = new Sensor();
+            copy.setSensorId(sensor.getSensorId());
+            copy.setName(sensor.getName());
+            copy.setSensorType(sensor.getSensorType());
+            copy.setZone(sensor.getZone());
+            copy.setActive(isActive(sensor));
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private int indexOf(Sensor sensor) {
+        return Collections.binarySearch(sensors.asList(), sensor);
+    }
+
+    /**
+     * @return A new snapshot that also contains the sensor
+     */
+    public SensorSnapshot with(Sensor sensor) {
+        ImmutableSortedSet<Sensor> added = ImmutableSortedSet.<Sensor>naturalOrder()
+                .addAll(sensors)
+                .add(sensor)
+                .build();
+        return create(version + 1, added, ImmutableList.of(sensor), this);
+    }
+
+    /**
+     * @return A new snapshot without the sensor
+     */
+    public SensorSnapshot without(Sensor sensor) {
+        return withUpdated(ImmutableList.of(), ImmutableList.of(sensor));
+    }
+
+    /**
+     * Same as {@link #withUpdated(Collection)} for a single sensor, without wrapping it in a collection.
+     */
+    public SensorSnapshot withUpdated(Sensor updated) {
+        int index = indexOf(updated);
+        if (index < 0 || sensors.asList().get(index) != updated) {
+            return withUpdated(ImmutableList.of(updated), ImmutableList.of(updated));
+        }
+        boolean state = Boolean.TRUE.equals(updated.getActive());
+        if (index < Long.SIZE) {
+            return new SensorSnapshot(version + 1, sensors, withBit(active, index, state), moreActive);
+        }
+        return new SensorSnapshot(version + 1, sensors, active, withBit(moreActive, moreActive, index, state));
+    }
+
+    /**
+     * @return A new snapshot where the given sensors replace the ones with the same id. When every
+     * sensor is already part of this snapshot, only its state changed and the set itself is shared.
+     */
+    public SensorSnapshot withUpdated(Collection<Sensor> updated) {
+        long newActive = active;
+        long[] newMoreActive = moreActive;
+        List<Sensor> list = sensors.asList();
+        for (Sensor sensor : updated) {
+            int index = indexOf(sensor);
+            if (index < 0 || list.get(index) != sensor) {
+                return withUpdated(updated, updated.size() > 8 ? new HashSet<>(updated) : updated);
+            }
+            boolean state = Boolean.TRUE.equals(sensor.getActive());
+            if (index < Long.SIZE) {
+                newActive = withBit(newActive, index, state);
+            } else {
+                newMoreActive = withBit(newMoreActive, moreActive, index, state);
+            }
+        }
+        return new SensorSnapshot(version + 1, sensors, newActive, newMoreActive);
+    }
+
+    private SensorSnapshot withUpdated(Collection<Sensor> added, Collection<Sensor> removed) {
+        ImmutableSortedSet.Builder<Sensor> builder = ImmutableSortedSet.naturalOrder();
+        for (Sensor sensor : sensors) {
+            if (!removed.contains(sensor)) {
+                builder.add(sensor);
+            }
+        }
+        return create(version + 1, builder.addAll(added).build(), added, this);
+    }
+
+    private static long withBit(long word, int index, boolean state) {
+        return state ? word | (1L << index) : word & ~(1L << index);
+    }
+
+    /**
+     * @param shared The array of this snapshot, which must be copied before it is changed
+     * @return The words with the bit set to the state, copied only if it changes
+     */
+    private static long[] withBit(long[] words, long[] shared, int index, boolean state) {
+        int word = index / Long.SIZE - 1;
+        if (((words[word] & (1L << index)) != 0) == state) {
+            return words;
+        }
+        long[] changed = words == shared ? words.clone() : words;
+        changed[word] = withBit(changed[word], index, state);
+        return changed;
+    }
+}
@@ -0,0 +1,19 @@
+package com.udacity.catpoint.event;
+
+import com.udacity.catpoint.data.AlarmStatus;
+
+/**
+ * Published whenever the security service sets the alarm status.
+ */
+public class AlarmStatusChangedEvent extends SecurityEvent {
+
+    private final AlarmStatus status;
+
+    public AlarmStatusChangedEvent(AlarmStatus status) {
+        this.status = status;
+    }
+
+    public AlarmStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,19 @@
+package com.udacity.catpoint.event;
+
+import com.udacity.catpoint.data.ArmingStatus;
+
+/**
+ * Published whenever the security service sets the arming status.
+ */
+public class ArmingStatusChangedEvent extends SecurityEvent {
+
+    private final ArmingStatus status;
+
+    public ArmingStatusChangedEvent(ArmingStatus status) {
+        this.status = status;
+    }
+
+    public ArmingStatus getStatus() {
+        return status;
+    }
+}
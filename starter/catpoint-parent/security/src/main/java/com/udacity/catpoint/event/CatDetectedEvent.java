@@ -0,0 +1,28 @@
+package com.udacity.catpoint.event;
+
+/**
+ * Published with the verdict of every scanned camera image. Keyed by camera id.
+ */
+public class CatDetectedEvent extends SecurityEvent {
+
+    private final String cameraId;
+    private final boolean catDetected;
+
+    public CatDetectedEvent(String cameraId, boolean catDetected) {
+        this.cameraId = cameraId;
+        this.catDetected = catDetected;
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    public boolean isCatDetected() {
+        return catDetected;
+    }
+
+    @Override
+    public Object getKey() {
+        return cameraId;
+    }
+}
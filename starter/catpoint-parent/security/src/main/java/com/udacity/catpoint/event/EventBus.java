@@ -0,0 +1,115 @@
+package com.udacity.catpoint.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Delivers {@link SecurityEvent}s to the subscribers registered for their exact type, and optionally
+ * for their key. Publishing only looks at the subscribers of the event's own type, plus those of its
+ * key, so an event nobody asked for costs one map lookup and a subscriber for one sensor is never
+ * called for another. Subclasses of a subscribed type are not delivered.
+ * <p>
+ * Events are delivered synchronously on the publishing thread, in subscription order. Subscribing and
+ * cancelling are safe at any time, including from within a subscriber; a change takes effect from the
+ * next published event. A subscriber that throws is logged and counted, and the event still reaches
+ * the remaining subscribers; the exception never reaches the publisher.
+ */
+public class EventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(EventBus.class);
+
+    private final ConcurrentMap<Class<?>, Topic> topics = new ConcurrentHashMap<>();
+    private final LongAdder failedDeliveries = new LongAdder();
+
+    /**
+     * Registers a subscriber for every event of the given type.
+     */
+    public <E extends SecurityEvent> Subscription subscribe(Class<E> eventType, Consumer<? super E> subscriber) {
+        Topic topic = topics.computeIfAbsent(eventType, t -> new Topic());
+        Consumer<Object> consumer = erase(subscriber);
+        topic.all.add(consumer);
+        return () -> topic.all.remove(consumer);
+    }
+
+    /**
+     * Registers a subscriber for the events of the given type whose {@link SecurityEvent#getKey()}
+     * equals the key, for example a single sensor id or camera id.
+     */
+    public <E extends SecurityEvent> Subscription subscribe(Class<E> eventType, Object key, Consumer<? super E> subscriber) {
+        Topic topic = topics.computeIfAbsent(eventType, t -> new Topic());
+        Consumer<Object> consumer = erase(subscriber);
+        topic.keyed.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(consumer);
+        return () -> topic.keyed.computeIfPresent(key, (k, subscribers) -> {
+            subscribers.remove(consumer);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * @return True if anyone listens to events of this type. Publishers can check this to skip
+     * building events nobody will receive.
+     */
+    public boolean hasSubscribers(Class<? extends SecurityEvent> eventType) {
+        Topic topic = topics.get(eventType);
+        return topic != null && (!topic.all.isEmpty() || !topic.keyed.isEmpty());
+    }
+
+    /**
+     * Delivers the event to the subscribers of its type and key.
+     */
+    public void publish(SecurityEvent event) {
+        Topic topic = topics.get(event.getClass());
+        if (topic == null) {
+            return;
+        }
+        deliver(topic.all, event);
+        if (event.getKey() != null && !topic.keyed.isEmpty()) {
+            List<Consumer<Object>> keyed = topic.keyed.get(event.getKey());
+            if (keyed != null) {
+                deliver(keyed, event);
+            }
+        }
+    }
+
+    /**
+     * Subscribers are stored untyped; {@link #subscribe} guarantees each only receives events of the
+     * type it registered for.
+     */
+    @SuppressWarnings("unchecked")
+    private static Consumer<Object> erase(Consumer<?> subscriber) {
+        return (Consumer<Object>) subscriber;
+    }
+
+    /**
+     * @return Number of times a subscriber threw instead of handling an event
+     */
+    public long getFailedDeliveryCount() {
+        return failedDeliveries.sum();
+    }
+
+    private void deliver(List<Consumer<Object>> subscribers, SecurityEvent event) {
+        for (Consumer<Object> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                failedDeliveries.increment();
+                log.warn("Subscriber failed to handle {}", event.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    /**
+     * Subscribers of one event type
+     */
+    private static class Topic {
+        final List<Consumer<Object>> all = new CopyOnWriteArrayList<>();
+        final ConcurrentMap<Object, List<Consumer<Object>>> keyed = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,237 @@
+package com.udacity.catpoint.event;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * {@link Flow.Publisher} of one event type from an {@link EventBus}, for consumers that want to pull
+ * events at their own pace instead of being called on the publishing thread.
+ * <p>
+ * Every subscriber gets its own queue on the bus and events are handed to it on the executor, only
+ * as far as it has requested them. Publishing never waits for a subscriber. Subscribers added with
+ * {@link #subscribe} get a bounded buffer; one that falls more than the buffer size behind is
+ * cancelled with an error. Subscribers added with {@link #subscribeLatest} get the latest event
+ * instead: undelivered events are replaced by newer ones with the same key, so a slow dashboard
+ * sees the current alarm status, or the current state of each sensor, without buffering history.
+ */
+public class EventPublisher<E extends SecurityEvent> implements Flow.Publisher<E> {
+
+    /** Key used in a conflating queue for events that have none */
+    private static final Object NO_KEY = new Object();
+
+    private final EventBus eventBus;
+    private final Class<E> eventType;
+    private final Executor executor;
+    private final int bufferSize;
+
+    public EventPublisher(EventBus eventBus, Class<E> eventType) {
+        this(eventBus, eventType, ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    public EventPublisher(EventBus eventBus, Class<E> eventType, Executor executor, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.eventBus = eventBus;
+        this.eventType = eventType;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Subscribes with a buffer of undelivered events. The subscriber is cancelled, and receives
+     * {@code onError}, if the buffer overflows.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super E> subscriber) {
+        start(new EventSubscription<>(subscriber, executor, bufferSize, false));
+    }
+
+    /**
+     * Subscribes with latest-state conflation: at most one undelivered event is kept per key, and
+     * at most {@code bufferSize} keys. Such a subscriber is never cancelled for being slow.
+     */
+    public void subscribeLatest(Flow.Subscriber<? super E> subscriber) {
+        start(new EventSubscription<>(subscriber, executor, bufferSize, true));
+    }
+
+    /**
+     * @return View of this publisher whose subscribers get latest-state conflation, for code that
+     * only accepts a {@link Flow.Publisher}
+     */
+    public Flow.Publisher<E> latest() {
+        return this::subscribeLatest;
+    }
+
+    private void start(EventSubscription<E> subscription) {
+        subscription.busSubscription = eventBus.subscribe(eventType, subscription);
+        //onSubscribe is signalled from the first drain, so it is never concurrent with onNext
+        subscription.schedule();
+    }
+
+    /**
+     * One subscriber's queue and demand. Events are added on the publishing thread and drained on
+     * the executor; the work counter makes sure only one drain runs at a time.
+     */
+    private static class EventSubscription<E extends SecurityEvent> implements Flow.Subscription, Consumer<E>, Runnable {
+        private final Flow.Subscriber<? super E> subscriber;
+        private final Executor executor;
+        private final int bufferSize;
+        private final boolean conflate;
+
+        private final ArrayDeque<E> buffer = new ArrayDeque<>();
+        private final Map<Object, E> latest = new LinkedHashMap<>();
+        private boolean overflowed;
+
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private boolean subscribed;
+        private volatile Subscription busSubscription;
+
+        EventSubscription(Flow.Subscriber<? super E> subscriber, Executor executor, int bufferSize, boolean conflate) {
+            this.subscriber = Objects.requireNonNull(subscriber);
+            this.executor = executor;
+            this.bufferSize = bufferSize;
+            this.conflate = conflate;
+        }
+
+        @Override
+        public void accept(E event) {
+            if (cancelled) {
+                return;
+            }
+            synchronized (this) {
+                if (conflate) {
+                    Object key = event.getKey() != null ? event.getKey() : NO_KEY;
+                    //remove first, so the key moves to the end and events keep their publishing order
+                    if (latest.remove(key) == null && latest.size() == bufferSize) {
+                        Iterator<E> oldest = latest.values().iterator();
+                        oldest.next();
+                        oldest.remove();
+                    }
+                    latest.put(key, event);
+                } else if (buffer.size() == bufferSize) {
+                    overflowed = true;
+                } else {
+                    buffer.add(event);
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " events; must be positive");
+            } else {
+                requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Subscription bus = busSubscription;
+            if (bus != null) {
+                bus.cancel();
+            }
+            synchronized (this) {
+                buffer.clear();
+                latest.clear();
+            }
+        }
+
+        void schedule() {
+            if (work.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!drain()) {
+                    return;
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Delivers as many queued events as were requested.
+         * @return False once the subscription is finished
+         */
+        private boolean drain() {
+            try {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                long delivered = 0;
+                long demand = requested.get();
+                while (!cancelled) {
+                    Throwable error = failure();
+                    if (error != null) {
+                        cancel();
+                        subscriber.onError(error);
+                        return false;
+                    }
+                    if (delivered == demand) {
+                        break;
+                    }
+                    E next = poll();
+                    if (next == null) {
+                        break;
+                    }
+                    subscriber.onNext(next);
+                    delivered++;
+                }
+                if (delivered != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-delivered);
+                }
+                return !cancelled;
+            } catch (RuntimeException e) {
+                //a subscriber that throws is treated as cancelled
+                cancel();
+                return false;
+            }
+        }
+
+        private Throwable failure() {
+            if (invalidRequest != null) {
+                return invalidRequest;
+            }
+            synchronized (this) {
+                return overflowed
+                        ? new IllegalStateException("Subscriber fell more than " + bufferSize + " events behind")
+                        : null;
+            }
+        }
+
+        private synchronized E poll() {
+            if (!conflate) {
+                return buffer.poll();
+            }
+            Iterator<E> events = latest.values().iterator();
+            if (!events.hasNext()) {
+                return null;
+            }
+            E next = events.next();
+            events.remove();
+            return next;
+        }
+    }
+}
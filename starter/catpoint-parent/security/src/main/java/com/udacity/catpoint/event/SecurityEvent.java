@@ -0,0 +1,25 @@
+package com.udacity.catpoint.event;
+
+/**
+ * Base class of everything published on the {@link EventBus}. Records when the event happened, and
+ * optionally the key of the sensor or camera it concerns so subscribers can listen to just that one.
+ */
+public abstract class SecurityEvent {
+
+    private final long timestampMillis;
+
+    protected SecurityEvent() {
+        this.timestampMillis = System.currentTimeMillis();
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return Key matched against keyed subscriptions, or null if the event is not about a single source
+     */
+    public Object getKey() {
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.udacity.catpoint.event;
+
+import com.udacity.catpoint.data.Sensor;
+
+/**
+ * Published when a sensor is added to the system or removed from it. Keyed by sensor id.
+ */
+public class SensorListChangedEvent extends SecurityEvent {
+
+    private final Sensor sensor;
+    private final boolean added;
+
+    public SensorListChangedEvent(Sensor sensor, boolean added) {
+        this.sensor = sensor;
+        this.added = added;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    /**
+     * @return True if the sensor was added, false if it was removed
+     */
+    public boolean isAdded() {
+        return added;
+    }
+
+    @Override
+    public Object getKey() {
+        return sensor.getSensorId();
+    }
+}
@@ -0,0 +1,57 @@
+package com.udacity.catpoint.event;
+
+import com.udacity.catpoint.data.Sensor;
+
+/**
+ * Published for each sensor whose activation status is set, including the resets done when the
+ * system is armed. Keyed by sensor id.
+ */
+public class SensorStatusChangedEvent extends SecurityEvent {
+
+    private final Sensor sensor;
+    private final boolean wasActive;
+    private final boolean active;
+    private final boolean armingReset;
+
+    public SensorStatusChangedEvent(Sensor sensor, boolean wasActive, boolean active) {
+        this(sensor, wasActive, active, false);
+    }
+
+    public SensorStatusChangedEvent(Sensor sensor, boolean wasActive, boolean active, boolean armingReset) {
+        this.sensor = sensor;
+        this.wasActive = wasActive;
+        this.active = active;
+        this.armingReset = armingReset;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    public boolean wasActive() {
+        return wasActive;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return True if the sensor's state actually changed, false if it was set to the state it already had
+     */
+    public boolean isChange() {
+        return wasActive != active;
+    }
+
+    /**
+     * @return True if the sensor was reset by arming the system rather than set on its own
+     */
+    public boolean isArmingReset() {
+        return armingReset;
+    }
+
+    @Override
+    public Object getKey() {
+        return sensor.getSensorId();
+    }
+}
@@ -0,0 +1,43 @@
+package com.udacity.catpoint.event;
+
+import com.udacity.catpoint.data.Sensor;
+
+/**
+ * Published when a supervised sensor's heartbeat becomes overdue, and again when a heartbeat from
+ * it arrives after that. Keyed by sensor id.
+ */
+public class SensorSupervisionEvent extends SecurityEvent {
+
+    private final Sensor sensor;
+    private final boolean overdue;
+    private final long silentMillis;
+
+    public SensorSupervisionEvent(Sensor sensor, boolean overdue, long silentMillis) {
+        this.sensor = sensor;
+        this.overdue = overdue;
+        this.silentMillis = silentMillis;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    /**
+     * @return True if the sensor's heartbeat is overdue, false if the sensor has reported again
+     */
+    public boolean isOverdue() {
+        return overdue;
+    }
+
+    /**
+     * @return How long the sensor had been silent when the event was raised
+     */
+    public long getSilentMillis() {
+        return silentMillis;
+    }
+
+    @Override
+    public Object getKey() {
+        return sensor.getSensorId();
+    }
+}
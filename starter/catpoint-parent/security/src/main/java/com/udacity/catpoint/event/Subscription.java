@@ -0,0 +1,12 @@
+package com.udacity.catpoint.event;
+
+/**
+ * Handle returned by the {@link EventBus} for a registered subscriber.
+ */
+public interface Subscription {
+
+    /**
+     * Stops delivering events to the subscriber. Calling it more than once has no effect.
+     */
+    void cancel();
+}
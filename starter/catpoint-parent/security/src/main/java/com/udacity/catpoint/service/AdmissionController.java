@@ -0,0 +1,308 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission layer in front of a {@link SecurityService} for event storms. Calls are queued in one of
+ * four bounded lanes and run by a single worker thread, always taking the oldest call from the most
+ * important non-empty lane: arming commands first, then door and window sensors, then motion
+ * sensors, then camera images. A flood of motion events or frames therefore never delays an arming
+ * command or a door opening by more than the call already running.
+ * <p>
+ * Less important work is shed before it can build up. Each lane has a capacity, and optionally a
+ * backlog, counted over all lanes, at which new calls to it are refused. By default images are shed
+ * once 64 calls are waiting and motion events once 512 are waiting, while door, window and arming
+ * calls are only limited by their capacity. A refused sensor change or arming command is reported
+ * to the caller; when the image lane is full the oldest frame is dropped instead, as a newer frame is
+ * more useful. Refused and dropped calls are counted per lane.
+ * <p>
+ * The worker is the only thread that calls the service, so once a controller is started all changes
+ * should go through it.
+ */
+public class AdmissionController implements AutoCloseable {
+
+    /** Lanes in order of priority */
+    public enum Lane { ARMING, DOOR_WINDOW, MOTION, IMAGE }
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+    private static final Lane[] LANES = Lane.values();
+
+    private final SecurityService securityService;
+    private final int[] capacity = new int[LANES.length];
+    private final int[] shedAt = new int[LANES.length];
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Call>[] queues = new ArrayDeque[LANES.length];
+    private int backlog;
+    private boolean closed;
+    private Thread worker;
+
+    private final LongAdder[] processed = new LongAdder[LANES.length];
+    private final LongAdder[] dropped = new LongAdder[LANES.length];
+    private final LongAccumulator[] maxDelay = new LongAccumulator[LANES.length];
+    private final LongAdder failures = new LongAdder();
+
+    private AdmissionController(Builder builder) {
+        this.securityService = builder.securityService;
+        for (int i = 0; i < LANES.length; i++) {
+            capacity[i] = builder.capacity[i];
+            shedAt[i] = builder.shedAt[i];
+            queues[i] = new ArrayDeque<>();
+            processed[i] = new LongAdder();
+            dropped[i] = new LongAdder();
+            maxDelay[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    public static Builder builder(SecurityService securityService) {
+        return new Builder(securityService);
+    }
+
+    /**
+     * Starts the worker on a new daemon thread with the given name.
+     */
+    public void start(String threadName) {
+        lock.lock();
+        try {
+            if (worker != null) {
+                throw new IllegalStateException("Admission controller already started");
+            }
+            worker = new Thread(this::run, threadName);
+            worker.setDaemon(true);
+            worker.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues an arming command.
+     * @return False if the command was refused
+     */
+    public boolean submitArmingStatus(ArmingStatus armingStatus) {
+        return submit(Lane.ARMING, () -> securityService.setArmingStatus(armingStatus));
+    }
+
+    /**
+     * Queues a sensor change in the lane of the sensor's type.
+     * @return False if the change was refused
+     */
+    public boolean submitSensorActivation(Sensor sensor, boolean active) {
+        Lane lane = sensor.getSensorType() == SensorType.MOTION ? Lane.MOTION : Lane.DOOR_WINDOW;
+        return submit(lane, () -> securityService.changeSensorActivationStatus(sensor, active));
+    }
+
+    /**
+     * Queues a camera image. The image must not be changed after it is submitted.
+     * @return False if the image was refused because too much work is waiting
+     */
+    public boolean submitImage(String cameraId, BufferedImage image) {
+        return submit(Lane.IMAGE, () -> securityService.processImage(cameraId, image));
+    }
+
+    private boolean submit(Lane lane, Runnable action) {
+        int i = lane.ordinal();
+        Call call = new Call(action, System.nanoTime());
+        lock.lock();
+        try {
+            if (closed || backlog >= shedAt[i]) {
+                dropped[i].increment();
+                return false;
+            }
+            ArrayDeque<Call> queue = queues[i];
+            if (queue.size() >= capacity[i]) {
+                if (lane != Lane.IMAGE) {
+                    dropped[i].increment();
+                    return false;
+                }
+                queue.poll();
+                backlog--;
+                dropped[i].increment();
+            }
+            queue.add(call);
+            backlog++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Call call;
+            int lane = -1;
+            lock.lock();
+            try {
+                while (backlog == 0 && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                call = null;
+                for (int i = 0; call == null; i++) {
+                    call = queues[i].poll();
+                    lane = i;
+                }
+                backlog--;
+            } finally {
+                lock.unlock();
+            }
+
+            maxDelay[lane].accumulate(System.nanoTime() - call.enqueuedNanos);
+            try {
+                call.action.run();
+                processed[lane].increment();
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Security service call in lane {} failed", LANES[lane], e);
+            }
+        }
+    }
+
+    /**
+     * @return Number of calls waiting in the lane
+     */
+    public int getQueued(Lane lane) {
+        lock.lock();
+        try {
+            return queues[lane.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of calls from the lane that have run
+     */
+    public long getProcessed(Lane lane) {
+        return processed[lane.ordinal()].sum();
+    }
+
+    /**
+     * @return Number of calls to the lane that were refused, or dropped from it, without running
+     */
+    public long getDropped(Lane lane) {
+        return dropped[lane.ordinal()].sum();
+    }
+
+    /**
+     * @return Longest time a call from the lane waited before it started running
+     */
+    public Duration getMaxQueueDelay(Lane lane) {
+        return Duration.ofNanos(maxDelay[lane.ordinal()].get());
+    }
+
+    /**
+     * @return Number of calls that threw an exception
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Stops accepting calls and stops the worker after the call it is running. Calls still waiting
+     * are counted as dropped.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (int i = 0; i < LANES.length; i++) {
+                dropped[i].add(queues[i].size());
+                queues[i].clear();
+            }
+            backlog = 0;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the worker to stop after {@link #close()}.
+     * @return True if the worker stopped, or was never started, within the timeout
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread thread;
+        lock.lock();
+        try {
+            thread = worker;
+        } finally {
+            lock.unlock();
+        }
+        if (thread == null) {
+            return true;
+        }
+        thread.join(Math.max(1, unit.toMillis(timeout)));
+        return !thread.isAlive();
+    }
+
+    private static class Call {
+        final Runnable action;
+        final long enqueuedNanos;
+
+        Call(Runnable action, long enqueuedNanos) {
+            this.action = action;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    public static class Builder {
+        private final SecurityService securityService;
+        private final int[] capacity = {64, 1024, 1024, 16};
+        private final int[] shedAt = {Integer.MAX_VALUE, Integer.MAX_VALUE, 512, 64};
+
+        private Builder(SecurityService securityService) {
+            this.securityService = securityService;
+        }
+
+        /** Most calls that may wait in the lane. Defaults to 64 arming commands, 1024 sensor changes per lane and 16 images. */
+        public Builder capacity(Lane lane, int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be positive");
+            }
+            this.capacity[lane.ordinal()] = capacity;
+            return this;
+        }
+
+        /** Number of calls waiting over all lanes at which new calls to the lane are refused. */
+        public Builder shedAt(Lane lane, int backlog) {
+            if (backlog < 1) {
+                throw new IllegalArgumentException("Shedding backlog must be positive");
+            }
+            this.shedAt[lane.ordinal()] = backlog;
+            return this;
+        }
+
+        /** Never refuse calls to the lane because of the backlog; only its capacity applies. */
+        public Builder neverShed(Lane lane) {
+            this.shedAt[lane.ordinal()] = Integer.MAX_VALUE;
+            return this;
+        }
+
+        public AdmissionController build() {
+            return new AdmissionController(this);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for the security service setting the alarm status, spanning the repository
+ * write and the notification of listeners. Keeps its stack trace, which shows what caused the change.
+ */
+@Name("com.udacity.catpoint.AlarmTransition")
+@Label("Alarm Transition")
+@Category({"Catpoint", "Security Service"})
+@Description("The alarm status was set")
+final class AlarmTransitionEvent extends Event {
+
+    @Label("Alarm Status")
+    String status;
+
+    //stands in for every transition until Flight Recorder is first started; never committed
+    private static final AlarmTransitionEvent DISABLED = new AlarmTransitionEvent();
+
+    static AlarmTransitionEvent start() {
+        if (!FlightRecorder.isInitialized()) {
+            return DISABLED;
+        }
+        AlarmTransitionEvent event = new AlarmTransitionEvent();
+        event.begin();
+        return event;
+    }
+
+    void complete(AlarmStatus status) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.status = status.name();
+            commit();
+        }
+    }
+}
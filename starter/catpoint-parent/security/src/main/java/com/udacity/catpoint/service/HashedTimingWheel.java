@@ -0,0 +1,140 @@
+package com.udacity.catpoint.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for very large numbers of timeouts with a coarse resolution. Time is divided
+ * into ticks, and a timeout is kept in the bucket of the tick it expires in, modulo the number of
+ * buckets, together with the number of whole revolutions left. Scheduling, rescheduling and
+ * cancelling are O(1), as each timeout is its own node in its bucket's doubly linked list, and
+ * advancing the wheel by one tick only visits the timeouts in one bucket.
+ * <p>
+ * Not thread safe; callers guard the wheel themselves.
+ */
+final class HashedTimingWheel<T extends HashedTimingWheel.Timeout> {
+
+    /**
+     * Node of a bucket's list. Subclasses carry whatever the timeout is about.
+     */
+    static class Timeout {
+        Timeout prev;
+        Timeout next;
+        int bucket = -1;
+        long rounds;
+
+        boolean isScheduled() {
+            return bucket >= 0;
+        }
+    }
+
+    private final long startNanos;
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] buckets;
+    private long tick;
+    private int size;
+
+    /**
+     * @param startNanos Time of tick 0
+     * @param tickNanos Resolution of the wheel
+     * @param wheelSize Number of buckets, rounded up to a power of two
+     */
+    HashedTimingWheel(long startNanos, long tickNanos, int wheelSize) {
+        if (tickNanos <= 0 || wheelSize < 1 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Tick must be positive and the wheel must have between 1 and 2^30 buckets");
+        }
+        int buckets = wheelSize == 1 ? 1 : Integer.highestOneBit((wheelSize - 1) << 1);
+        this.startNanos = startNanos;
+        this.tickNanos = tickNanos;
+        this.mask = buckets - 1;
+        this.buckets = new Timeout[buckets];
+    }
+
+    /**
+     * Schedules the timeout to expire at the first tick at or after the deadline, moving it if it was
+     * already scheduled. A deadline that has passed expires on the next tick.
+     */
+    void schedule(T timeout, long deadlineNanos) {
+        if (timeout.isScheduled()) {
+            unlink(timeout);
+        }
+        long deadlineTick = Math.max(tick + 1, -Math.floorDiv(startNanos - deadlineNanos, tickNanos));
+        timeout.rounds = (deadlineTick - tick - 1) / buckets.length;
+        timeout.bucket = (int) (deadlineTick & mask);
+        //added at the head, so a timeout rescheduled while its bucket is being expired is not visited again
+        Timeout head = buckets[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        size++;
+    }
+
+    /**
+     * @return True if the timeout was scheduled
+     */
+    boolean cancel(T timeout) {
+        if (!timeout.isScheduled()) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    /**
+     * Processes every tick up to the given time, passing each expired timeout to the handler. The
+     * timeout is no longer scheduled when the handler sees it, and the handler may schedule it again.
+     * @return Number of timeouts that expired
+     */
+    @SuppressWarnings("unchecked")
+    int advance(long nowNanos, Consumer<? super T> onExpired) {
+        long target = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        int expired = 0;
+        while (tick < target) {
+            tick++;
+            Timeout timeout = buckets[(int) (tick & mask)];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                } else {
+                    unlink(timeout);
+                    expired++;
+                    onExpired.accept((T) timeout);
+                }
+                timeout = next;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return Time at which the next tick is due
+     */
+    long nextTickNanos() {
+        return startNanos + (tick + 1) * tickNanos;
+    }
+
+    /**
+     * @return Number of scheduled timeouts
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,54 @@
+package com.udacity.catpoint.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for delivering one change to the status listeners and event bus subscribers.
+ * Only dispatches slower than the threshold are recorded by default, so continuous recordings show
+ * the slow listener callbacks without one event per callback.
+ */
+@Name("com.udacity.catpoint.ListenerDispatch")
+@Label("Listener Dispatch")
+@Category({"Catpoint", "Security Service"})
+@Description("Status listeners and event subscribers were notified of a change")
+@Threshold("1 ms")
+@StackTrace(false)
+final class ListenerDispatchEvent extends Event {
+
+    @Label("Callback")
+    String callback;
+
+    @Label("Status Listeners")
+    int listeners;
+
+    //handed out while Flight Recorder has never been started, so untraced calls allocate nothing
+    private static final ListenerDispatchEvent DISABLED = new ListenerDispatchEvent();
+
+    static ListenerDispatchEvent start() {
+        if (!FlightRecorder.isInitialized()) {
+            return DISABLED;
+        }
+        ListenerDispatchEvent event = new ListenerDispatchEvent();
+        event.begin();
+        return event;
+    }
+
+    void complete(String callback, int listeners) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.callback = callback;
+            this.listeners = listeners;
+            commit();
+        }
+    }
+}
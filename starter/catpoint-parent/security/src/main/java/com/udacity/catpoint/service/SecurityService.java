@@ -1,14 +1,26 @@
 package com.udacity.catpoint.service;
 
+import com.google.common.collect.ImmutableCollection;
 import com.udacity.catpoint.application.StatusListener;
 import com.udacity.catpoint.data.AlarmStatus;
 import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.SecurityBatch;
 import com.udacity.catpoint.data.SecurityRepository;
 import com.udacity.catpoint.data.Sensor;
-import com.udacity.image.service.FakeImageService;
+import com.udacity.catpoint.data.SensorSnapshot;
+import com.udacity.catpoint.event.AlarmStatusChangedEvent;
+import com.udacity.catpoint.event.ArmingStatusChangedEvent;
+import com.udacity.catpoint.event.CatDetectedEvent;
+import com.udacity.catpoint.event.EventBus;
+import com.udacity.catpoint.event.EventPublisher;
+import com.udacity.catpoint.event.SensorListChangedEvent;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
+import com.udacity.catpoint.event.SensorSupervisionEvent;
+import com.udacity.image.service.ImageService;
 
 import java.awt.image.BufferedImage;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -17,51 +29,144 @@ import java.util.Set;
  * <p>
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ * <p>
+ * Changes are published as typed events on the service's {@link EventBus}. {@link StatusListener}s
+ * are still supported and are called for every change, as before. Consumers that should not run on
+ * the calling thread, or that may fall behind, can subscribe to the {@link EventPublisher} of each
+ * kind of change instead.
  */
 public class SecurityService {
 
-  private final FakeImageService imageService;
+  public static final String DEFAULT_CAMERA = "default";
+  public static final float DEFAULT_CONFIDENCE_THRESHOLD = 50.0f;
+
+  private final ImageService imageService;
   private final SecurityRepository securityRepository;
   private final Set<StatusListener> statusListeners = new HashSet<>();
+  //copy of statusListeners that is iterated on every change, since iterating an array allocates nothing
+  private StatusListener[] listeners = new StatusListener[0];
+  private final EventBus eventBus;
+  private final EventPublisher<AlarmStatusChangedEvent> alarmStatusPublisher;
+  private final EventPublisher<ArmingStatusChangedEvent> armingStatusPublisher;
+  private final EventPublisher<SensorStatusChangedEvent> sensorStatusPublisher;
+  private final EventPublisher<CatDetectedEvent> catDetectedPublisher;
   private boolean isCatOnCam = false;
+  private float confidenceThreshold = DEFAULT_CONFIDENCE_THRESHOLD;
 
-  public SecurityService(SecurityRepository securityRepository, FakeImageService imageService) {
+  public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
+    this(securityRepository, imageService, new EventBus());
+  }
+
+  public SecurityService(SecurityRepository securityRepository, ImageService imageService, EventBus eventBus) {
     this.securityRepository = securityRepository;
     this.imageService = imageService;
+    this.eventBus = eventBus;
+    this.alarmStatusPublisher = new EventPublisher<>(eventBus, AlarmStatusChangedEvent.class);
+    this.armingStatusPublisher = new EventPublisher<>(eventBus, ArmingStatusChangedEvent.class);
+    this.sensorStatusPublisher = new EventPublisher<>(eventBus, SensorStatusChangedEvent.class);
+    this.catDetectedPublisher = new EventPublisher<>(eventBus, CatDetectedEvent.class);
+  }
+
+  /**
+   * @return The bus this service publishes its events on
+   */
+  public EventBus getEventBus() {
+    return eventBus;
+  }
+
+  /**
+   * @return Back-pressured stream of alarm status changes
+   */
+  public EventPublisher<AlarmStatusChangedEvent> getAlarmStatusPublisher() {
+    return alarmStatusPublisher;
+  }
+
+  /**
+   * @return Back-pressured stream of arming status changes
+   */
+  public EventPublisher<ArmingStatusChangedEvent> getArmingStatusPublisher() {
+    return armingStatusPublisher;
+  }
+
+  /**
+   * @return Back-pressured stream of sensor activation changes, keyed by sensor id when conflated
+   */
+  public EventPublisher<SensorStatusChangedEvent> getSensorStatusPublisher() {
+    return sensorStatusPublisher;
+  }
+
+  /**
+   * @return Back-pressured stream of image verdicts, keyed by camera id when conflated
+   */
+  public EventPublisher<CatDetectedEvent> getCatDetectedPublisher() {
+    return catDetectedPublisher;
   }
 
   /**
    * Sets the current arming status for the system. Changing the arming status
    * may update both the alarm status.
+   * <p>
+   * Arming resets every active sensor. The resets, the new arming status and any resulting
+   * alarm change are written to the repository as one batch, and listeners hear about them once.
    *
    * @param armingStatus
    */
   public void setArmingStatus(ArmingStatus armingStatus) {
-    switch (armingStatus) {
-      case DISARMED:
-//      9. If the system is disarmed, set the status to no alarm.
-        setAlarmStatus(AlarmStatus.NO_ALARM);
-        break;
-      case ARMED_HOME: {
-        if (isCatOnCam) {
-          setAlarmStatus(AlarmStatus.ALARM);
+    if (armingStatus == ArmingStatus.DISARMED) {
+//    9. If the system is disarmed, set the status to no alarm.
+      setAlarmStatus(AlarmStatus.NO_ALARM);
+      securityRepository.setArmingStatus(armingStatus);
+      notifyArmingStatus(armingStatus);
+      return;
+    }
+
+    var batch = new SecurityBatch().setArmingStatus(armingStatus);
+    for (Sensor sensor : getSensors()) {
+      if (sensor.getActive()) {
+        sensor.setActive(false);
+        batch.updateSensor(sensor);
+      }
+    }
+    boolean sensorsReset = !batch.getUpdatedSensors().isEmpty();
+
+    AlarmStatus alarmStatus = null;
+    if (armingStatus == ArmingStatus.ARMED_HOME && isCatOnCam) {
+      alarmStatus = AlarmStatus.ALARM;
+    } else if (sensorsReset && getAlarmStatus() == AlarmStatus.PENDING_ALARM) {
+//    3. If pending alarm and all sensors are inactive, return to no alarm state.
+      alarmStatus = AlarmStatus.NO_ALARM;
+    }
+    batch.setAlarmStatus(alarmStatus);
+
+    var transition = AlarmTransitionEvent.start();
+    securityRepository.applyBatch(batch);
+    notifyArmingStatus(armingStatus);
+    if (sensorsReset) {
+      var dispatch = ListenerDispatchEvent.start();
+      for (StatusListener listener : listeners) {
+        listener.sensorStatusChanged();
+      }
+      if (eventBus.hasSubscribers(SensorStatusChangedEvent.class)) {
+        for (Sensor sensor : batch.getUpdatedSensors()) {
+          eventBus.publish(new SensorStatusChangedEvent(sensor, true, false, true));
         }
       }
-      case ARMED_AWAY:
-        var refreshingSensors = new HashSet<>(getSensors());
-        refreshingSensors.forEach(s -> changeSensorActivationStatus(s, false));
-        break;
+      dispatch.complete("sensorStatusChanged", listeners.length);
+    }
+    if (alarmStatus != null) {
+      notifyAlarmStatus(alarmStatus);
+      transition.complete(alarmStatus);
     }
-    securityRepository.setArmingStatus(armingStatus);
   }
 
   /**
    * Internal method that handles alarm status changes based on whether
    * the camera currently shows a cat.
    *
+   * @param cameraId Camera the image came from
    * @param cat True if a cat is detected, otherwise false.
    */
-  private void catDetected(Boolean cat) {
+  private void catDetected(String cameraId, boolean cat) {
     if (cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
 //    7. If the image service identifies an image containing a cat while the system is armed-home, put the system into
 //    alarm status.
@@ -71,7 +176,14 @@ public class SecurityService {
 //    the sensors are not active.
       setAlarmStatus(AlarmStatus.NO_ALARM);
     }
-    statusListeners.forEach(sl -> sl.catDetected(cat));
+    var dispatch = ListenerDispatchEvent.start();
+    for (StatusListener listener : listeners) {
+      listener.catDetected(cat);
+    }
+    if (eventBus.hasSubscribers(CatDetectedEvent.class)) {
+      eventBus.publish(new CatDetectedEvent(cameraId, cat));
+    }
+    dispatch.complete("catDetected", listeners.length);
     isCatOnCam = cat;
   }
 
@@ -82,10 +194,12 @@ public class SecurityService {
    */
   public void addStatusListener(StatusListener statusListener) {
     statusListeners.add(statusListener);
+    listeners = statusListeners.toArray(new StatusListener[0]);
   }
 
   public void removeStatusListener(StatusListener statusListener) {
     statusListeners.remove(statusListener);
+    listeners = statusListeners.toArray(new StatusListener[0]);
   }
 
   /**
@@ -94,8 +208,27 @@ public class SecurityService {
    * @param status
    */
   public void setAlarmStatus(AlarmStatus status) {
+    var transition = AlarmTransitionEvent.start();
     securityRepository.setAlarmStatus(status);
-    statusListeners.forEach(sl -> sl.notify(status));
+    notifyAlarmStatus(status);
+    transition.complete(status);
+  }
+
+  private void notifyAlarmStatus(AlarmStatus status) {
+    var dispatch = ListenerDispatchEvent.start();
+    for (StatusListener listener : listeners) {
+      listener.notify(status);
+    }
+    if (eventBus.hasSubscribers(AlarmStatusChangedEvent.class)) {
+      eventBus.publish(new AlarmStatusChangedEvent(status));
+    }
+    dispatch.complete("notify", listeners.length);
+  }
+
+  private void notifyArmingStatus(ArmingStatus status) {
+    if (eventBus.hasSubscribers(ArmingStatusChangedEvent.class)) {
+      eventBus.publish(new ArmingStatusChangedEvent(status));
+    }
   }
 
   /**
@@ -130,7 +263,23 @@ public class SecurityService {
   }
 
   private boolean anySensorActivated() {
-    return securityRepository.getSensors().stream().anyMatch(Sensor::getActive);
+    Set<Sensor> sensors = securityRepository.getSensors();
+    if (sensors instanceof ImmutableCollection) {
+      //snapshot sets are read through their cached list view, which needs no iterator
+      List<Sensor> list = ((ImmutableCollection<Sensor>) sensors).asList();
+      for (int i = 0; i < list.size(); i++) {
+        if (list.get(i).getActive()) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (Sensor sensor : sensors) {
+      if (sensor.getActive()) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -140,11 +289,16 @@ public class SecurityService {
    * @param active
    */
   public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+    var change = SensorChangeEvent.start();
     var isSensorActivated = sensor.getActive();
 
     sensor.setActive(active);
     securityRepository.updateSensor(sensor);
-    statusListeners.forEach(StatusListener::sensorStatusChanged);
+    var dispatch = ListenerDispatchEvent.start();
+    for (StatusListener listener : listeners) {
+      listener.sensorStatusChanged();
+    }
+    dispatch.complete("sensorStatusChanged", listeners.length);
 
 //    5. If a sensor is activated while already active and the system is in pending state, change it to alarm state.
 //    6. If a sensor is deactivated while already inactive, make no changes to the alarm state.
@@ -153,7 +307,25 @@ public class SecurityService {
     } else if (isSensorActivated) {
       handleSensorDeactivated();
     }
+    //published once the alarm rules have run, so subscribers see the alarm status the change led to
+    if (eventBus.hasSubscribers(SensorStatusChangedEvent.class)) {
+      eventBus.publish(new SensorStatusChangedEvent(sensor, Boolean.TRUE.equals(isSensorActivated), active));
+    }
+    change.complete(sensor, Boolean.TRUE.equals(isSensorActivated), active);
+  }
 
+  /**
+   * Reports that a sensor's heartbeat became overdue, or that the sensor reported again. Only
+   * publishes a {@link SensorSupervisionEvent}, so it may be called from any thread.
+   *
+   * @param sensor The supervised sensor
+   * @param overdue True if the heartbeat is overdue, false if it has resumed
+   * @param silentMillis How long the sensor had been silent
+   */
+  public void sensorSupervisionChanged(Sensor sensor, boolean overdue, long silentMillis) {
+    if (eventBus.hasSubscribers(SensorSupervisionEvent.class)) {
+      eventBus.publish(new SensorSupervisionEvent(sensor, overdue, silentMillis));
+    }
   }
 
   /**
@@ -163,7 +335,38 @@ public class SecurityService {
    * @param currentCameraImage
    */
   public void processImage(BufferedImage currentCameraImage) {
-    catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+    processImage(DEFAULT_CAMERA, currentCameraImage);
+  }
+
+  /**
+   * Same as {@link #processImage(BufferedImage)} for an image from a specific camera. The camera id
+   * is passed on in the resulting {@link CatDetectedEvent}.
+   */
+  public void processImage(String cameraId, BufferedImage currentCameraImage) {
+    catDetected(cameraId, imageService.imageContainsCat(cameraId, currentCameraImage, confidenceThreshold));
+  }
+
+  public float getConfidenceThreshold() {
+    return confidenceThreshold;
+  }
+
+  /**
+   * Sets the minimum confidence, from 0 to 100, the image service needs to report a cat.
+   *
+   * @param confidenceThreshold
+   */
+  public void setConfidenceThreshold(float confidenceThreshold) {
+    if (confidenceThreshold < 0 || confidenceThreshold > 100) {
+      throw new IllegalArgumentException("Confidence threshold must be between 0 and 100");
+    }
+    this.confidenceThreshold = confidenceThreshold;
+  }
+
+  /**
+   * @return True if the last image scanned contained a cat
+   */
+  public boolean isCatDetected() {
+    return isCatOnCam;
   }
 
   public AlarmStatus getAlarmStatus() {
@@ -174,12 +377,25 @@ public class SecurityService {
     return securityRepository.getSensors();
   }
 
+  /**
+   * @return The current immutable sensor snapshot, including a ready-made sorted view for display.
+   */
+  public SensorSnapshot getSensorSnapshot() {
+    return securityRepository.getSensorSnapshot();
+  }
+
   public void addSensor(Sensor sensor) {
     securityRepository.addSensor(sensor);
+    if (eventBus.hasSubscribers(SensorListChangedEvent.class)) {
+      eventBus.publish(new SensorListChangedEvent(sensor, true));
+    }
   }
 
   public void removeSensor(Sensor sensor) {
     securityRepository.removeSensor(sensor);
+    if (eventBus.hasSubscribers(SensorListChangedEvent.class)) {
+      eventBus.publish(new SensorListChangedEvent(sensor, false));
+    }
   }
 
   public ArmingStatus getArmingStatus() {
@@ -0,0 +1,63 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.Sensor;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one call to {@link SecurityService#changeSensorActivationStatus},
+ * including the repository write, listener callbacks and any resulting alarm change.
+ */
+@Name("com.udacity.catpoint.SensorChange")
+@Label("Sensor Change")
+@Category({"Catpoint", "Security Service"})
+@Description("A sensor was set active or inactive")
+@StackTrace(false)
+final class SensorChangeEvent extends Event {
+
+    @Label("Sensor Id")
+    String sensorId;
+
+    @Label("Sensor Name")
+    String sensorName;
+
+    @Label("Sensor Type")
+    String sensorType;
+
+    @Label("Was Active")
+    boolean wasActive;
+
+    @Label("Active")
+    boolean active;
+
+    private static final SensorChangeEvent DISABLED = new SensorChangeEvent();
+
+    static SensorChangeEvent start() {
+        if (!FlightRecorder.isInitialized()) {
+            return DISABLED;
+        }
+        SensorChangeEvent event = new SensorChangeEvent();
+        event.begin();
+        return event;
+    }
+
+    void complete(Sensor sensor, boolean wasActive, boolean active) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.sensorId = String.valueOf(sensor.getSensorId());
+            this.sensorName = sensor.getName();
+            this.sensorType = String.valueOf(sensor.getSensorType());
+            this.wasActive = wasActive;
+            this.active = active;
+            commit();
+        }
+    }
+}
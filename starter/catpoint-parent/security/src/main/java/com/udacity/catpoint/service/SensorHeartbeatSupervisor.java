@@ -0,0 +1,265 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.Sensor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Watches the heartbeats of registered sensors and reports, through
+ * {@link SecurityService#sensorSupervisionChanged}, each sensor that stays silent for longer than the
+ * heartbeat interval plus a grace period, and each overdue sensor that reports again.
+ * <p>
+ * Deadlines are kept on a single {@link HashedTimingWheel}. A heartbeat only records its time, which
+ * is a lock-free write to the sensor's entry and does not touch the wheel. When an entry's deadline
+ * comes up, the supervisor checks that time and either moves the entry to its new deadline, an O(1)
+ * relink, or declares the sensor overdue. Each sensor is therefore visited about once per interval
+ * however often it reports, which keeps a million sensors at a 30 second interval to a few tens of
+ * thousands of cheap visits per second on one thread.
+ */
+public class SensorHeartbeatSupervisor implements AutoCloseable {
+
+    private final SecurityService securityService;
+    private final LongSupplier nanoClock;
+    private final long timeoutNanos;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final HashedTimingWheel<Entry> wheel;
+    private final Object wheelLock = new Object();
+    private int overdueCount;
+    private volatile boolean running;
+    private Thread thread;
+
+    private SensorHeartbeatSupervisor(Builder builder) {
+        this.securityService = builder.securityService;
+        this.nanoClock = builder.nanoClock;
+        this.timeoutNanos = builder.interval.plus(builder.grace).toNanos();
+        this.wheel = new HashedTimingWheel<>(nanoClock.getAsLong(), builder.tick.toNanos(), builder.wheelSize);
+    }
+
+    public static Builder builder(SecurityService securityService) {
+        return new Builder(securityService);
+    }
+
+    /**
+     * Starts supervising the sensor, counting its first heartbeat interval from now.
+     */
+    public void register(Sensor sensor) {
+        long now = nanoClock.getAsLong();
+        Entry entry = new Entry(sensor, now);
+        synchronized (wheelLock) {
+            Entry previous = entries.put(sensor.getSensorId(), entry);
+            if (previous != null) {
+                remove(previous);
+            }
+            wheel.schedule(entry, now + timeoutNanos);
+        }
+    }
+
+    /**
+     * Stops supervising the sensor.
+     */
+    public void unregister(Sensor sensor) {
+        synchronized (wheelLock) {
+            Entry entry = entries.remove(sensor.getSensorId());
+            if (entry != null) {
+                remove(entry);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        wheel.cancel(entry);
+        if (entry.overdue) {
+            entry.overdue = false;
+            overdueCount--;
+        }
+    }
+
+    /**
+     * Records a heartbeat from the sensor.
+     * @return False if the sensor is not supervised
+     */
+    public boolean heartbeat(UUID sensorId) {
+        Entry entry = entries.get(sensorId);
+        if (entry == null) {
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        long silentNanos = now - entry.lastHeartbeatNanos;
+        entry.lastHeartbeatNanos = now;
+        if (entry.overdue) {
+            boolean recovered = false;
+            synchronized (wheelLock) {
+                //the entry may have been unregistered, or recovered by another heartbeat, meanwhile
+                if (entry.overdue && entries.get(sensorId) == entry) {
+                    entry.overdue = false;
+                    overdueCount--;
+                    wheel.schedule(entry, now + timeoutNanos);
+                    recovered = true;
+                }
+            }
+            if (recovered) {
+                securityService.sensorSupervisionChanged(entry.sensor, false, TimeUnit.NANOSECONDS.toMillis(silentNanos));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Processes all deadlines up to now. Called by the supervisor's thread, or directly by tests.
+     * @return Number of sensors that became overdue
+     */
+    int advance() {
+        long now = nanoClock.getAsLong();
+        List<Entry> overdue = new ArrayList<>();
+        synchronized (wheelLock) {
+            wheel.advance(now, entry -> {
+                long deadline = entry.lastHeartbeatNanos + timeoutNanos;
+                if (deadline > now) {
+                    wheel.schedule(entry, deadline);
+                    return;
+                }
+                entry.overdue = true;
+                //a heartbeat that wrote its time before overdue was set saw it still false and will not
+                //report a recovery, so read the time again now that it is set
+                deadline = entry.lastHeartbeatNanos + timeoutNanos;
+                if (deadline > now) {
+                    entry.overdue = false;
+                    wheel.schedule(entry, deadline);
+                    return;
+                }
+                overdueCount++;
+                overdue.add(entry);
+            });
+        }
+        for (Entry entry : overdue) {
+            securityService.sensorSupervisionChanged(entry.sensor, true,
+                    TimeUnit.NANOSECONDS.toMillis(now - entry.lastHeartbeatNanos));
+        }
+        return overdue.size();
+    }
+
+    /**
+     * Starts advancing the wheel on a new daemon thread with the given name, once per tick.
+     */
+    public synchronized void start(String threadName) {
+        if (thread != null) {
+            throw new IllegalStateException("Supervisor already started");
+        }
+        running = true;
+        thread = new Thread(() -> {
+            while (running) {
+                long wait;
+                synchronized (wheelLock) {
+                    wait = wheel.nextTickNanos() - nanoClock.getAsLong();
+                }
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else {
+                    advance();
+                }
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return True if the sensor is supervised and its heartbeat is overdue
+     */
+    public boolean isOverdue(UUID sensorId) {
+        Entry entry = entries.get(sensorId);
+        return entry != null && entry.overdue;
+    }
+
+    public int getSupervisedCount() {
+        return entries.size();
+    }
+
+    public int getOverdueCount() {
+        synchronized (wheelLock) {
+            return overdueCount;
+        }
+    }
+
+    /**
+     * Stops the supervisor's thread.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * One supervised sensor. The heartbeat time is written without locking; everything else is guarded by the wheel lock.
+     * A heartbeat writes its time and then reads the overdue flag, while the supervisor sets the flag and then reads the
+     * time, so at least one of them sees the other's write.
+     */
+    private static class Entry extends HashedTimingWheel.Timeout {
+        final Sensor sensor;
+        volatile long lastHeartbeatNanos;
+        volatile boolean overdue;
+
+        Entry(Sensor sensor, long now) {
+            this.sensor = sensor;
+            this.lastHeartbeatNanos = now;
+        }
+    }
+
+    public static class Builder {
+        private final SecurityService securityService;
+        private LongSupplier nanoClock = System::nanoTime;
+        private Duration interval = Duration.ofSeconds(30);
+        private Duration grace = Duration.ofSeconds(5);
+        private Duration tick = Duration.ofSeconds(1);
+        private int wheelSize = 512;
+
+        private Builder(SecurityService securityService) {
+            this.securityService = securityService;
+        }
+
+        /** How often sensors are expected to report. Defaults to 30 seconds. */
+        public Builder interval(Duration interval) {
+            this.interval = interval;
+            return this;
+        }
+
+        /** Extra time allowed after the interval before a heartbeat counts as overdue. Defaults to 5 seconds. */
+        public Builder grace(Duration grace) {
+            this.grace = grace;
+            return this;
+        }
+
+        /** Resolution of the timing wheel. Defaults to 1 second. */
+        public Builder tick(Duration tick) {
+            this.tick = tick;
+            return this;
+        }
+
+        /** Number of buckets of the timing wheel, rounded up to a power of two. */
+        public Builder wheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+            return this;
+        }
+
+        /** Source of nanosecond timestamps, for tests. Defaults to {@link System#nanoTime()}. */
+        public Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public SensorHeartbeatSupervisor build() {
+            return new SensorHeartbeatSupervisor(this);
+        }
+    }
+}
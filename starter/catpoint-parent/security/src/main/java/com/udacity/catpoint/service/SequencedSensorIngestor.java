@@ -0,0 +1,173 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.Sensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Idempotent front door for sensor activations arriving from gateways that retry. Every activation
+ * carries a sequence number that its sensor's gateway increases by one or more per event; only
+ * activations newer than any seen before for that sensor reach the {@link SecurityService}, so a
+ * retried event is dropped instead of escalating a pending alarm and persisting the sensors again.
+ * <p>
+ * Each sensor gets a slot in a few primitive arrays: the highest sequence applied, and a 64 bit mask
+ * of the sequences just below it that have been seen. An event at or below the high-water mark is a
+ * duplicate if its bit is set and out of order otherwise, and is dropped either way. An event more
+ * than {@link #WINDOW} below the mark is too old to tell apart, so it is dropped as stale. A gateway
+ * that restarts its numbering must be reported with {@link #forget(Sensor)}, otherwise its events are
+ * stale until they pass the old mark. Checking an event allocates nothing.
+ * <p>
+ * Calls are serialized, so events are applied in the order they are admitted.
+ */
+public class SequencedSensorIngestor {
+
+    /** How far below the high-water mark a sequence is still taken as a late or repeated event */
+    public static final int WINDOW = 64;
+
+    private final SecurityService securityService;
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private long[] highWater = new long[16];
+    private long[] seen = new long[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder outOfOrder = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    public SequencedSensorIngestor(SecurityService securityService) {
+        this.securityService = securityService;
+    }
+
+    /**
+     * Passes the activation on to the security service unless an event with the same or a later
+     * sequence number has already been applied for the sensor. The sequence is only recorded once the
+     * service has applied the activation, so if it throws, a retry of the same event is applied.
+     * @return True if the activation was applied
+     */
+    public synchronized boolean changeSensorActivationStatus(Sensor sensor, long sequence, boolean active) {
+        if (!admit(sensor.getSensorId(), sequence)) {
+            return false;
+        }
+        securityService.changeSensorActivationStatus(sensor, active);
+        markApplied(sensor.getSensorId(), sequence);
+        applied.increment();
+        return true;
+    }
+
+    /**
+     * Forgets a sensor's sequence numbers, for example when it is removed or its gateway is replaced
+     * or restarts its numbering. Its next event is applied whatever its sequence.
+     */
+    public synchronized void forget(Sensor sensor) {
+        Integer slot = slots.remove(sensor.getSensorId());
+        if (slot != null) {
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * @return True if the sequence is newer than any applied for the sensor. Dropped events are
+     * counted, and a late one is remembered so its retries count as duplicates.
+     */
+    private boolean admit(UUID sensorId, long sequence) {
+        Integer slot = slots.get(sensorId);
+        if (slot == null) {
+            return true;
+        }
+        int i = slot;
+        //bit k - 1 of seen[i] is set once sequence highWater[i] - k has been seen
+        long distance = highWater[i] - sequence;
+        if (distance < 0) {
+            return true;
+        }
+        if (distance == 0) {
+            duplicates.increment();
+            return false;
+        }
+        if (distance <= WINDOW) {
+            long bit = 1L << (distance - 1);
+            if ((seen[i] & bit) != 0) {
+                duplicates.increment();
+            } else {
+                seen[i] |= bit;
+                outOfOrder.increment();
+            }
+            return false;
+        }
+        stale.increment();
+        return false;
+    }
+
+    /**
+     * Makes an admitted sequence the sensor's new high-water mark.
+     */
+    private void markApplied(UUID sensorId, long sequence) {
+        Integer slot = slots.get(sensorId);
+        if (slot == null) {
+            int newSlot = allocateSlot();
+            slots.put(sensorId, newSlot);
+            highWater[newSlot] = sequence;
+            seen[newSlot] = 0;
+            return;
+        }
+        int i = slot;
+        //slide the window up, the old mark becomes bit shift - 1
+        long shift = sequence - highWater[i];
+        if (shift < WINDOW) {
+            seen[i] = (seen[i] << shift) | (1L << (shift - 1));
+        } else {
+            seen[i] = shift == WINDOW ? 1L << (WINDOW - 1) : 0;
+        }
+        highWater[i] = sequence;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == highWater.length) {
+            highWater = Arrays.copyOf(highWater, slotCount * 2);
+            seen = Arrays.copyOf(seen, slotCount * 2);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * @return Activations passed on to the security service
+     */
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    /**
+     * @return Activations dropped because the same sequence number had already been seen
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return Activations dropped because a later one had already been applied
+     */
+    public long getOutOfOrder() {
+        return outOfOrder.sum();
+    }
+
+    /**
+     * @return Activations dropped because their sequence number was more than {@link #WINDOW} behind
+     * the latest one applied
+     */
+    public long getStale() {
+        return stale.sum();
+    }
+}
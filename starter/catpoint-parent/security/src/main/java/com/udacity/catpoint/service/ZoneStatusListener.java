@@ -0,0 +1,12 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+
+/**
+ * Identifies a component that should be notified whenever the status of a single zone changes
+ */
+public interface ZoneStatusListener {
+    void zoneAlarmStatusChanged(String zone, AlarmStatus status);
+    void zoneArmingStatusChanged(String zone, ArmingStatus status);
+}
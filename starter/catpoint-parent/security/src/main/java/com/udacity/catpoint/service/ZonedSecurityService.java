@@ -0,0 +1,376 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.application.StatusListener;
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.SecurityBatch;
+import com.udacity.catpoint.data.SecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.image.service.ImageService;
+
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Security service for premises split into zones, each sensor belonging to the zone named by
+ * {@link Sensor#getZone()}. Every zone is armed and alarmed on its own and applies the same rules as
+ * {@link SecurityService}, but only against its own sensors: a zone keeps a running count of its
+ * active sensors, so an event costs time in proportion to the zone it touches, never the premise.
+ * <p>
+ * Each zone is guarded by its own lock, so events for different zones can be handled concurrently
+ * from different threads. The premise-wide status is rolled up incrementally from per-status zone
+ * counts: the premise alarm is the most severe zone alarm, and the premise arming status is the most
+ * armed zone. Only the roll-up and sensor changes are written to the repository, which is shared and
+ * therefore accessed under a single lock.
+ * <p>
+ * A sensor's zone must not change while it is registered; remove it and add it again instead.
+ */
+public class ZonedSecurityService {
+
+    private final SecurityRepository securityRepository;
+    private final ImageService imageService;
+    private final ConcurrentMap<String, Zone> zones = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray zonesByAlarm = new AtomicIntegerArray(AlarmStatus.values().length);
+    private final AtomicIntegerArray zonesByArming = new AtomicIntegerArray(ArmingStatus.values().length);
+    private final Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    private final Set<ZoneStatusListener> zoneListeners = new CopyOnWriteArraySet<>();
+    private volatile boolean catOnCam;
+    private volatile float confidenceThreshold = SecurityService.DEFAULT_CONFIDENCE_THRESHOLD;
+
+    //last roll-up written to the repository, guarded by securityRepository
+    private AlarmStatus premiseAlarmStatus;
+    private ArmingStatus premiseArmingStatus;
+
+    /**
+     * Creates the service and builds its zones from the sensors already in the repository. Those zones
+     * start out with the repository's arming and alarm status; zones created later start disarmed.
+     */
+    public ZonedSecurityService(SecurityRepository securityRepository, ImageService imageService) {
+        this.securityRepository = securityRepository;
+        this.imageService = imageService;
+        this.premiseAlarmStatus = securityRepository.getAlarmStatus();
+        this.premiseArmingStatus = securityRepository.getArmingStatus();
+        for (Sensor sensor : securityRepository.getSensors()) {
+            zones.computeIfAbsent(sensor.getZone(), name -> new Zone(name, premiseArmingStatus, premiseAlarmStatus))
+                    .add(sensor);
+        }
+    }
+
+    public void addStatusListener(StatusListener statusListener) {
+        statusListeners.add(statusListener);
+    }
+
+    public void removeStatusListener(StatusListener statusListener) {
+        statusListeners.remove(statusListener);
+    }
+
+    public void addZoneStatusListener(ZoneStatusListener zoneStatusListener) {
+        zoneListeners.add(zoneStatusListener);
+    }
+
+    public void removeZoneStatusListener(ZoneStatusListener zoneStatusListener) {
+        zoneListeners.remove(zoneStatusListener);
+    }
+
+    /**
+     * Adds a sensor to its zone, creating the zone if this is its first sensor.
+     */
+    public void addSensor(Sensor sensor) {
+        Zone zone = zones.computeIfAbsent(sensor.getZone(),
+                name -> new Zone(name, ArmingStatus.DISARMED, AlarmStatus.NO_ALARM));
+        synchronized (zone) {
+            zone.add(sensor);
+        }
+        synchronized (securityRepository) {
+            securityRepository.addSensor(sensor);
+        }
+        statusListeners.forEach(StatusListener::sensorStatusChanged);
+    }
+
+    /**
+     * Removes a sensor from its zone. The zone itself is kept, along with its arming status.
+     */
+    public void removeSensor(Sensor sensor) {
+        Zone zone = zone(sensor.getZone());
+        synchronized (zone) {
+            zone.remove(sensor);
+        }
+        synchronized (securityRepository) {
+            securityRepository.removeSensor(sensor);
+        }
+        statusListeners.forEach(StatusListener::sensorStatusChanged);
+    }
+
+    /**
+     * Change the activation status for the specified sensor and update the alarm status of its zone if necessary.
+     */
+    public void changeSensorActivationStatus(Sensor sensor, boolean active) {
+        Zone zone = zone(sensor.getZone());
+        AlarmStatus changed = null;
+        synchronized (zone) {
+            boolean wasActive = sensor.getActive();
+            sensor.setActive(active);
+            if (active != wasActive) {
+                zone.activeSensors += active ? 1 : -1;
+            }
+
+            if (active && zone.armingStatus != ArmingStatus.DISARMED) {
+//    1. and 2. An activation while armed escalates the zone from no alarm to pending, and from pending to alarm.
+                switch (zone.alarmStatus) {
+                    case NO_ALARM -> changed = zone.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+                    case PENDING_ALARM -> changed = zone.setAlarmStatus(AlarmStatus.ALARM);
+                }
+            } else if (!active && wasActive && zone.activeSensors == 0 && zone.alarmStatus == AlarmStatus.PENDING_ALARM) {
+//    3. If pending alarm and all sensors of the zone are inactive, return to no alarm state.
+                changed = zone.setAlarmStatus(AlarmStatus.NO_ALARM);
+            }
+        }
+        commit(zone.name, new SecurityBatch().updateSensor(sensor), changed, null);
+    }
+
+    /**
+     * Sets the arming status of one zone. Arming resets the zone's active sensors, exactly like
+     * arming the whole system does in {@link SecurityService}.
+     */
+    public void setArmingStatus(String zoneName, ArmingStatus armingStatus) {
+        Zone zone = zone(zoneName);
+        SecurityBatch batch = new SecurityBatch();
+        AlarmStatus changed = null;
+        ArmingStatus armingChanged;
+        synchronized (zone) {
+            armingChanged = zone.setArmingStatus(armingStatus);
+            if (armingStatus == ArmingStatus.DISARMED) {
+                changed = zone.setAlarmStatus(AlarmStatus.NO_ALARM);
+            } else {
+                for (Sensor sensor : zone.sensors) {
+                    if (sensor.getActive()) {
+                        sensor.setActive(false);
+                        batch.updateSensor(sensor);
+                    }
+                }
+                zone.activeSensors = 0;
+                if (armingStatus == ArmingStatus.ARMED_HOME && catOnCam) {
+                    changed = zone.setAlarmStatus(AlarmStatus.ALARM);
+                } else if (zone.alarmStatus == AlarmStatus.PENDING_ALARM) {
+                    changed = zone.setAlarmStatus(AlarmStatus.NO_ALARM);
+                }
+            }
+        }
+        commit(zoneName, batch, changed, armingChanged);
+    }
+
+    /**
+     * Sets the arming status of every zone.
+     */
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        for (String zoneName : zones.keySet()) {
+            setArmingStatus(zoneName, armingStatus);
+        }
+    }
+
+    /**
+     * Classifies a camera image and applies the result to every zone. The camera covers the whole
+     * premise, so a cat alarms every zone that is armed home.
+     */
+    public void processImage(BufferedImage currentCameraImage) {
+        boolean cat = imageService.imageContainsCat(currentCameraImage, confidenceThreshold);
+        catOnCam = cat;
+        for (Zone zone : zones.values()) {
+            AlarmStatus changed = null;
+            synchronized (zone) {
+                if (cat && zone.armingStatus == ArmingStatus.ARMED_HOME) {
+                    changed = zone.setAlarmStatus(AlarmStatus.ALARM);
+                } else if (!cat && zone.activeSensors == 0) {
+                    changed = zone.setAlarmStatus(AlarmStatus.NO_ALARM);
+                }
+            }
+            if (changed != null) {
+                commit(zone.name, new SecurityBatch(), changed, null);
+            }
+        }
+        statusListeners.forEach(sl -> sl.catDetected(cat));
+    }
+
+    /**
+     * @return Minimum confidence, from 0 to 100, the image service needs to report a cat
+     */
+    public float getConfidenceThreshold() {
+        return confidenceThreshold;
+    }
+
+    /**
+     * Sets the minimum confidence, from 0 to 100, the image service needs to report a cat. Same as
+     * {@link SecurityService#setConfidenceThreshold(float)}.
+     */
+    public void setConfidenceThreshold(float confidenceThreshold) {
+        if (confidenceThreshold < 0 || confidenceThreshold > 100) {
+            throw new IllegalArgumentException("Confidence threshold must be between 0 and 100");
+        }
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    /**
+     * @return Names of all zones, in alphabetical order
+     */
+    public SortedSet<String> getZones() {
+        return new TreeSet<>(zones.keySet());
+    }
+
+    public AlarmStatus getAlarmStatus(String zoneName) {
+        Zone zone = zone(zoneName);
+        synchronized (zone) {
+            return zone.alarmStatus;
+        }
+    }
+
+    public ArmingStatus getArmingStatus(String zoneName) {
+        Zone zone = zone(zoneName);
+        synchronized (zone) {
+            return zone.armingStatus;
+        }
+    }
+
+    public int getActiveSensorCount(String zoneName) {
+        Zone zone = zone(zoneName);
+        synchronized (zone) {
+            return zone.activeSensors;
+        }
+    }
+
+    /**
+     * @return Most severe alarm status of any zone
+     */
+    public AlarmStatus getAlarmStatus() {
+        if (zonesByAlarm.get(AlarmStatus.ALARM.ordinal()) > 0) {
+            return AlarmStatus.ALARM;
+        }
+        return zonesByAlarm.get(AlarmStatus.PENDING_ALARM.ordinal()) > 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM;
+    }
+
+    /**
+     * @return Most armed status of any zone: armed-away if any zone is, else armed-home if any zone is
+     */
+    public ArmingStatus getArmingStatus() {
+        if (zonesByArming.get(ArmingStatus.ARMED_AWAY.ordinal()) > 0) {
+            return ArmingStatus.ARMED_AWAY;
+        }
+        return zonesByArming.get(ArmingStatus.ARMED_HOME.ordinal()) > 0 ? ArmingStatus.ARMED_HOME : ArmingStatus.DISARMED;
+    }
+
+    /**
+     * @return Number of zones currently in the given alarm status
+     */
+    public int getZoneCount(AlarmStatus alarmStatus) {
+        return zonesByAlarm.get(alarmStatus.ordinal());
+    }
+
+    private Zone zone(String zoneName) {
+        Zone zone = zones.get(zoneName);
+        if (zone == null) {
+            throw new IllegalArgumentException("Unknown zone " + zoneName);
+        }
+        return zone;
+    }
+
+    /**
+     * Writes the sensor changes of a zone event together with any change to the premise roll-up, then
+     * notifies listeners outside of all locks.
+     */
+    private void commit(String zoneName, SecurityBatch batch, AlarmStatus zoneAlarm, ArmingStatus zoneArming) {
+        AlarmStatus premiseAlarm;
+        boolean premiseAlarmChanged;
+        synchronized (securityRepository) {
+            premiseAlarm = getAlarmStatus();
+            ArmingStatus premiseArming = getArmingStatus();
+            premiseAlarmChanged = premiseAlarm != premiseAlarmStatus;
+            if (premiseAlarmChanged) {
+                batch.setAlarmStatus(premiseAlarm);
+                premiseAlarmStatus = premiseAlarm;
+            }
+            if (premiseArming != premiseArmingStatus) {
+                batch.setArmingStatus(premiseArming);
+                premiseArmingStatus = premiseArming;
+            }
+            if (!batch.getUpdatedSensors().isEmpty() || batch.getAlarmStatus() != null || batch.getArmingStatus() != null) {
+                securityRepository.applyBatch(batch);
+            }
+        }
+
+        if (zoneArming != null) {
+            zoneListeners.forEach(zl -> zl.zoneArmingStatusChanged(zoneName, zoneArming));
+        }
+        if (zoneAlarm != null) {
+            zoneListeners.forEach(zl -> zl.zoneAlarmStatusChanged(zoneName, zoneAlarm));
+        }
+        if (!batch.getUpdatedSensors().isEmpty()) {
+            statusListeners.forEach(StatusListener::sensorStatusChanged);
+        }
+        if (premiseAlarmChanged) {
+            statusListeners.forEach(sl -> sl.notify(premiseAlarm));
+        }
+    }
+
+    /**
+     * State of one zone. Fields are guarded by the zone's own monitor.
+     */
+    private final class Zone {
+        final String name;
+        final Set<Sensor> sensors = new HashSet<>();
+        int activeSensors;
+        ArmingStatus armingStatus;
+        AlarmStatus alarmStatus;
+
+        Zone(String name, ArmingStatus armingStatus, AlarmStatus alarmStatus) {
+            this.name = name;
+            this.armingStatus = armingStatus;
+            this.alarmStatus = alarmStatus;
+            zonesByArming.incrementAndGet(armingStatus.ordinal());
+            zonesByAlarm.incrementAndGet(alarmStatus.ordinal());
+        }
+
+        void add(Sensor sensor) {
+            if (sensors.add(sensor) && sensor.getActive()) {
+                activeSensors++;
+            }
+        }
+
+        void remove(Sensor sensor) {
+            if (sensors.remove(sensor) && sensor.getActive()) {
+                activeSensors--;
+            }
+        }
+
+        /**
+         * @return The new status, or null if the zone already had it
+         */
+        AlarmStatus setAlarmStatus(AlarmStatus status) {
+            if (status == alarmStatus) {
+                return null;
+            }
+            zonesByAlarm.decrementAndGet(alarmStatus.ordinal());
+            zonesByAlarm.incrementAndGet(status.ordinal());
+            alarmStatus = status;
+            return status;
+        }
+
+        /**
+         * @return The new status, or null if the zone already had it
+         */
+        ArmingStatus setArmingStatus(ArmingStatus status) {
+            if (status == armingStatus) {
+                return null;
+            }
+            zonesByArming.decrementAndGet(armingStatus.ordinal());
+            zonesByArming.incrementAndGet(status.ordinal());
+            armingStatus = status;
+            return status;
+        }
+    }
+}
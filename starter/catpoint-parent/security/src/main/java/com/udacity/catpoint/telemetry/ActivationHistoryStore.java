@@ -0,0 +1,451 @@
+package com.udacity.catpoint.telemetry;
+
+import com.udacity.catpoint.event.EventBus;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
+import com.udacity.catpoint.event.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only history of sensor activation events, stored in memory-mapped segment files.
+ * <p>
+ * Events are collected in memory and written out in blocks of up to {@value #BLOCK_EVENTS} events.
+ * Each block stores its columns separately: timestamps as zig-zag varint deltas from the previous
+ * event, sensors as varint ids into a sensor dictionary, and states as a packed bitmap. A typical
+ * event takes three or four bytes. Every block header records the block's time range, so range scans
+ * skip blocks that cannot match without decoding them.
+ * <p>
+ * Layout of a directory:
+ * <ul>
+ *     <li>{@code sensors.dict} - the sensor UUIDs in id order, 16 bytes each</li>
+ *     <li>{@code segment-NNNNNN.seg} - fixed size files holding consecutive blocks, ending at the first zeroed header</li>
+ * </ul>
+ * Events still in the in-memory block are visible to scans but only reach disk on {@link #flush()},
+ * when the block fills up, or on {@link #close()}. All methods are synchronized.
+ */
+public class ActivationHistoryStore implements AutoCloseable {
+
+    static final int BLOCK_EVENTS = 4096;
+    static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    private static final int BLOCK_MAGIC = 0x43415442;
+    //magic, event count, min timestamp, max timestamp, first timestamp, then the three column lengths
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4;
+    private static final int MAX_BLOCK_BYTES = HEADER_BYTES + BLOCK_EVENTS * (10 + 5) + BLOCK_EVENTS / 8;
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final String DICTIONARY_FILE = "sensors.dict";
+    private static final Logger log = LoggerFactory.getLogger(ActivationHistoryStore.class);
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final FileChannel dictionary;
+    private final List<UUID> sensorIds = new ArrayList<>();
+    private final Map<UUID, Integer> sensorIndex = new HashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<BlockRef> blocks = new ArrayList<>();
+
+    //current block, not yet written to a segment
+    private final long[] tailTimestamps = new long[BLOCK_EVENTS];
+    private final int[] tailSensors = new int[BLOCK_EVENTS];
+    private final boolean[] tailStates = new boolean[BLOCK_EVENTS];
+    private int tailSize;
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_BLOCK_BYTES);
+
+    private final LongAdder droppedEvents = new LongAdder();
+    //only the first failure of a run is logged
+    private volatile boolean failing;
+
+    public ActivationHistoryStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    ActivationHistoryStore(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes < MAX_BLOCK_BYTES) {
+            throw new IllegalArgumentException("Segments must be able to hold at least one full block");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = segmentBytes;
+        this.dictionary = FileChannel.open(directory.resolve(DICTIONARY_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadDictionary();
+        loadSegments();
+    }
+
+    /**
+     * Records that a sensor changed to the given state at the given time.
+     */
+    public synchronized void append(long timestampMillis, UUID sensorId, boolean active) throws IOException {
+        if (tailSize == BLOCK_EVENTS) {
+            //writing the full block failed last time; it has to leave before another event fits
+            writeTail();
+        }
+        int sensor = idOf(sensorId);
+        tailTimestamps[tailSize] = timestampMillis;
+        tailSensors[tailSize] = sensor;
+        tailStates[tailSize] = active;
+        if (++tailSize == BLOCK_EVENTS) {
+            writeTail();
+        }
+    }
+
+    /**
+     * Records every sensor state change published on the bus from now on. Events that set a sensor
+     * to the state it already had are ignored. Events that cannot be written are counted and dropped,
+     * so a full or failing disk never reaches the thread that published them.
+     * @return Subscription to cancel to stop recording
+     */
+    public Subscription recordFrom(EventBus eventBus) {
+        return eventBus.subscribe(SensorStatusChangedEvent.class, event -> {
+            if (event.isChange()) {
+                try {
+                    append(event.getTimestampMillis(), event.getSensor().getSensorId(), event.isActive());
+                    failing = false;
+                } catch (IOException | RuntimeException e) {
+                    droppedEvents.increment();
+                    if (!failing) {
+                        failing = true;
+                        log.warn("Unable to record sensor activation, dropping events until writes succeed", e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return Number of published events {@link #recordFrom(EventBus)} could not write
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Writes any buffered events to the current segment and forces the segment to disk.
+     */
+    public synchronized void flush() throws IOException {
+        if (tailSize > 0) {
+            writeTail();
+        }
+        if (!segments.isEmpty()) {
+            segments.get(segments.size() - 1).buffer.force();
+        }
+        dictionary.force(false);
+    }
+
+    /**
+     * Visits every event with a timestamp in [from, to), block by block in append order.
+     */
+    public synchronized void scan(long fromMillis, long toMillis, ActivationVisitor visitor) {
+        scanIndexed(fromMillis, toMillis, -1, (timestamp, sensor, active) -> {
+            if (timestamp >= fromMillis) {
+                visitor.visit(timestamp, sensorIds.get(sensor), active);
+            }
+        });
+    }
+
+    /**
+     * Visits the events of one sensor with a timestamp in [from, to).
+     */
+    public synchronized void scan(UUID sensorId, long fromMillis, long toMillis, ActivationVisitor visitor) {
+        Integer sensor = sensorIndex.get(sensorId);
+        if (sensor == null) {
+            return;
+        }
+        scanIndexed(fromMillis, toMillis, sensor, (timestamp, id, active) -> {
+            if (timestamp >= fromMillis) {
+                visitor.visit(timestamp, sensorId, active);
+            }
+        });
+    }
+
+    /**
+     * Counts the activations of a sensor in each hour of [from, to).
+     * @return One count per hour, the first covering [from, from + 1h)
+     */
+    public synchronized long[] activationsPerHour(UUID sensorId, long fromMillis, long toMillis) {
+        long[] counts = new long[hoursBetween(fromMillis, toMillis)];
+        Integer sensor = sensorIndex.get(sensorId);
+        if (sensor != null) {
+            scanIndexed(fromMillis, toMillis, sensor, (timestamp, id, active) -> {
+                if (active && timestamp >= fromMillis) {
+                    counts[(int) ((timestamp - fromMillis) / HOUR_MILLIS)]++;
+                }
+            });
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the activations of every sensor in each hour of [from, to) in a single pass.
+     * @return Hourly counts for each sensor that has at least one event in the range
+     */
+    public synchronized Map<UUID, long[]> activationsPerSensorPerHour(long fromMillis, long toMillis) {
+        int hours = hoursBetween(fromMillis, toMillis);
+        long[][] counts = new long[sensorIds.size()][];
+        scanIndexed(fromMillis, toMillis, -1, (timestamp, sensor, active) -> {
+            if (timestamp >= fromMillis) {
+                if (counts[sensor] == null) {
+                    counts[sensor] = new long[hours];
+                }
+                if (active) {
+                    counts[sensor][(int) ((timestamp - fromMillis) / HOUR_MILLIS)]++;
+                }
+            }
+        });
+        Map<UUID, long[]> result = new HashMap<>();
+        for (int sensor = 0; sensor < counts.length; sensor++) {
+            if (counts[sensor] != null) {
+                result.put(sensorIds.get(sensor), counts[sensor]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fraction of [from, to) the sensor spent active. The state at {@code from} is taken from the
+     * sensor's last event before it, or inactive if there is none.
+     */
+    public synchronized double dutyCycle(UUID sensorId, long fromMillis, long toMillis) {
+        Integer sensor = sensorIndex.get(sensorId);
+        if (sensor == null || toMillis <= fromMillis) {
+            return 0;
+        }
+        long[] state = new long[3]; //active flag, time the current state began, total active time
+        state[1] = fromMillis;
+        scanIndexed(Long.MIN_VALUE, toMillis, sensor, (timestamp, id, active) -> {
+            long at = Math.max(timestamp, fromMillis);
+            if (state[0] == 1) {
+                state[2] += at - state[1];
+            }
+            state[0] = active ? 1 : 0;
+            state[1] = at;
+        });
+        if (state[0] == 1) {
+            state[2] += toMillis - state[1];
+        }
+        return state[2] / (double) (toMillis - fromMillis);
+    }
+
+    /**
+     * @return Total number of events in the store, including buffered ones
+     */
+    public synchronized long size() {
+        long size = tailSize;
+        for (BlockRef block : blocks) {
+            size += block.count;
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+        dictionary.close();
+    }
+
+    private static int hoursBetween(long fromMillis, long toMillis) {
+        return (int) Math.max(0, (toMillis - fromMillis + HOUR_MILLIS - 1) / HOUR_MILLIS);
+    }
+
+    private int idOf(UUID sensorId) throws IOException {
+        Integer id = sensorIndex.get(sensorId);
+        if (id == null) {
+            id = sensorIds.size();
+            ByteBuffer entry = ByteBuffer.allocate(16)
+                    .putLong(sensorId.getMostSignificantBits())
+                    .putLong(sensorId.getLeastSignificantBits())
+                    .flip();
+            dictionary.write(entry, (long) id * 16);
+            sensorIds.add(sensorId);
+            sensorIndex.put(sensorId, id);
+        }
+        return id;
+    }
+
+    /**
+     * Decodes the events of every block overlapping [from, to) plus the buffered events, in append
+     * order. Events of a matching block that fall before {@code from} are passed on too; callers filter.
+     * @param sensor Dictionary id to restrict the scan to, or -1 for all sensors
+     */
+    private void scanIndexed(long fromMillis, long toMillis, int sensor, IndexedVisitor visitor) {
+        for (BlockRef block : blocks) {
+            if (block.maxTimestamp >= fromMillis && block.minTimestamp < toMillis) {
+                decode(block, toMillis, sensor, visitor);
+            }
+        }
+        for (int i = 0; i < tailSize; i++) {
+            if (tailTimestamps[i] < toMillis && (sensor < 0 || tailSensors[i] == sensor)) {
+                visitor.visit(tailTimestamps[i], tailSensors[i], tailStates[i]);
+            }
+        }
+    }
+
+    private void decode(BlockRef block, long toMillis, int sensor, IndexedVisitor visitor) {
+        ByteBuffer data = block.segment.buffer.duplicate();
+        int timestampsAt = block.offset + HEADER_BYTES;
+        int sensorsAt = timestampsAt + block.timestampBytes;
+        int statesAt = sensorsAt + block.sensorBytes;
+
+        ByteBuffer timestamps = data.duplicate().position(timestampsAt);
+        ByteBuffer sensors = data.duplicate().position(sensorsAt);
+        long timestamp = block.firstTimestamp;
+        for (int i = 0; i < block.count; i++) {
+            if (i > 0) {
+                timestamp += VarInts.unZigZag(VarInts.getVarLong(timestamps));
+            }
+            int id = (int) VarInts.getVarLong(sensors);
+            if ((sensor < 0 || id == sensor) && timestamp < toMillis) {
+                boolean active = (data.get(statesAt + (i >>> 3)) & (1 << (i & 7))) != 0;
+                visitor.visit(timestamp, id, active);
+            }
+        }
+    }
+
+    private void writeTail() throws IOException {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < tailSize; i++) {
+            min = Math.min(min, tailTimestamps[i]);
+            max = Math.max(max, tailTimestamps[i]);
+        }
+
+        scratch.clear().position(HEADER_BYTES);
+        for (int i = 1; i < tailSize; i++) {
+            VarInts.putVarLong(scratch, VarInts.zigZag(tailTimestamps[i] - tailTimestamps[i - 1]));
+        }
+        int timestampBytes = scratch.position() - HEADER_BYTES;
+        for (int i = 0; i < tailSize; i++) {
+            VarInts.putVarLong(scratch, tailSensors[i]);
+        }
+        int sensorBytes = scratch.position() - HEADER_BYTES - timestampBytes;
+        int stateBytes = (tailSize + 7) / 8;
+        for (int i = 0; i < stateBytes; i++) {
+            int bits = 0;
+            for (int bit = 0; bit < 8 && i * 8 + bit < tailSize; bit++) {
+                if (tailStates[i * 8 + bit]) {
+                    bits |= 1 << bit;
+                }
+            }
+            scratch.put((byte) bits);
+        }
+        scratch.putInt(0, BLOCK_MAGIC)
+                .putInt(4, tailSize)
+                .putLong(8, min)
+                .putLong(16, max)
+                .putLong(24, tailTimestamps[0])
+                .putInt(32, timestampBytes)
+                .putInt(36, sensorBytes)
+                .putInt(40, stateBytes)
+                .flip();
+
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.writePosition + scratch.remaining() > segmentBytes) {
+            segment = openSegment(segments.size());
+            segments.add(segment);
+        }
+        int offset = segment.writePosition;
+        segment.writePosition += scratch.remaining();
+        segment.buffer.duplicate().position(offset).put(scratch);
+        blocks.add(new BlockRef(segment, offset, tailSize, min, max, tailTimestamps[0], timestampBytes, sensorBytes));
+        tailSize = 0;
+    }
+
+    private void loadDictionary() throws IOException {
+        ByteBuffer entries = ByteBuffer.allocate((int) dictionary.size());
+        while (entries.hasRemaining() && dictionary.read(entries, entries.position()) > 0) {
+            // keep reading until the whole dictionary is in memory
+        }
+        entries.flip();
+        while (entries.remaining() >= 16) {
+            UUID sensorId = new UUID(entries.getLong(), entries.getLong());
+            sensorIndex.put(sensorId, sensorIds.size());
+            sensorIds.add(sensorId);
+        }
+    }
+
+    private void loadSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.seg")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (int i = 0; i < files.size(); i++) {
+            Segment segment = openSegment(i);
+            MappedByteBuffer buffer = segment.buffer;
+            int position = 0;
+            while (position + HEADER_BYTES <= segmentBytes && buffer.getInt(position) == BLOCK_MAGIC) {
+                BlockRef block = new BlockRef(segment, position, buffer.getInt(position + 4),
+                        buffer.getLong(position + 8), buffer.getLong(position + 16), buffer.getLong(position + 24),
+                        buffer.getInt(position + 32), buffer.getInt(position + 36));
+                blocks.add(block);
+                position += HEADER_BYTES + buffer.getInt(position + 32) + buffer.getInt(position + 36) + buffer.getInt(position + 40);
+            }
+            segment.writePosition = position;
+            segments.add(segment);
+        }
+    }
+
+    private Segment openSegment(int number) throws IOException {
+        Path file = directory.resolve(String.format("segment-%06d.seg", number));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+    }
+
+    @FunctionalInterface
+    private interface IndexedVisitor {
+        void visit(long timestamp, int sensor, boolean active);
+    }
+
+    private static class Segment {
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePosition;
+
+        Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private static class BlockRef {
+        final Segment segment;
+        final int offset;
+        final int count;
+        final long minTimestamp;
+        final long maxTimestamp;
+        final long firstTimestamp;
+        final int timestampBytes;
+        final int sensorBytes;
+
+        BlockRef(Segment segment, int offset, int count, long minTimestamp, long maxTimestamp, long firstTimestamp,
+                 int timestampBytes, int sensorBytes) {
+            this.segment = segment;
+            this.offset = offset;
+            this.count = count;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.firstTimestamp = firstTimestamp;
+            this.timestampBytes = timestampBytes;
+            this.sensorBytes = sensorBytes;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.udacity.catpoint.telemetry;
+
+import java.util.UUID;
+
+/**
+ * Receives the events found by a scan of the {@link ActivationHistoryStore}.
+ */
+@FunctionalInterface
+public interface ActivationVisitor {
+    void visit(long timestampMillis, UUID sensorId, boolean active);
+}
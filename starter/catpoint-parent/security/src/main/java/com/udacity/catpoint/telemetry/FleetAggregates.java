@@ -0,0 +1,245 @@
+package com.udacity.catpoint.telemetry;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorSnapshot;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.event.AlarmStatusChangedEvent;
+import com.udacity.catpoint.event.CatDetectedEvent;
+import com.udacity.catpoint.event.EventBus;
+import com.udacity.catpoint.event.SensorListChangedEvent;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
+import com.udacity.catpoint.event.Subscription;
+import com.udacity.catpoint.service.SecurityService;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Live fleet-wide totals across many {@link SecurityService}s: premises per alarm status, active
+ * sensors per sensor type and cat detections over the last minute.
+ * <p>
+ * The totals are materialized views, kept up to date from each registered service's events instead
+ * of being recomputed from every service's state. Every change adds or subtracts one from a striped
+ * {@link LongAdder}, so premises reporting at once on different threads do not contend, and a query
+ * reads a handful of counters whatever the size of the fleet. Detections are counted in one bucket
+ * per second of a one minute ring.
+ * <p>
+ * A registered service publishes its events, which it otherwise skips when nobody subscribes, so
+ * registering adds the cost of those event objects to its changes. Sensors added or removed while
+ * active are counted from the service's sensor list events. {@link Premises#resync()} recounts a
+ * premises from its current state after changes made to its repository directly.
+ */
+public class FleetAggregates {
+
+    private static final int WINDOW_SECONDS = 60;
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private final LongSupplier clockMillis;
+    private final LongAdder premises = new LongAdder();
+    private final LongAdder[] premisesByStatus = adders(ALARM_STATUSES.length);
+    private final LongAdder[] activeSensorsByType = adders(SENSOR_TYPES.length);
+
+    //detections per second; a bucket is reused once its second has left the window
+    private final LongAdder[] detectionBuckets = adders(WINDOW_SECONDS);
+    private final AtomicLongArray bucketSeconds = new AtomicLongArray(WINDOW_SECONDS);
+
+    public FleetAggregates() {
+        this(System::currentTimeMillis);
+    }
+
+    FleetAggregates(LongSupplier clockMillis) {
+        this.clockMillis = clockMillis;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            bucketSeconds.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Adds a service's current state to the totals and follows its changes from now on.
+     * @return Handle for removing the service again
+     */
+    public Premises register(SecurityService securityService) {
+        Premises registration = new Premises(securityService);
+        registration.start();
+        return registration;
+    }
+
+    /**
+     * @return Number of registered premises
+     */
+    public long getPremisesCount() {
+        return premises.sum();
+    }
+
+    /**
+     * @return Number of registered premises currently in the given alarm status
+     */
+    public long getPremisesIn(AlarmStatus status) {
+        return premisesByStatus[status.ordinal()].sum();
+    }
+
+    /**
+     * @return Number of active sensors of the given type across all registered premises
+     */
+    public long getActiveSensors(SensorType type) {
+        return activeSensorsByType[type.ordinal()].sum();
+    }
+
+    /**
+     * @return Cameras that started seeing a cat during the last minute, across all registered premises
+     */
+    public long getCatDetectionsPerMinute() {
+        long now = TimeUnit.MILLISECONDS.toSeconds(clockMillis.getAsLong());
+        long sum = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (now - bucketSeconds.get(i) < WINDOW_SECONDS) {
+                sum += detectionBuckets[i].sum();
+            }
+        }
+        return sum;
+    }
+
+    private void recordDetection() {
+        long second = TimeUnit.MILLISECONDS.toSeconds(clockMillis.getAsLong());
+        int bucket = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+        long bucketSecond = bucketSeconds.get(bucket);
+        if (bucketSecond != second && bucketSeconds.compareAndSet(bucket, bucketSecond, second)) {
+            //a detection landing between the claim and the reset may be lost; the rate is approximate
+            detectionBuckets[bucket].reset();
+        }
+        detectionBuckets[bucket].increment();
+    }
+
+    /**
+     * One registered service's contribution to the totals. Changes of a premises are expected to be
+     * reported one at a time, as the security service does.
+     */
+    public class Premises implements AutoCloseable {
+        private final SecurityService securityService;
+        private final Subscription[] subscriptions = new Subscription[4];
+        private final AtomicLongArray activeByType = new AtomicLongArray(SENSOR_TYPES.length);
+        private final ConcurrentMap<String, Boolean> catOnCamera = new ConcurrentHashMap<>();
+        private volatile AlarmStatus alarmStatus;
+        private boolean closed;
+
+        private Premises(SecurityService securityService) {
+            this.securityService = securityService;
+        }
+
+        private synchronized void start() {
+            EventBus bus = securityService.getEventBus();
+            subscriptions[0] = bus.subscribe(AlarmStatusChangedEvent.class, e -> alarmStatusChanged(e.getStatus()));
+            subscriptions[1] = bus.subscribe(SensorStatusChangedEvent.class, this::sensorStatusChanged);
+            subscriptions[2] = bus.subscribe(CatDetectedEvent.class, this::catDetected);
+            subscriptions[3] = bus.subscribe(SensorListChangedEvent.class, this::sensorListChanged);
+            premises.increment();
+            alarmStatusChanged(securityService.getAlarmStatus());
+            countSensors(1);
+        }
+
+        private void alarmStatusChanged(AlarmStatus status) {
+            AlarmStatus previous = alarmStatus;
+            if (previous == status) {
+                return;
+            }
+            alarmStatus = status;
+            if (previous != null) {
+                premisesByStatus[previous.ordinal()].decrement();
+            }
+            if (status != null) {
+                premisesByStatus[status.ordinal()].increment();
+            }
+        }
+
+        private void sensorStatusChanged(SensorStatusChangedEvent e) {
+            if (!e.isChange()) {
+                return;
+            }
+            addActive(e.getSensor(), e.isActive() ? 1 : -1);
+        }
+
+        private void sensorListChanged(SensorListChangedEvent e) {
+            if (Boolean.TRUE.equals(e.getSensor().getActive())) {
+                addActive(e.getSensor(), e.isAdded() ? 1 : -1);
+            }
+        }
+
+        private void addActive(Sensor sensor, long delta) {
+            int type = sensor.getSensorType().ordinal();
+            activeByType.addAndGet(type, delta);
+            activeSensorsByType[type].add(delta);
+        }
+
+        private void catDetected(CatDetectedEvent e) {
+            Boolean previous = catOnCamera.put(e.getCameraId(), e.isCatDetected());
+            if (e.isCatDetected() && !Boolean.TRUE.equals(previous)) {
+                recordDetection();
+            }
+        }
+
+        /**
+         * Adds (sign 1) or removes (sign -1) this premises' active sensors, as counted now.
+         */
+        private void countSensors(int sign) {
+            if (sign > 0) {
+                SensorSnapshot snapshot = securityService.getSensorSnapshot();
+                for (Sensor sensor : snapshot.getSensors()) {
+                    if (snapshot.isActive(sensor)) {
+                        int type = sensor.getSensorType().ordinal();
+                        activeByType.incrementAndGet(type);
+                        activeSensorsByType[type].increment();
+                    }
+                }
+            } else {
+                for (int type = 0; type < SENSOR_TYPES.length; type++) {
+                    long active = activeByType.getAndSet(type, 0);
+                    activeSensorsByType[type].add(-active);
+                }
+            }
+        }
+
+        /**
+         * Replaces this premises' contribution with a fresh count of its current state. Call it while
+         * the service is not changing, for example after its repository was changed directly.
+         */
+        public synchronized void resync() {
+            if (closed) {
+                return;
+            }
+            countSensors(-1);
+            countSensors(1);
+            alarmStatusChanged(securityService.getAlarmStatus());
+        }
+
+        /**
+         * Stops following the service and takes its contribution out of the totals.
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Subscription subscription : subscriptions) {
+                subscription.cancel();
+            }
+            alarmStatusChanged(null);
+            countSensors(-1);
+            premises.decrement();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.udacity.catpoint.telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 style variable-length encoding of longs, seven bits per byte. Small values such as the gaps
+ * between consecutive timestamps or dictionary ids take one or two bytes instead of eight.
+ */
+public final class VarInts {
+
+    private VarInts() {
+    }
+
+    public static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Maps signed values to unsigned ones so that small negative deltas stay small: 0, -1, 1, -2 become 0, 1, 2, 3.
+     */
+    public static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,283 @@
+package com.udacity.catpoint.tools;
+
+import com.udacity.catpoint.camera.DirectoryFrameSource;
+import com.udacity.catpoint.camera.FrameDecoder;
+import com.udacity.catpoint.service.SecurityService;
+import com.udacity.image.service.AwsImageService;
+import com.udacity.image.service.CascadeImageService;
+import com.udacity.image.service.FakeImageService;
+import com.udacity.image.service.ImageService;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Offline bulk scan of stored camera frames. Walks a directory tree, and decodes and classifies every
+ * image in it in parallel, writing one result per image to a CSV or binary {@link ScanReport} as it
+ * goes and printing progress and throughput at a fixed interval.
+ * <p>
+ * Files are memory-mapped and decoded straight from the mapping, and each scanning thread keeps its
+ * own {@link FrameDecoder}, so steady-state scanning copies no file contents onto the heap and
+ * allocates no new rasters. The pool is bounded and the walk waits for it, so memory use does not
+ * depend on the size of the archive, and throughput scales with the number of threads as long as the
+ * image service does. The image service must be safe to call from several threads at once.
+ * <p>
+ * Run with {@code java -cp <jar> com.udacity.catpoint.tools.ArchiveScanner [--option=value ...]}.
+ * Options: dir (required), report (.csv for CSV, anything else for binary; required), threads,
+ * backend (fake, aws or cascade, which puts the local pre-classifier in front of aws), threshold,
+ * pattern (file name glob) and progress (s).
+ */
+public class ArchiveScanner {
+
+    private final ImageService imageService;
+    private final int threads;
+    private final float confidenceThreshold;
+    private final PathMatcher matcher;
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder cats = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ArchiveScanner(ImageService imageService, int threads, float confidenceThreshold, String pattern) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.imageService = imageService;
+        this.threads = threads;
+        this.confidenceThreshold = confidenceThreshold;
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = Options.parse(args);
+        ArchiveScanner scanner = new ArchiveScanner(options.imageService(), options.threads,
+                options.threshold, options.pattern);
+        System.out.println("Scanning " + options.dir + " with " + options.threads + " threads");
+
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "scan-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        long start = System.nanoTime();
+        progress.scheduleAtFixedRate(() -> scanner.printProgress(start),
+                options.progressSeconds, options.progressSeconds, TimeUnit.SECONDS);
+        Summary summary;
+        try (ScanReport report = ScanReport.open(options.report)) {
+            summary = scanner.scan(options.dir, report);
+        } finally {
+            progress.shutdownNow();
+        }
+        System.out.printf("Done: %,d files, %,d MB in %,.1f s: %,.0f files/s, %,.1f MB/s, %,d cats, %,d failures%n",
+                summary.getFiles(), summary.getBytes() >> 20, summary.getElapsedNanos() / 1e9,
+                summary.getFilesPerSecond(), summary.getMegabytesPerSecond(), summary.getCats(), summary.getFailures());
+    }
+
+    /**
+     * Scans every matching file under the directory, writing each result to the report.
+     * @return Totals of the scan
+     */
+    public Summary scan(Path directory, ScanReport report) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ScanThreadFactory(),
+                //a full queue makes the walking thread scan the file itself, which paces the walk
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        ThreadLocal<FrameDecoder> decoders = ThreadLocal.withInitial(FrameDecoder::new);
+        AtomicReference<IOException> reportFailure = new AtomicReference<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            Iterator<Path> it = paths.iterator();
+            while (it.hasNext() && reportFailure.get() == null) {
+                Path file = it.next();
+                if (!matcher.matches(file.getFileName()) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                pool.execute(() -> {
+                    try {
+                        scanFile(directory, file, decoders.get(), report);
+                    } catch (IOException e) {
+                        reportFailure.compareAndSet(null, e);
+                    }
+                });
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        if (reportFailure.get() != null) {
+            throw reportFailure.get();
+        }
+        return new Summary(files.sum(), bytes.sum(), cats.sum(), failures.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * Decodes and classifies one file. Only failures to write the report are thrown; a file that
+     * cannot be read, decoded or classified is reported with its error.
+     */
+    private void scanFile(Path directory, Path file, FrameDecoder decoder, ScanReport report) throws IOException {
+        String name = directory.relativize(file).toString();
+        long size = 0;
+        int width = 0;
+        int height = 0;
+        boolean cat = false;
+        String error = null;
+        long decodeStart = System.nanoTime();
+        long classifyStart = decodeStart;
+        long classifyEnd = decodeStart;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            BufferedImage image = decoder.decode(mapped);
+            width = image.getWidth();
+            height = image.getHeight();
+            classifyStart = System.nanoTime();
+            cat = imageService.imageContainsCat(image, confidenceThreshold);
+            classifyEnd = System.nanoTime();
+        } catch (IOException | RuntimeException e) {
+            error = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+            failures.increment();
+            classifyStart = classifyEnd = System.nanoTime();
+        }
+        files.increment();
+        bytes.add(size);
+        if (cat) {
+            cats.increment();
+        }
+        report.write(name, size, width, height, cat, error,
+                TimeUnit.NANOSECONDS.toMicros(classifyStart - decodeStart),
+                TimeUnit.NANOSECONDS.toMicros(classifyEnd - classifyStart));
+    }
+
+    private void printProgress(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[%5.0fs] %,10d files  %,8.0f files/s  %,8.1f MB/s  cats %,d  failures %,d%n",
+                seconds, files.sum(), files.sum() / seconds, bytes.sum() / seconds / (1 << 20), cats.sum(), failures.sum());
+    }
+
+    /**
+     * Totals of a finished scan.
+     */
+    public static class Summary {
+        private final long files;
+        private final long bytes;
+        private final long cats;
+        private final long failures;
+        private final long elapsedNanos;
+
+        Summary(long files, long bytes, long cats, long failures, long elapsedNanos) {
+            this.files = files;
+            this.bytes = bytes;
+            this.cats = cats;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getCats() {
+            return cats;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getFilesPerSecond() {
+            return elapsedNanos == 0 ? 0 : files * 1e9 / elapsedNanos;
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos / (1 << 20);
+        }
+    }
+
+    private static class ScanThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "scan-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    /**
+     * Command line settings for a scan.
+     */
+    static class Options {
+        Path dir;
+        Path report;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String backend = "fake";
+        float threshold = SecurityService.DEFAULT_CONFIDENCE_THRESHOLD;
+        String pattern = DirectoryFrameSource.DEFAULT_PATTERN;
+        long progressSeconds = 5;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --option=value but got " + arg);
+                }
+                String key = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (key) {
+                    case "dir" -> options.dir = Paths.get(value);
+                    case "report" -> options.report = Paths.get(value);
+                    case "threads" -> options.threads = Integer.parseInt(value);
+                    case "backend" -> options.backend = value;
+                    case "threshold" -> options.threshold = Float.parseFloat(value);
+                    case "pattern" -> options.pattern = value;
+                    case "progress" -> options.progressSeconds = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + key);
+                }
+            }
+            if (options.dir == null || options.report == null) {
+                throw new IllegalArgumentException("Both --dir and --report are required");
+            }
+            return options;
+        }
+
+        ImageService imageService() {
+            return switch (backend) {
+                case "fake" -> new FakeImageService();
+                case "aws" -> new AwsImageService();
+                case "cascade" -> CascadeImageService.builder(new AwsImageService()).build();
+                default -> throw new IllegalArgumentException("Unknown backend " + backend + "; use fake, aws or cascade");
+            };
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.udacity.catpoint.tools;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listens to the JVM's garbage collection notifications to track individual pauses and how much
+ * heap is still in use right after each collection. The live heap after GC is what reveals leaks
+ * during long soak runs, since plain heap usage mostly reflects how recently the last GC ran.
+ */
+public class GcMonitor implements NotificationListener, AutoCloseable {
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final LatencyHistogram pauses = new LatencyHistogram();
+    private long totalPauseMillis;
+    private long firstHeapAfterGc = -1;
+    private long lastHeapAfterGc = -1;
+    private long peakHeapAfterGc;
+
+    public GcMonitor() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gc;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long durationMillis = info.getGcInfo().getDuration();
+        pauses.record(durationMillis * 1_000_000L);
+        totalPauseMillis += durationMillis;
+
+        long heapAfterGc = info.getGcInfo().getMemoryUsageAfterGc().values().stream()
+                .mapToLong(MemoryUsage::getUsed)
+                .sum();
+        if (firstHeapAfterGc < 0) {
+            firstHeapAfterGc = heapAfterGc;
+        }
+        lastHeapAfterGc = heapAfterGc;
+        peakHeapAfterGc = Math.max(peakHeapAfterGc, heapAfterGc);
+    }
+
+    public synchronized long getCollectionCount() {
+        return pauses.getTotalCount();
+    }
+
+    public synchronized long getTotalPauseMillis() {
+        return totalPauseMillis;
+    }
+
+    /**
+     * @return A copy of the histogram of collection durations, in nanoseconds
+     */
+    public synchronized LatencyHistogram getPauses() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(pauses);
+        return copy;
+    }
+
+    /**
+     * @return Heap in use after the most recent collection, or -1 if no collection has happened yet
+     */
+    public synchronized long getLastHeapAfterGc() {
+        return lastHeapAfterGc;
+    }
+
+    /**
+     * @return Difference between the live heap after the latest and the first observed collection
+     */
+    public synchronized long getHeapGrowth() {
+        return firstHeapAfterGc < 0 ? 0 : lastHeapAfterGc - firstHeapAfterGc;
+    }
+
+    public synchronized long getPeakHeapAfterGc() {
+        return peakHeapAfterGc;
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // already removed, nothing to do
+            }
+        }
+    }
+}
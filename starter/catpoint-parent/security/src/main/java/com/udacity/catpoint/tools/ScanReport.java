@@ -0,0 +1,111 @@
+package com.udacity.catpoint.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Destination of the per-file results of an {@link ArchiveScanner} run. Results are written as they
+ * arrive, so a report of days of footage never has to fit in memory. Writes are synchronized, as
+ * every scanning thread reports its own results.
+ */
+public abstract class ScanReport implements Closeable {
+
+    /** Marks a binary report, "CPSR" */
+    static final int BINARY_MAGIC = 0x43505352;
+
+    /**
+     * Opens a CSV report if the file name ends in .csv, otherwise a binary report.
+     */
+    public static ScanReport open(Path file) throws IOException {
+        return file.getFileName().toString().toLowerCase().endsWith(".csv") ? new Csv(file) : new Binary(file);
+    }
+
+    /**
+     * @param file Path of the image, relative to the scanned directory
+     * @param bytes Size of the file
+     * @param width Width of the image, 0 if it could not be decoded
+     * @param height Height of the image, 0 if it could not be decoded
+     * @param cat Whether the image service found a cat
+     * @param error Why the image could not be decoded or classified, or null
+     * @param decodeMicros Time spent reading and decoding
+     * @param classifyMicros Time spent in the image service
+     */
+    abstract void write(String file, long bytes, int width, int height, boolean cat, String error,
+                        long decodeMicros, long classifyMicros) throws IOException;
+
+    /**
+     * One line per image, with a header line.
+     */
+    private static class Csv extends ScanReport {
+        private final Writer out;
+
+        Csv(Path file) throws IOException {
+            out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+            out.write("file,bytes,width,height,cat,decode_us,classify_us,error\n");
+        }
+
+        @Override
+        synchronized void write(String file, long bytes, int width, int height, boolean cat, String error,
+                                long decodeMicros, long classifyMicros) throws IOException {
+            out.write(quote(file));
+            out.write(',' + Long.toString(bytes) + ',' + width + ',' + height + ',' + cat + ',' + decodeMicros + ',' + classifyMicros + ',');
+            if (error != null) {
+                out.write(quote(error));
+            }
+            out.write('\n');
+        }
+
+        private static String quote(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * The magic number, then one record per image: the file as modified UTF-8, the size as a long,
+     * width and height as ints, a flags byte (1 = cat, 2 = error), the error message if flagged, and
+     * the decode and classify times in microseconds as ints.
+     */
+    private static class Binary extends ScanReport {
+        private final DataOutputStream out;
+
+        Binary(Path file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+            out.writeInt(BINARY_MAGIC);
+        }
+
+        @Override
+        synchronized void write(String file, long bytes, int width, int height, boolean cat, String error,
+                                long decodeMicros, long classifyMicros) throws IOException {
+            out.writeUTF(file);
+            out.writeLong(bytes);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeByte((cat ? 1 : 0) | (error != null ? 2 : 0));
+            if (error != null) {
+                out.writeUTF(error);
+            }
+            out.writeInt((int) Math.min(Integer.MAX_VALUE, decodeMicros));
+            out.writeInt((int) Math.min(Integer.MAX_VALUE, classifyMicros));
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+}
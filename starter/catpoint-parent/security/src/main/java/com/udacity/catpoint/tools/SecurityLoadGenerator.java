@@ -0,0 +1,297 @@
+package com.udacity.catpoint.tools;
+
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.SecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.service.SecurityService;
+import com.udacity.image.service.StubImageService;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Soak-test harness for the {@link SecurityService}. Builds a premise with N sensors and drives
+ * sensor changes, arming commands and image scans from several threads at a configurable rate and
+ * mix, using a {@link StubImageService} with configurable latency in place of a real classifier.
+ * <p>
+ * Latency is measured from each operation's intended start time rather than from when the worker got
+ * around to it, so falling behind the target rate shows up as latency instead of being hidden. The
+ * service itself is not thread safe, so calls are serialized through a single lock; time spent
+ * waiting for it is part of the measured latency, exactly as it would be for concurrent callers.
+ * <p>
+ * Run with {@code java -cp <jar> com.udacity.catpoint.tools.SecurityLoadGenerator [--option=value ...]}.
+ * Options: sensors, threads, duration (s), warmup (s), rate (total ops/s, 0 for unthrottled),
+ * mix (sensor:arming:image weights), image-latency (ms), cat-percent and report (s).
+ */
+public class SecurityLoadGenerator {
+
+    enum Operation { SENSOR, ARMING, IMAGE }
+
+    private final Options options;
+    private final SecurityService securityService;
+    private final StubImageService imageService;
+    private final List<Sensor> sensors = new ArrayList<>();
+    private final BufferedImage frame = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+    private final ReentrantLock serviceLock = new ReentrantLock();
+    private final LongAdder[] completed = new LongAdder[Operation.values().length];
+
+    public SecurityLoadGenerator(Options options) {
+        this.options = options;
+        this.imageService = new StubImageService(false, options.imageLatencyMillis, TimeUnit.MILLISECONDS);
+        SecurityRepository repository = new InMemorySecurityRepository();
+        this.securityService = new SecurityService(repository, imageService);
+
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < options.sensors; i++) {
+            Sensor sensor = new Sensor(String.format("sensor-%06d", i), types[i % types.length]);
+            sensors.add(sensor);
+            securityService.addSensor(sensor);
+        }
+        for (int i = 0; i < completed.length; i++) {
+            completed[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Options options = Options.parse(args);
+        System.out.println("Starting load: " + options);
+        new SecurityLoadGenerator(options).run();
+    }
+
+    /**
+     * Runs the configured load, printing a progress line every report interval and a summary at the end.
+     */
+    public void run() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        try (GcMonitor gcMonitor = new GcMonitor()) {
+            long start = System.nanoTime();
+            long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+            long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+
+            List<Worker> workers = new ArrayList<>();
+            for (int i = 0; i < options.threads; i++) {
+                Worker worker = new Worker(measureFrom, end);
+                worker.setName("load-" + i);
+                workers.add(worker);
+                worker.start();
+            }
+
+            long lastTotal = 0;
+            long lastReport = start;
+            long reportNanos = TimeUnit.SECONDS.toNanos(options.reportSeconds);
+            while (lastReport < end) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(reportNanos, end - lastReport));
+                long now = System.nanoTime();
+                long total = totalCompleted();
+                System.out.printf("[%5ds] %,10.0f ops/s  heap used %,8d KB  live after GC %,8d KB  GCs %d (%d ms)%n",
+                        TimeUnit.NANOSECONDS.toSeconds(now - start),
+                        (total - lastTotal) * 1e9 / (now - lastReport),
+                        memory.getHeapMemoryUsage().getUsed() / 1024,
+                        gcMonitor.getLastHeapAfterGc() / 1024,
+                        gcMonitor.getCollectionCount(),
+                        gcMonitor.getTotalPauseMillis());
+                lastTotal = total;
+                lastReport = now;
+            }
+
+            LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+            for (Worker worker : workers) {
+                worker.join();
+                for (int i = 0; i < latencies.length; i++) {
+                    latencies[i].add(worker.latencies[i]);
+                }
+            }
+            printSummary(latencies, gcMonitor);
+        }
+    }
+
+    private long totalCompleted() {
+        long total = 0;
+        for (LongAdder adder : completed) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    private void printSummary(LatencyHistogram[] latencies, GcMonitor gcMonitor) {
+        System.out.println();
+        System.out.printf("%-8s %12s %12s %10s %10s %10s %10s %10s%n",
+                "op", "count", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram h = latencies[operation.ordinal()];
+            System.out.printf("%-8s %,12d %,12.0f %,10d %,10d %,10d %,10d %,10d%n",
+                    operation,
+                    h.getTotalCount(),
+                    h.getTotalCount() / (double) options.durationSeconds,
+                    micros(h.getValueAtPercentile(50)),
+                    micros(h.getValueAtPercentile(90)),
+                    micros(h.getValueAtPercentile(99)),
+                    micros(h.getValueAtPercentile(99.9)),
+                    micros(h.getMax()));
+        }
+
+        LatencyHistogram pauses = gcMonitor.getPauses();
+        System.out.println();
+        System.out.printf("GC: %d collections, %d ms total, p99 %d ms, max %d ms%n",
+                pauses.getTotalCount(),
+                gcMonitor.getTotalPauseMillis(),
+                TimeUnit.NANOSECONDS.toMillis(pauses.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMillis(pauses.getMax()));
+        System.out.printf("Heap: live after GC %,d KB (peak %,d KB), growth over run %,d KB%n",
+                gcMonitor.getLastHeapAfterGc() / 1024,
+                gcMonitor.getPeakHeapAfterGc() / 1024,
+                gcMonitor.getHeapGrowth() / 1024);
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Issues operations at this thread's share of the target rate until the end time.
+     */
+    private class Worker extends Thread {
+        private final long measureFrom;
+        private final long end;
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+
+        Worker(long measureFrom, long end) {
+            this.measureFrom = measureFrom;
+            this.end = end;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long intervalNanos = options.rate > 0 ? (long) (1e9 * options.threads / options.rate) : 0;
+            long next = System.nanoTime();
+
+            while (true) {
+                long start;
+                if (intervalNanos > 0) {
+                    next += intervalNanos;
+                    long wait;
+                    while ((wait = next - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    start = next;
+                } else {
+                    start = System.nanoTime();
+                }
+                if (start >= end) {
+                    return;
+                }
+
+                Operation operation = pick(random);
+                serviceLock.lock();
+                try {
+                    perform(operation, random);
+                } finally {
+                    serviceLock.unlock();
+                }
+                long finished = System.nanoTime();
+                if (start >= measureFrom) {
+                    latencies[operation.ordinal()].record(finished - start);
+                }
+                completed[operation.ordinal()].increment();
+            }
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random) {
+        int roll = random.nextInt(options.sensorWeight + options.armingWeight + options.imageWeight);
+        if (roll < options.sensorWeight) {
+            return Operation.SENSOR;
+        }
+        return roll < options.sensorWeight + options.armingWeight ? Operation.ARMING : Operation.IMAGE;
+    }
+
+    private void perform(Operation operation, ThreadLocalRandom random) {
+        switch (operation) {
+            case SENSOR -> {
+                Sensor sensor = sensors.get(random.nextInt(sensors.size()));
+                securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+            }
+            case ARMING -> {
+                ArmingStatus[] statuses = ArmingStatus.values();
+                securityService.setArmingStatus(statuses[random.nextInt(statuses.length)]);
+            }
+            case IMAGE -> {
+                imageService.setVerdict(random.nextInt(100) < options.catPercent);
+                securityService.processImage(frame);
+            }
+        }
+    }
+
+    /**
+     * Command line settings for a load run.
+     */
+    static class Options {
+        int sensors = 1_000;
+        int threads = 4;
+        long durationSeconds = 60;
+        long warmupSeconds = 5;
+        long reportSeconds = 10;
+        double rate = 10_000;
+        int sensorWeight = 90;
+        int armingWeight = 1;
+        int imageWeight = 9;
+        long imageLatencyMillis = 5;
+        int catPercent = 5;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --option=value but got " + arg);
+                }
+                String key = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (key) {
+                    case "sensors" -> options.sensors = Integer.parseInt(value);
+                    case "threads" -> options.threads = Integer.parseInt(value);
+                    case "duration" -> options.durationSeconds = Long.parseLong(value);
+                    case "warmup" -> options.warmupSeconds = Long.parseLong(value);
+                    case "report" -> options.reportSeconds = Long.parseLong(value);
+                    case "rate" -> options.rate = Double.parseDouble(value);
+                    case "image-latency" -> options.imageLatencyMillis = Long.parseLong(value);
+                    case "cat-percent" -> options.catPercent = Integer.parseInt(value);
+                    case "mix" -> {
+                        String[] weights = value.split(":");
+                        if (weights.length != 3) {
+                            throw new IllegalArgumentException("Mix must be sensor:arming:image, for example 90:1:9");
+                        }
+                        options.sensorWeight = Integer.parseInt(weights[0]);
+                        options.armingWeight = Integer.parseInt(weights[1]);
+                        options.imageWeight = Integer.parseInt(weights[2]);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option " + key);
+                }
+            }
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sensors=%d threads=%d duration=%ds warmup=%ds rate=%s mix=%d:%d:%d image-latency=%dms cat-percent=%d",
+                    sensors, threads, durationSeconds, warmupSeconds, rate > 0 ? String.format("%.0f/s", rate) : "unthrottled",
+                    sensorWeight, armingWeight, imageWeight, imageLatencyMillis, catPercent);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.udacity.catpoint.tools;
+
+import com.udacity.catpoint.telemetry.VarInts;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the trace files written by {@link TraceRecorder} and read by {@link TraceReplayer}.
+ * <p>
+ * A trace starts with a header: the magic number, the format version, the wall clock start time in
+ * milliseconds, the arming and alarm status at that time, whether the last image scanned contained a
+ * cat, and the number of sensors followed by their definitions, so the replay starts from the same
+ * state. Each record that follows is a tag byte, the microseconds since the previous record as a
+ * varint, and the tag's payload. Sensors and cameras are defined once, in the header or in the record
+ * before the first one that uses them, and referred to by their index after that, so a sensor change
+ * is typically three bytes. Header sensors take the first indices.
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x43505452; //CPTR
+    static final byte VERSION = 2;
+
+    /** Sensor definition: id, name, type, zone and whether it was active when first seen. Also used in the header. */
+    static final byte DEFINE_SENSOR = 1;
+    /** Camera definition: camera id */
+    static final byte DEFINE_CAMERA = 2;
+    /** Input, sensor index: the sensor was set active */
+    static final byte SENSOR_ACTIVE = 3;
+    /** Input, sensor index: the sensor was set inactive */
+    static final byte SENSOR_INACTIVE = 4;
+    /** Input, arming status ordinal */
+    static final byte ARMING = 5;
+    /** Input, camera index: the image service found a cat */
+    static final byte VERDICT_CAT = 6;
+    /** Input, camera index: the image service found no cat */
+    static final byte VERDICT_CLEAR = 7;
+    /** Output, alarm status ordinal */
+    static final byte ALARM = 8;
+    /** Input, sensor index and whether it was active: the sensor was added */
+    static final byte SENSOR_ADDED = 9;
+    /** Input, sensor index: the sensor was removed */
+    static final byte SENSOR_REMOVED = 10;
+
+    private TraceFormat() {
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        VarInts.putVarLong(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) VarInts.getVarLong(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Upper bound of the encoded size of a string
+     */
+    static int maxSize(String value) {
+        return 5 + value.length() * 3;
+    }
+}
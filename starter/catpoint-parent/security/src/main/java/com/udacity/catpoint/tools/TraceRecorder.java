@@ -0,0 +1,241 @@
+package com.udacity.catpoint.tools;
+
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorSnapshot;
+import com.udacity.catpoint.event.AlarmStatusChangedEvent;
+import com.udacity.catpoint.event.ArmingStatusChangedEvent;
+import com.udacity.catpoint.event.CatDetectedEvent;
+import com.udacity.catpoint.event.EventBus;
+import com.udacity.catpoint.event.SensorListChangedEvent;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
+import com.udacity.catpoint.event.Subscription;
+import com.udacity.catpoint.service.SecurityService;
+import com.udacity.catpoint.telemetry.VarInts;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records every input of a {@link SecurityService} into a compact binary trace, so that a real
+ * incident's mix of sensor changes, arming commands and image verdicts can be replayed against a
+ * new build with {@link TraceReplayer}. The alarm status changes the service made in response are
+ * recorded too, as the expected outcome.
+ * <p>
+ * The header holds the service's state when recording starts: its statuses, whether the last image
+ * contained a cat, and every sensor with its activation state. After that the recorder listens on the
+ * service's {@link EventBus}; sensor resets caused by arming are left out, since replaying the arming
+ * command repeats them. Start recording on the thread that calls the service, so no input slips in
+ * between reading the state and subscribing. The format is described in {@link TraceFormat}.
+ */
+public class TraceRecorder implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final Map<UUID, Integer> sensors = new HashMap<>();
+    private final Map<String, Integer> cameras = new HashMap<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long lastRecordNanos;
+    private long records;
+    private boolean closed;
+
+    private TraceRecorder(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates, or replaces, the trace file and starts recording the service's inputs into it.
+     */
+    public static TraceRecorder start(Path file, SecurityService securityService) throws IOException {
+        TraceRecorder recorder = new TraceRecorder(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        recorder.writeHeader(securityService);
+        recorder.lastRecordNanos = System.nanoTime();
+
+        EventBus eventBus = securityService.getEventBus();
+        recorder.subscriptions.add(eventBus.subscribe(SensorStatusChangedEvent.class, recorder::sensorChanged));
+        recorder.subscriptions.add(eventBus.subscribe(SensorListChangedEvent.class, recorder::sensorListChanged));
+        recorder.subscriptions.add(eventBus.subscribe(ArmingStatusChangedEvent.class, recorder::armingChanged));
+        recorder.subscriptions.add(eventBus.subscribe(CatDetectedEvent.class, recorder::catDetected));
+        recorder.subscriptions.add(eventBus.subscribe(AlarmStatusChangedEvent.class, recorder::alarmChanged));
+        return recorder;
+    }
+
+    private void writeHeader(SecurityService securityService) {
+        SensorSnapshot snapshot = securityService.getSensorSnapshot();
+        buffer.putInt(TraceFormat.MAGIC)
+                .put(TraceFormat.VERSION)
+                .putLong(System.currentTimeMillis())
+                .put((byte) securityService.getArmingStatus().ordinal())
+                .put((byte) securityService.getAlarmStatus().ordinal())
+                .put((byte) (securityService.isCatDetected() ? 1 : 0));
+        VarInts.putVarLong(buffer, snapshot.size());
+        for (Sensor sensor : snapshot.getSortedSensors()) {
+            makeRoom(definitionSize(sensor));
+            define(sensor, snapshot.isActive(sensor));
+        }
+    }
+
+    private synchronized void sensorChanged(SensorStatusChangedEvent event) {
+        if (closed || event.isArmingReset()) {
+            return;
+        }
+        int index = indexOf(event.getSensor(), event.wasActive());
+        beginRecord(event.isActive() ? TraceFormat.SENSOR_ACTIVE : TraceFormat.SENSOR_INACTIVE, 5);
+        VarInts.putVarLong(buffer, index);
+    }
+
+    private synchronized void sensorListChanged(SensorListChangedEvent event) {
+        if (closed) {
+            return;
+        }
+        Sensor sensor = event.getSensor();
+        boolean active = Boolean.TRUE.equals(sensor.getActive());
+        int index = indexOf(sensor, active);
+        if (event.isAdded()) {
+            beginRecord(TraceFormat.SENSOR_ADDED, 6);
+            VarInts.putVarLong(buffer, index);
+            buffer.put((byte) (active ? 1 : 0));
+        } else {
+            beginRecord(TraceFormat.SENSOR_REMOVED, 5);
+            VarInts.putVarLong(buffer, index);
+        }
+    }
+
+    /**
+     * @return Index of the sensor, writing a definition record first if it has not been seen yet
+     */
+    private int indexOf(Sensor sensor, boolean active) {
+        Integer index = sensors.get(sensor.getSensorId());
+        if (index == null) {
+            beginRecord(TraceFormat.DEFINE_SENSOR, definitionSize(sensor));
+            index = define(sensor, active);
+        }
+        return index;
+    }
+
+    private int define(Sensor sensor, boolean active) {
+        int index = sensors.size();
+        sensors.put(sensor.getSensorId(), index);
+        buffer.putLong(sensor.getSensorId().getMostSignificantBits())
+                .putLong(sensor.getSensorId().getLeastSignificantBits());
+        TraceFormat.putString(buffer, sensor.getName());
+        buffer.put((byte) sensor.getSensorType().ordinal());
+        TraceFormat.putString(buffer, sensor.getZone());
+        buffer.put((byte) (active ? 1 : 0));
+        return index;
+    }
+
+    private static int definitionSize(Sensor sensor) {
+        return 18 + TraceFormat.maxSize(sensor.getName()) + TraceFormat.maxSize(sensor.getZone());
+    }
+
+    private synchronized void armingChanged(ArmingStatusChangedEvent event) {
+        if (closed) {
+            return;
+        }
+        beginRecord(TraceFormat.ARMING, 1);
+        buffer.put((byte) event.getStatus().ordinal());
+    }
+
+    private synchronized void catDetected(CatDetectedEvent event) {
+        if (closed) {
+            return;
+        }
+        Integer index = cameras.get(event.getCameraId());
+        if (index == null) {
+            index = cameras.size();
+            cameras.put(event.getCameraId(), index);
+            beginRecord(TraceFormat.DEFINE_CAMERA, TraceFormat.maxSize(event.getCameraId()));
+            TraceFormat.putString(buffer, event.getCameraId());
+        }
+        beginRecord(event.isCatDetected() ? TraceFormat.VERDICT_CAT : TraceFormat.VERDICT_CLEAR, 5);
+        VarInts.putVarLong(buffer, index);
+    }
+
+    private synchronized void alarmChanged(AlarmStatusChangedEvent event) {
+        if (closed) {
+            return;
+        }
+        beginRecord(TraceFormat.ALARM, 1);
+        buffer.put((byte) event.getStatus().ordinal());
+    }
+
+    /**
+     * Writes the tag and time of a new record, making room for its payload first.
+     */
+    private void beginRecord(byte tag, int payloadSize) {
+        makeRoom(1 + 10 + payloadSize);
+        long now = System.nanoTime();
+        long micros = (now - lastRecordNanos) / 1000;
+        //advance by whole microseconds only, so rounding does not add up over a long trace
+        lastRecordNanos += micros * 1000;
+        buffer.put(tag);
+        VarInts.putVarLong(buffer, micros);
+        records++;
+    }
+
+    private void makeRoom(int size) {
+        if (buffer.remaining() < size) {
+            writeBuffer();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(size);
+            }
+        }
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write trace", e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @return Number of records written so far, including sensor and camera definitions
+     */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Writes buffered records to the file.
+     */
+    public synchronized void flush() {
+        if (!closed) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Stops recording and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        subscriptions.forEach(Subscription::cancel);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            writeBuffer();
+            closed = true;
+            channel.close();
+        }
+    }
+}
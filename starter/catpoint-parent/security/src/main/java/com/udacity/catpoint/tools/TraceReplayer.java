@@ -0,0 +1,252 @@
+package com.udacity.catpoint.tools;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.event.AlarmStatusChangedEvent;
+import com.udacity.catpoint.event.ArmingStatusChangedEvent;
+import com.udacity.catpoint.service.SecurityService;
+import com.udacity.catpoint.telemetry.VarInts;
+import com.udacity.image.service.ImageService;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a trace written by {@link TraceRecorder} against a fresh {@link SecurityService}, backed by
+ * an {@link InMemorySecurityRepository} and an image service that returns the recorded verdicts.
+ * Inputs are replayed either at their recorded times or as fast as possible. Afterwards the alarm
+ * and arming status changes the service made are compared with the recorded ones, and the input
+ * throughput is reported.
+ * <p>
+ * Run with {@code java -cp <jar> com.udacity.catpoint.tools.TraceReplayer <trace> [--real-time]}.
+ * The exit code is 1 if the replayed status sequence differs from the recorded one.
+ */
+public class TraceReplayer {
+
+    private final Path trace;
+    private final boolean realTime;
+
+    public TraceReplayer(Path trace, boolean realTime) {
+        this.trace = trace;
+        this.realTime = realTime;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TraceReplayer <trace> [--real-time]");
+            System.exit(2);
+        }
+        boolean realTime = args.length > 1 && args[1].equals("--real-time");
+        Result result = new TraceReplayer(Paths.get(args[0]), realTime).replay();
+        System.out.printf("Replayed %,d inputs in %,d ms: %,.0f inputs/s%n",
+                result.getInputCount(),
+                TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()),
+                result.getInputsPerSecond());
+        if (result.isIdentical()) {
+            System.out.printf("Status sequence identical: %,d changes%n", result.getExpected().size());
+        } else {
+            int index = result.getFirstMismatch();
+            System.out.printf("Status sequence differs at change %d: expected %s, got %s%n",
+                    index,
+                    index < result.getExpected().size() ? result.getExpected().get(index) : "end of trace",
+                    index < result.getActual().size() ? result.getActual().get(index) : "nothing");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays the whole trace.
+     */
+    public Result replay() throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 17 || buffer.getInt() != TraceFormat.MAGIC) {
+            throw new IOException("Not a trace file: " + trace);
+        }
+        byte version = buffer.get();
+        if (version != TraceFormat.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        buffer.getLong(); //start time, informational only
+
+        ArmingStatus armingStatus = ArmingStatus.values()[buffer.get()];
+        AlarmStatus alarmStatus = AlarmStatus.values()[buffer.get()];
+        boolean catDetected = buffer.get() != 0;
+        InMemorySecurityRepository repository = new InMemorySecurityRepository();
+        RecordedVerdicts verdicts = new RecordedVerdicts();
+        SecurityService securityService = new SecurityService(repository, verdicts);
+        BufferedImage frame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        if (catDetected) {
+            //while disarmed with no sensors, a cat changes nothing but the service's memory of it
+            verdicts.next = true;
+            securityService.processImage(frame);
+        }
+        repository.setArmingStatus(armingStatus);
+        repository.setAlarmStatus(alarmStatus);
+        List<Sensor> sensors = new ArrayList<>();
+        for (long i = VarInts.getVarLong(buffer); i > 0; i--) {
+            Sensor sensor = readSensor(buffer);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+
+        List<Enum<?>> expected = new ArrayList<>();
+        List<Enum<?>> actual = new ArrayList<>();
+        securityService.getEventBus().subscribe(AlarmStatusChangedEvent.class, e -> actual.add(e.getStatus()));
+        securityService.getEventBus().subscribe(ArmingStatusChangedEvent.class, e -> actual.add(e.getStatus()));
+
+        List<String> cameras = new ArrayList<>();
+        long inputs = 0;
+        long recordedMicros = 0;
+        long start = System.nanoTime();
+
+        while (buffer.hasRemaining()) {
+            byte tag = buffer.get();
+            recordedMicros += VarInts.getVarLong(buffer);
+            switch (tag) {
+                case TraceFormat.DEFINE_SENSOR -> sensors.add(readSensor(buffer));
+                case TraceFormat.DEFINE_CAMERA -> cameras.add(TraceFormat.getString(buffer));
+                case TraceFormat.ALARM -> expected.add(AlarmStatus.values()[buffer.get()]);
+                case TraceFormat.SENSOR_ACTIVE, TraceFormat.SENSOR_INACTIVE -> {
+                    Sensor sensor = sensors.get((int) VarInts.getVarLong(buffer));
+                    awaitRecordedTime(start, recordedMicros);
+                    securityService.changeSensorActivationStatus(sensor, tag == TraceFormat.SENSOR_ACTIVE);
+                    inputs++;
+                }
+                case TraceFormat.SENSOR_ADDED -> {
+                    Sensor sensor = sensors.get((int) VarInts.getVarLong(buffer));
+                    sensor.setActive(buffer.get() != 0);
+                    awaitRecordedTime(start, recordedMicros);
+                    securityService.addSensor(sensor);
+                    inputs++;
+                }
+                case TraceFormat.SENSOR_REMOVED -> {
+                    Sensor sensor = sensors.get((int) VarInts.getVarLong(buffer));
+                    awaitRecordedTime(start, recordedMicros);
+                    securityService.removeSensor(sensor);
+                    inputs++;
+                }
+                case TraceFormat.ARMING -> {
+                    ArmingStatus status = ArmingStatus.values()[buffer.get()];
+                    expected.add(status);
+                    awaitRecordedTime(start, recordedMicros);
+                    securityService.setArmingStatus(status);
+                    inputs++;
+                }
+                case TraceFormat.VERDICT_CAT, TraceFormat.VERDICT_CLEAR -> {
+                    String cameraId = cameras.get((int) VarInts.getVarLong(buffer));
+                    verdicts.next = tag == TraceFormat.VERDICT_CAT;
+                    awaitRecordedTime(start, recordedMicros);
+                    securityService.processImage(cameraId, frame);
+                    inputs++;
+                }
+                default -> throw new IOException("Corrupt trace: unknown record " + tag + " at " + (buffer.position() - 1));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result(inputs, elapsed, expected, actual);
+    }
+
+    private static Sensor readSensor(ByteBuffer buffer) {
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        String name = TraceFormat.getString(buffer);
+        SensorType type = SensorType.values()[buffer.get()];
+        Sensor sensor = new Sensor(name, type, TraceFormat.getString(buffer));
+        sensor.setSensorId(id);
+        sensor.setActive(buffer.get() != 0);
+        return sensor;
+    }
+
+    private void awaitRecordedTime(long start, long recordedMicros) {
+        if (!realTime) {
+            return;
+        }
+        long due = start + TimeUnit.MICROSECONDS.toNanos(recordedMicros);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    /**
+     * Image service that answers with the verdict recorded for the image being replayed.
+     */
+    private static class RecordedVerdicts implements ImageService {
+        private boolean next;
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            return next;
+        }
+    }
+
+    /**
+     * Outcome of a replay: how fast the inputs went through, and the status changes that were
+     * recorded and replayed, alarm and arming statuses interleaved in the order they happened.
+     */
+    public static class Result {
+        private final long inputCount;
+        private final long elapsedNanos;
+        private final List<Enum<?>> expected;
+        private final List<Enum<?>> actual;
+
+        Result(long inputCount, long elapsedNanos, List<Enum<?>> expected, List<Enum<?>> actual) {
+            this.inputCount = inputCount;
+            this.elapsedNanos = elapsedNanos;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public long getInputCount() {
+            return inputCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getInputsPerSecond() {
+            return elapsedNanos == 0 ? 0 : inputCount * 1e9 / elapsedNanos;
+        }
+
+        public List<Enum<?>> getExpected() {
+            return expected;
+        }
+
+        public List<Enum<?>> getActual() {
+            return actual;
+        }
+
+        public boolean isIdentical() {
+            return expected.equals(actual);
+        }
+
+        /**
+         * @return Index of the first status change that differs, or -1 if the sequences are identical
+         */
+        public int getFirstMismatch() {
+            int common = Math.min(expected.size(), actual.size());
+            for (int i = 0; i < common; i++) {
+                if (expected.get(i) != actual.get(i)) {
+                    return i;
+                }
+            }
+            return expected.size() == actual.size() ? -1 : common;
+        }
+    }
+}
@@ -5,5 +5,9 @@ module com.udacity.catpoint.security {
   requires com.google.common;
   requires com.google.gson;
   requires java.prefs;
+  requires java.management;
+  requires jdk.management;
+  requires jdk.jfr;
+  requires org.slf4j;
   opens com.udacity.catpoint.data to com.google.gson;
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.udacity.catpoint.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UiFrameClockTest {
+  private final UiFrameClock frameClock = new UiFrameClock(30);
+
+  @Test
+  public void manyMarksBetweenFrames_renderOncePerFrame() {
+    AtomicInteger renders = new AtomicInteger();
+    UiFrameClock.Renderer renderer = renders::incrementAndGet;
+
+    for (int i = 0; i < 1000; i++) {
+      frameClock.markDirty(renderer);
+    }
+    frameClock.renderFrame();
+    frameClock.renderFrame();
+
+    assertEquals(1, renders.get());
+    assertEquals(1000, frameClock.getMarkCount());
+    assertEquals(1, frameClock.getRenderCount());
+  }
+
+  @Test
+  public void markDuringRender_isRenderedInTheNextFrame() {
+    AtomicInteger renders = new AtomicInteger();
+    UiFrameClock.Renderer[] renderer = new UiFrameClock.Renderer[1];
+    renderer[0] = () -> {
+      if (renders.incrementAndGet() == 1) {
+        frameClock.markDirty(renderer[0]);
+      }
+    };
+
+    frameClock.markDirty(renderer[0]);
+    frameClock.renderFrame();
+    frameClock.renderFrame();
+
+    assertEquals(2, renders.get());
+  }
+}
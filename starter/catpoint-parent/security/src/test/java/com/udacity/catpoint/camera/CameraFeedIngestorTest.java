@@ -0,0 +1,172 @@
+package com.udacity.catpoint.camera;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraFeedIngestorTest {
+  private static final Color[] COLORS = {Color.RED, Color.GREEN, Color.BLUE, Color.WHITE, Color.BLACK};
+
+  @TempDir
+  Path directory;
+
+  private static byte[] jpeg(Color color) throws IOException {
+    BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, color.getRGB());
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "jpg", out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Inserts an APP1 segment holding bytes that look like an embedded thumbnail, end marker included.
+   */
+  private static byte[] withEmbeddedThumbnail(byte[] jpeg) {
+    byte[] payload = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3, (byte) 0xFF, (byte) 0xD9};
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(jpeg, 0, 2);
+    out.write(0xFF);
+    out.write(0xE1);
+    out.write(0);
+    out.write(payload.length + 2);
+    out.write(payload, 0, payload.length);
+    out.write(jpeg, 2, jpeg.length - 2);
+    return out.toByteArray();
+  }
+
+  private static byte[] multipartStream(int frames) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int i = 0; i < frames; i++) {
+      byte[] frame = withEmbeddedThumbnail(jpeg(COLORS[i % COLORS.length]));
+      out.write(("--frame\r\nContent-Type: image/jpeg\r\nContent-Length: " + frame.length + "\r\n\r\n")
+          .getBytes(StandardCharsets.US_ASCII));
+      out.write(frame);
+      out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+    return out.toByteArray();
+  }
+
+  private static Color dominantColor(BufferedImage image) {
+    Color pixel = new Color(image.getRGB(image.getWidth() / 2, image.getHeight() / 2));
+    Color closest = null;
+    int best = Integer.MAX_VALUE;
+    for (Color color : COLORS) {
+      int distance = Math.abs(color.getRed() - pixel.getRed()) + Math.abs(color.getGreen() - pixel.getGreen())
+          + Math.abs(color.getBlue() - pixel.getBlue());
+      if (distance < best) {
+        best = distance;
+        closest = color;
+      }
+    }
+    return closest;
+  }
+
+  @Test
+  public void mjpegStream_yieldsEveryFrameInOrderIntoOneReusedImage() throws Exception {
+    List<Color> colors = new ArrayList<>();
+    Map<BufferedImage, Boolean> images = new IdentityHashMap<>();
+    MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(multipartStream(12)), false);
+    CameraFeedIngestor ingestor = new CameraFeedIngestor(source, 1000, frame -> {
+      colors.add(dominantColor(frame));
+      images.put(frame, true);
+    });
+
+    ingestor.start("test-feed");
+    assertTrue(ingestor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(12, ingestor.getFramesProcessed());
+    assertEquals(0, ingestor.getFramesCorrupt());
+    assertNull(ingestor.getFailure());
+    for (int i = 0; i < colors.size(); i++) {
+      assertEquals(COLORS[i % COLORS.length], colors.get(i));
+    }
+    assertEquals(1, images.size());
+  }
+
+  @Test
+  public void failingConsumer_skipsTheFrameAndKeepsTheFeedRunning() throws Exception {
+    MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(multipartStream(6)), false);
+    List<Color> shown = new ArrayList<>();
+    CameraFeedIngestor ingestor = new CameraFeedIngestor(source, 1000, frame -> {
+      if (dominantColor(frame) == Color.GREEN) {
+        throw new IllegalStateException("Unable to process camera frame");
+      }
+    });
+    ingestor.setFrameListener(frame -> shown.add(dominantColor(frame)));
+
+    ingestor.start("test-feed");
+    assertTrue(ingestor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(5, ingestor.getFramesProcessed());
+    assertEquals(1, ingestor.getFramesFailed());
+    assertNull(ingestor.getFailure());
+    assertEquals(List.of(Color.RED, Color.BLUE, Color.WHITE, Color.BLACK, Color.RED), shown);
+  }
+
+  @Test
+  public void recordedSource_isReadNoFasterThanTheFrameRate() throws Exception {
+    MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(multipartStream(6)), false);
+    CameraFeedIngestor ingestor = new CameraFeedIngestor(source, 20, frame -> { });
+
+    long start = System.nanoTime();
+    ingestor.start("test-feed");
+    assertTrue(ingestor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(6, ingestor.getFramesProcessed());
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(240));
+  }
+
+  @Test
+  public void liveSource_dropsFramesArrivingTooEarly() throws Exception {
+    MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(multipartStream(50)), true);
+    CameraFeedIngestor ingestor = new CameraFeedIngestor(source, 1, frame -> { });
+
+    ingestor.start("test-feed");
+    assertTrue(ingestor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(50, ingestor.getFramesRead());
+    assertEquals(1, ingestor.getFramesProcessed());
+    assertEquals(49, ingestor.getFramesDropped());
+  }
+
+  @Test
+  public void directorySource_readsNewFramesInNameOrder() throws Exception {
+    Files.write(directory.resolve("frame-0002.jpg"), jpeg(Color.GREEN));
+    Files.write(directory.resolve("frame-0001.jpg"), jpeg(Color.RED));
+    Files.write(directory.resolve("frame-0003.tmp"), jpeg(Color.BLUE));
+    DirectoryFrameSource source = new DirectoryFrameSource(directory, DirectoryFrameSource.DEFAULT_PATTERN, true);
+    FrameBuffer buffer = new FrameBuffer(16);
+    FrameDecoder decoder = new FrameDecoder();
+
+    assertTrue(source.nextFrame(buffer));
+    assertEquals(Color.RED, dominantColor(decoder.decode(buffer)));
+    assertTrue(source.nextFrame(buffer));
+    assertEquals(Color.GREEN, dominantColor(decoder.decode(buffer)));
+    assertFalse(source.nextFrame(buffer));
+
+    Files.move(directory.resolve("frame-0003.tmp"), directory.resolve("frame-0003.jpg"));
+    assertTrue(source.nextFrame(buffer));
+    assertEquals(Color.BLUE, dominantColor(decoder.decode(buffer)));
+    decoder.close();
+  }
+}
@@ -0,0 +1,183 @@
+package com.udacity.catpoint.camera;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.service.SecurityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvidenceRecorderTest {
+  @TempDir
+  Path directory;
+
+  private static byte[] frame(int index, int length) {
+    byte[] frame = new byte[length];
+    Arrays.fill(frame, (byte) index);
+    return frame;
+  }
+
+  private byte[] writeToFile(PreAlarmFrameRing ring) throws Exception {
+    Path file = Files.createTempFile(directory, "ring", ".bin");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      assertEquals(ring.getByteCount(), ring.writeTo(channel));
+    }
+    return Files.readAllBytes(file);
+  }
+
+  @Test
+  public void ring_afterWrappingAroundTheBuffer_writesTheNewestFramesOldestFirst() throws Exception {
+    DirectBufferPool pool = new DirectBufferPool(1000, 1);
+    PreAlarmFrameRing ring = new PreAlarmFrameRing(pool.acquire(), 1, TimeUnit.HOURS, 100);
+
+    //frames of varying size, so the layout wraps at a different place each time round
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    int[] sizes = new int[40];
+    for (int i = 0; i < sizes.length; i++) {
+      sizes[i] = 90 + (i * 37) % 120;
+      ring.record(frame(i, sizes[i]), 0, sizes[i], i);
+
+      expected.reset();
+      for (int j = i - ring.getFrameCount() + 1; j <= i; j++) {
+        expected.write(frame(j, sizes[j]), 0, sizes[j]);
+      }
+      assertArrayEquals(expected.toByteArray(), writeToFile(ring), "after frame " + i);
+    }
+    assertTrue(ring.getFrameCount() >= 4);
+    assertEquals(40, ring.getFramesRecorded());
+  }
+
+  @Test
+  public void ring_dropsFramesOlderThanTheWindow() throws Exception {
+    PreAlarmFrameRing ring = new PreAlarmFrameRing(ByteBuffer.allocateDirect(4096), 100, TimeUnit.NANOSECONDS, 100);
+    for (int i = 0; i < 10; i++) {
+      ring.record(frame(i, 10), 0, 10, i * 30L);
+    }
+    ring.record(frame(99, 5000), 0, 5000, 300);
+
+    //frames at 180, 210, 240 and 270 are within 100ns of the newest
+    assertEquals(4, ring.getFrameCount());
+    assertEquals(6, writeToFile(ring)[0]);
+    assertEquals(1, ring.getFramesOversized());
+  }
+
+  @Test
+  public void dropExpired_dropsFramesOlderThanTheWindowBeforeTheGivenTime() throws Exception {
+    PreAlarmFrameRing ring = new PreAlarmFrameRing(ByteBuffer.allocateDirect(4096), 100, TimeUnit.NANOSECONDS, 100);
+    for (int i = 0; i < 10; i++) {
+      ring.record(frame(i, 10), 0, 10, i * 10L);
+    }
+
+    ring.dropExpired(150);
+
+    //frames at 50 to 90 are within 100ns of the alarm
+    assertEquals(5, ring.getFrameCount());
+    assertEquals(5, writeToFile(ring)[0]);
+  }
+
+  @Test
+  public void saveClips_skipsCamerasWithOnlyFramesFromBeforeTheWindow() throws Exception {
+    EvidenceRecorder recorder = EvidenceRecorder.builder(directory.resolve("evidence"))
+        .window(1, TimeUnit.SECONDS).bytesPerCamera(1024).cameras(2).build();
+    long alarm = System.nanoTime();
+    recorder.ring("stopped").record(frame(1, 10), 0, 10, alarm - TimeUnit.SECONDS.toNanos(5));
+    recorder.ring("live").record(frame(2, 10), 0, 10, alarm - TimeUnit.MILLISECONDS.toNanos(500));
+
+    List<Path> clips = recorder.saveClips(alarm);
+
+    assertEquals(1, clips.size());
+    assertTrue(clips.get(0).getFileName().toString().startsWith("live-"));
+    assertEquals(10, recorder.getBytesWritten());
+    recorder.close();
+  }
+
+  @Test
+  public void alarm_savesEachCameraWindowAsAPlayableClip() throws Exception {
+    SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+    EvidenceRecorder recorder = EvidenceRecorder.builder(directory.resolve("evidence"))
+        .bytesPerCamera(256 * 1024).cameras(2).build();
+    recorder.attach(securityService);
+
+    FrameBuffer buffer = new FrameBuffer();
+    for (int i = 0; i < 5; i++) {
+      BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+      image.setRGB(0, 0, 0x10101 * i * 40);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ImageIO.write(image, "jpg", out);
+      buffer.clear();
+      buffer.append(out.toByteArray(), 0, out.size());
+      recorder.ring("front door").record(buffer, System.nanoTime());
+    }
+    recorder.ring("garage");
+
+    securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+    securityService.setAlarmStatus(AlarmStatus.ALARM);
+    securityService.setAlarmStatus(AlarmStatus.ALARM);
+    recorder.close();
+
+    List<Path> clips;
+    try (Stream<Path> files = Files.list(directory.resolve("evidence"))) {
+      clips = files.collect(Collectors.toList());
+    }
+    assertEquals(1, clips.size());
+    assertTrue(clips.get(0).getFileName().toString().startsWith("front_door-"));
+    assertEquals(1, recorder.getClipsWritten());
+    assertEquals(Files.size(clips.get(0)), recorder.getBytesWritten());
+
+    int frames = 0;
+    try (MjpegFrameSource source = MjpegFrameSource.open(clips.get(0)); FrameDecoder decoder = new FrameDecoder()) {
+      while (true) {
+        try {
+          source.nextFrame(buffer);
+        } catch (EOFException e) {
+          break;
+        }
+        assertEquals(32, decoder.decode(buffer).getWidth());
+        frames++;
+      }
+    }
+    assertEquals(5, frames);
+  }
+
+  @Test
+  public void release_returnsTheCameraBufferToThePool() {
+    EvidenceRecorder recorder = EvidenceRecorder.builder(directory).bytesPerCamera(1024).cameras(1).build();
+    recorder.ring("a");
+    assertThrows(IllegalStateException.class, () -> recorder.ring("b"));
+
+    recorder.release("a");
+    assertNotNull(recorder.ring("b"));
+    recorder.close();
+  }
+
+  @Test
+  public void release_detachesTheRingFromFeedsStillRecordingIntoIt() {
+    EvidenceRecorder recorder = EvidenceRecorder.builder(directory).bytesPerCamera(1024).cameras(1).build();
+    PreAlarmFrameRing released = recorder.ring("a");
+    recorder.release("a");
+    PreAlarmFrameRing reused = recorder.ring("b");
+    reused.record(frame(2, 10), 0, 10, 0);
+
+    released.record(frame(1, 10), 0, 10, 0);
+
+    assertEquals(0, released.getFrameCount());
+    assertEquals(2, reused.getBuffer().get(0));
+    recorder.close();
+  }
+}
@@ -0,0 +1,145 @@
+package com.udacity.catpoint.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentSecurityRepositoryTest {
+
+  @Test
+  public void concurrentWriters_neverLoseASensor() throws Exception {
+    ConcurrentSecurityRepository repository = ConcurrentSecurityRepository.builder().build();
+    List<Sensor> sensors = new ArrayList<>();
+    for (int i = 0; i < 64; i++) {
+      Sensor sensor = new Sensor("sensor-" + i, SensorType.values()[i % 3]);
+      sensors.add(sensor);
+      repository.addSensor(sensor);
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> writers = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int thread = t;
+        writers.add(pool.submit(() -> {
+          start.await();
+          for (int i = 0; i < 20_000; i++) {
+            Sensor sensor = sensors.get(thread * 8 + i % 8);
+            sensor.setActive(i % 2 == 0);
+            repository.updateSensor(sensor);
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      int reads = 0;
+      while (!allDone(writers)) {
+        assertEquals(64, repository.getSensorSnapshot().size());
+        reads++;
+      }
+      for (Future<?> writer : writers) {
+        writer.get();
+      }
+      assertTrue(reads > 0);
+    } finally {
+      pool.shutdownNow();
+    }
+    assertEquals(64, repository.getSensorSnapshot().size());
+  }
+
+  @Test
+  public void snapshot_isReusedUntilSomethingChanges() {
+    ConcurrentSecurityRepository repository = ConcurrentSecurityRepository.builder().build();
+    Sensor door = new Sensor("Door", SensorType.DOOR);
+    repository.addSensor(door);
+
+    SensorSnapshot first = repository.getSensorSnapshot();
+    assertSame(first, repository.getSensorSnapshot());
+
+    door.setActive(true);
+    repository.updateSensor(door);
+    SensorSnapshot second = repository.getSensorSnapshot();
+    assertTrue(second.getVersion() > first.getVersion());
+    assertSame(first.getSensors(), second.getSensors());
+
+    repository.removeSensor(door);
+    assertEquals(0, repository.getSensorSnapshot().size());
+  }
+
+  @Test
+  public void burstOfChanges_isPersistedWithFewWrites() {
+    AtomicInteger writes = new AtomicInteger();
+    AtomicReference<ArmingStatus> persisted = new AtomicReference<>();
+    ConcurrentSecurityRepository repository = ConcurrentSecurityRepository.builder()
+        .persister((sensors, alarmStatus, armingStatus) -> {
+          writes.incrementAndGet();
+          persisted.set(armingStatus);
+        })
+        .writeDelay(Duration.ofSeconds(10))
+        .build();
+    Sensor door = new Sensor("Door", SensorType.DOOR);
+    repository.addSensor(door);
+    for (int i = 0; i < 1000; i++) {
+      door.setActive(i % 2 == 0);
+      repository.updateSensor(door);
+    }
+    repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+    repository.close();
+
+    assertEquals(1002, repository.getChangeCount());
+    assertEquals(1, writes.get());
+    assertEquals(ArmingStatus.ARMED_AWAY, persisted.get());
+  }
+
+  @Test
+  public void close_dropsPendingWriteAndIgnoresLaterChanges() throws Exception {
+    AtomicInteger writes = new AtomicInteger();
+    ConcurrentSecurityRepository repository = ConcurrentSecurityRepository.builder()
+        .persister((sensors, alarmStatus, armingStatus) -> writes.incrementAndGet())
+        .writeDelay(Duration.ofMillis(50))
+        .build();
+    repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+    repository.close();
+    repository.setAlarmStatus(AlarmStatus.ALARM);
+    repository.flush();
+    Thread.sleep(200);
+
+    assertEquals(1, writes.get());
+    assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+    assertEquals(2, repository.getChangeCount());
+  }
+
+  @Test
+  public void initialState_isCopiedFromAnotherRepository() {
+    InMemorySecurityRepository source = new InMemorySecurityRepository();
+    source.addSensor(new Sensor("Window", SensorType.WINDOW));
+    source.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+    ConcurrentSecurityRepository repository = ConcurrentSecurityRepository.builder().initialState(source).build();
+
+    assertEquals(1, repository.getSensorSnapshot().size());
+    assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+  }
+
+  private static boolean allDone(List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      if (!future.isDone()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
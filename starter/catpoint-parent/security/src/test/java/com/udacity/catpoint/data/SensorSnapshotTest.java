@@ -0,0 +1,88 @@
+package com.udacity.catpoint.data;
+
+import com.udacity.catpoint.service.SecurityService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorSnapshotTest {
+
+  @Test
+  public void snapshot_keepsItsStateWhenSensorsChangeInPlace() {
+    InMemorySecurityRepository repository = new InMemorySecurityRepository();
+    Sensor door = new Sensor("Door", SensorType.DOOR);
+    repository.addSensor(door);
+    SensorSnapshot before = repository.getSensorSnapshot();
+
+    door.setActive(true);
+    assertFalse(before.isActive(door));
+    repository.updateSensor(door);
+
+    assertFalse(before.isActive(door));
+    assertTrue(repository.getSensorSnapshot().isActive(door));
+    assertSame(before.getSensors(), repository.getSensorSnapshot().getSensors());
+  }
+
+  @Test
+  public void arming_isNeverSeenHalfApplied() {
+    InMemorySecurityRepository repository = new InMemorySecurityRepository();
+    SecurityService securityService = new SecurityService(repository, (image, threshold) -> false);
+    List<Sensor> sensors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Sensor sensor = new Sensor("Sensor " + i, SensorType.MOTION);
+      securityService.addSensor(sensor);
+      securityService.changeSensorActivationStatus(sensor, true);
+      sensors.add(sensor);
+    }
+    SensorSnapshot before = securityService.getSensorSnapshot();
+
+    securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+    assertEquals(100, before.getActiveCount());
+    assertEquals(0, securityService.getSensorSnapshot().getActiveCount());
+    for (Sensor sensor : sensors) {
+      assertTrue(before.isActive(sensor));
+    }
+  }
+
+  @Test
+  public void manySensors_recordStateBeyondTheFirstWord() {
+    List<Sensor> sensors = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      Sensor sensor = new Sensor(String.format("Sensor %03d", i), SensorType.WINDOW);
+      sensor.setActive(i % 3 == 0);
+      sensors.add(sensor);
+    }
+    SensorSnapshot snapshot = SensorSnapshot.of(sensors);
+    assertEquals(50, snapshot.getActiveCount());
+
+    Sensor last = sensors.get(149);
+    last.setActive(true);
+    SensorSnapshot updated = snapshot.withUpdated(last);
+    assertFalse(snapshot.isActive(last));
+    assertTrue(updated.isActive(last));
+    assertEquals(51, updated.getActiveCount());
+
+    SensorSnapshot removed = updated.without(sensors.get(0));
+    assertEquals(149, removed.size());
+    assertEquals(50, removed.getActiveCount());
+    assertTrue(removed.isActive(last));
+    assertFalse(removed.isActive(sensors.get(0)));
+  }
+
+  @Test
+  public void copySensors_carryTheSnapshotState() {
+    Sensor door = new Sensor("Door", SensorType.DOOR, "Garage");
+    SensorSnapshot snapshot = SensorSnapshot.of(List.of(door));
+    door.setActive(true);
+
+    Sensor copy = snapshot.copySensors().get(0);
+    assertNotSame(door, copy);
+    assertEquals(door, copy);
+    assertEquals("Garage", copy.getZone());
+    assertFalse(copy.getActive());
+  }
+}
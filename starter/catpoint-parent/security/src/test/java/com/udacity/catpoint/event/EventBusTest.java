@@ -0,0 +1,96 @@
+package com.udacity.catpoint.event;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBusTest {
+  private final EventBus eventBus = new EventBus();
+  private final Sensor door = new Sensor("Door", SensorType.DOOR);
+  private final Sensor window = new Sensor("Window", SensorType.WINDOW);
+
+  @Test
+  public void publish_deliversOnlyToSubscribersOfTheEventType() {
+    List<AlarmStatus> alarms = new ArrayList<>();
+    List<Boolean> cats = new ArrayList<>();
+    eventBus.subscribe(AlarmStatusChangedEvent.class, e -> alarms.add(e.getStatus()));
+    eventBus.subscribe(CatDetectedEvent.class, e -> cats.add(e.isCatDetected()));
+
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.ALARM));
+
+    assertEquals(List.of(AlarmStatus.ALARM), alarms);
+    assertTrue(cats.isEmpty());
+  }
+
+  @Test
+  public void keyedSubscription_receivesOnlyEventsForItsKey() {
+    List<Sensor> doorEvents = new ArrayList<>();
+    List<Sensor> allEvents = new ArrayList<>();
+    eventBus.subscribe(SensorStatusChangedEvent.class, door.getSensorId(), e -> doorEvents.add(e.getSensor()));
+    eventBus.subscribe(SensorStatusChangedEvent.class, e -> allEvents.add(e.getSensor()));
+
+    eventBus.publish(new SensorStatusChangedEvent(window, false, true));
+    eventBus.publish(new SensorStatusChangedEvent(door, false, true));
+
+    assertEquals(List.of(door), doorEvents);
+    assertEquals(List.of(window, door), allEvents);
+  }
+
+  @Test
+  public void cancel_stopsDelivery() {
+    List<AlarmStatus> alarms = new ArrayList<>();
+    Subscription subscription = eventBus.subscribe(AlarmStatusChangedEvent.class, e -> alarms.add(e.getStatus()));
+    Subscription keyed = eventBus.subscribe(CatDetectedEvent.class, "front", e -> fail("cancelled"));
+
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.PENDING_ALARM));
+    subscription.cancel();
+    keyed.cancel();
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.ALARM));
+    eventBus.publish(new CatDetectedEvent("front", true));
+
+    assertEquals(List.of(AlarmStatus.PENDING_ALARM), alarms);
+    assertFalse(eventBus.hasSubscribers(AlarmStatusChangedEvent.class));
+    assertFalse(eventBus.hasSubscribers(CatDetectedEvent.class));
+  }
+
+  @Test
+  public void subscribeFromWithinSubscriber_takesEffectFromNextEvent() {
+    List<String> received = new ArrayList<>();
+    eventBus.subscribe(AlarmStatusChangedEvent.class, e -> {
+      received.add("first");
+      eventBus.subscribe(AlarmStatusChangedEvent.class, e2 -> received.add("second"));
+    });
+
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.ALARM));
+    assertEquals(List.of("first"), received);
+
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.ALARM));
+    assertEquals(List.of("first", "first", "second"), received);
+  }
+
+  @Test
+  public void failingSubscriber_doesNotStopDeliveryToOthers() {
+    List<String> received = new ArrayList<>();
+    Sensor door = new Sensor("Door", SensorType.DOOR);
+    eventBus.subscribe(AlarmStatusChangedEvent.class, e -> {
+      throw new IllegalStateException("broken subscriber");
+    });
+    eventBus.subscribe(AlarmStatusChangedEvent.class, e -> received.add("all"));
+    eventBus.subscribe(SensorStatusChangedEvent.class, door.getSensorId(), e -> {
+      throw new IllegalStateException("broken keyed subscriber");
+    });
+    eventBus.subscribe(SensorStatusChangedEvent.class, door.getSensorId(), e -> received.add("keyed"));
+
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.ALARM));
+    eventBus.publish(new SensorStatusChangedEvent(door, false, true));
+
+    assertEquals(List.of("all", "keyed"), received);
+    assertEquals(2, eventBus.getFailedDeliveryCount());
+  }
+}
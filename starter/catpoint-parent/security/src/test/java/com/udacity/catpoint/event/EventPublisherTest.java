@@ -0,0 +1,164 @@
+package com.udacity.catpoint.event;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventPublisherTest {
+  private final EventBus eventBus = new EventBus();
+  private final EventPublisher<AlarmStatusChangedEvent> alarms =
+      new EventPublisher<>(eventBus, AlarmStatusChangedEvent.class, Runnable::run, 4);
+
+  @Test
+  public void subscriber_receivesOnlyWhatItRequested() {
+    RecordingSubscriber<AlarmStatusChangedEvent> subscriber = new RecordingSubscriber<>();
+    alarms.subscribe(subscriber);
+
+    subscriber.subscription.request(2);
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.PENDING_ALARM));
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.ALARM));
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.NO_ALARM));
+    assertEquals(List.of(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM), statuses(subscriber.received));
+
+    subscriber.subscription.request(5);
+    assertEquals(List.of(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM, AlarmStatus.NO_ALARM), statuses(subscriber.received));
+  }
+
+  @Test
+  public void bufferedSubscriber_fallingTooFarBehind_isCancelledWithError() {
+    RecordingSubscriber<AlarmStatusChangedEvent> subscriber = new RecordingSubscriber<>();
+    alarms.subscribe(subscriber);
+
+    for (int i = 0; i < 5; i++) {
+      eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.ALARM));
+    }
+
+    assertTrue(subscriber.error instanceof IllegalStateException);
+    assertTrue(subscriber.received.isEmpty());
+    assertFalse(eventBus.hasSubscribers(AlarmStatusChangedEvent.class));
+  }
+
+  @Test
+  public void latestSubscriber_seesOnlyTheLatestEventPerKey() {
+    Sensor door = new Sensor("Door", SensorType.DOOR);
+    Sensor window = new Sensor("Window", SensorType.WINDOW);
+    EventPublisher<SensorStatusChangedEvent> sensors =
+        new EventPublisher<>(eventBus, SensorStatusChangedEvent.class, Runnable::run, 4);
+    RecordingSubscriber<SensorStatusChangedEvent> sensorSubscriber = new RecordingSubscriber<>();
+    RecordingSubscriber<AlarmStatusChangedEvent> alarmSubscriber = new RecordingSubscriber<>();
+    sensors.subscribeLatest(sensorSubscriber);
+    alarms.latest().subscribe(alarmSubscriber);
+
+    eventBus.publish(new SensorStatusChangedEvent(door, false, true));
+    eventBus.publish(new SensorStatusChangedEvent(window, false, true));
+    eventBus.publish(new SensorStatusChangedEvent(door, true, false));
+    for (int i = 0; i < 10; i++) {
+      eventBus.publish(new AlarmStatusChangedEvent(i % 2 == 0 ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM));
+    }
+    sensorSubscriber.subscription.request(Long.MAX_VALUE);
+    alarmSubscriber.subscription.request(Long.MAX_VALUE);
+
+    assertEquals(2, sensorSubscriber.received.size());
+    assertSame(window, sensorSubscriber.received.get(0).getSensor());
+    assertSame(door, sensorSubscriber.received.get(1).getSensor());
+    assertFalse(sensorSubscriber.received.get(1).isActive());
+    assertEquals(List.of(AlarmStatus.NO_ALARM), statuses(alarmSubscriber.received));
+    assertNull(alarmSubscriber.error);
+  }
+
+  @Test
+  public void subscriber_onExecutor_receivesEventsInOrderOffThePublishingThread() throws InterruptedException {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      EventPublisher<AlarmStatusChangedEvent> publisher =
+          new EventPublisher<>(eventBus, AlarmStatusChangedEvent.class, executor, 256);
+      CountDownLatch done = new CountDownLatch(100);
+      List<Thread> threads = new ArrayList<>();
+      RecordingSubscriber<AlarmStatusChangedEvent> subscriber = new RecordingSubscriber<>() {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+          super.onSubscribe(subscription);
+          subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(AlarmStatusChangedEvent item) {
+          super.onNext(item);
+          threads.add(Thread.currentThread());
+          done.countDown();
+        }
+      };
+      publisher.subscribe(subscriber);
+
+      for (int i = 0; i < 100; i++) {
+        eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.values()[i % 3]));
+      }
+
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      for (int i = 0; i < 100; i++) {
+        assertEquals(AlarmStatus.values()[i % 3], subscriber.received.get(i).getStatus());
+      }
+      assertFalse(threads.contains(Thread.currentThread()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void cancel_removesTheBusSubscription() {
+    RecordingSubscriber<AlarmStatusChangedEvent> subscriber = new RecordingSubscriber<>();
+    alarms.subscribe(subscriber);
+    assertTrue(eventBus.hasSubscribers(AlarmStatusChangedEvent.class));
+
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(1);
+    eventBus.publish(new AlarmStatusChangedEvent(AlarmStatus.ALARM));
+
+    assertFalse(eventBus.hasSubscribers(AlarmStatusChangedEvent.class));
+    assertTrue(subscriber.received.isEmpty());
+  }
+
+  private static List<AlarmStatus> statuses(List<AlarmStatusChangedEvent> events) {
+    List<AlarmStatus> statuses = new ArrayList<>();
+    for (AlarmStatusChangedEvent event : events) {
+      statuses.add(event.getStatus());
+    }
+    return statuses;
+  }
+
+  private static class RecordingSubscriber<E> implements Flow.Subscriber<E> {
+    final List<E> received = new ArrayList<>();
+    Flow.Subscription subscription;
+    Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(E item) {
+      received.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+    }
+  }
+}
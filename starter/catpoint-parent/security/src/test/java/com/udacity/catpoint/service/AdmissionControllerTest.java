@@ -0,0 +1,137 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.event.ArmingStatusChangedEvent;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControllerTest {
+  private final CountDownLatch imageStarted = new CountDownLatch(1);
+  private final CountDownLatch releaseImage = new CountDownLatch(1);
+  private final SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> {
+    imageStarted.countDown();
+    try {
+      releaseImage.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  });
+  private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+  private final Sensor door = new Sensor("Door", SensorType.DOOR);
+  private final Sensor motion = new Sensor("Hall", SensorType.MOTION);
+  private AdmissionController controller;
+
+  @AfterEach
+  public void tearDown() throws InterruptedException {
+    releaseImage.countDown();
+    controller.close();
+    assertTrue(controller.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void waitingCalls_runInPriorityOrder() throws InterruptedException {
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(4);
+    securityService.getEventBus().subscribe(SensorStatusChangedEvent.class, e -> {
+      order.add(e.getSensor().getName());
+      done.countDown();
+    });
+    securityService.getEventBus().subscribe(ArmingStatusChangedEvent.class, e -> {
+      order.add(e.getStatus().name());
+      done.countDown();
+    });
+    controller = AdmissionController.builder(securityService).build();
+    controller.start("admission");
+    blockWorker();
+
+    assertTrue(controller.submitSensorActivation(motion, true));
+    assertTrue(controller.submitSensorActivation(motion, false));
+    assertTrue(controller.submitSensorActivation(door, true));
+    assertTrue(controller.submitArmingStatus(ArmingStatus.ARMED_AWAY));
+    releaseImage.countDown();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("ARMED_AWAY", "Door", "Hall", "Hall"), order);
+    //the last call is counted after its subscribers have run
+    controller.close();
+    assertTrue(controller.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(1, controller.getProcessed(AdmissionController.Lane.IMAGE));
+    assertEquals(2, controller.getProcessed(AdmissionController.Lane.MOTION));
+  }
+
+  @Test
+  public void backlog_shedsLowPriorityCallsFirst() throws InterruptedException {
+    controller = AdmissionController.builder(securityService)
+        .shedAt(AdmissionController.Lane.MOTION, 8)
+        .shedAt(AdmissionController.Lane.IMAGE, 2)
+        .build();
+    controller.start("admission");
+    blockWorker();
+
+    for (int i = 0; i < 10; i++) {
+      controller.submitSensorActivation(motion, i % 2 == 0);
+    }
+    assertFalse(controller.submitImage("garage", image));
+    assertTrue(controller.submitSensorActivation(door, true));
+    assertTrue(controller.submitArmingStatus(ArmingStatus.ARMED_HOME));
+
+    assertEquals(8, controller.getQueued(AdmissionController.Lane.MOTION));
+    assertEquals(2, controller.getDropped(AdmissionController.Lane.MOTION));
+    assertEquals(1, controller.getDropped(AdmissionController.Lane.IMAGE));
+    assertEquals(0, controller.getDropped(AdmissionController.Lane.DOOR_WINDOW));
+    assertEquals(0, controller.getDropped(AdmissionController.Lane.ARMING));
+  }
+
+  @Test
+  public void fullImageLane_dropsOldestFrame() throws InterruptedException {
+    controller = AdmissionController.builder(securityService)
+        .capacity(AdmissionController.Lane.IMAGE, 2)
+        .build();
+    controller.start("admission");
+    blockWorker();
+
+    assertTrue(controller.submitImage("front", image));
+    assertTrue(controller.submitImage("front", image));
+    assertTrue(controller.submitImage("front", image));
+
+    assertEquals(2, controller.getQueued(AdmissionController.Lane.IMAGE));
+    assertEquals(1, controller.getDropped(AdmissionController.Lane.IMAGE));
+  }
+
+  @Test
+  public void close_dropsWaitingCallsAndRefusesNewOnes() throws InterruptedException {
+    controller = AdmissionController.builder(securityService).build();
+    controller.start("admission");
+    blockWorker();
+    controller.submitSensorActivation(door, true);
+
+    controller.close();
+
+    assertFalse(controller.submitArmingStatus(ArmingStatus.ARMED_AWAY));
+    assertEquals(1, controller.getDropped(AdmissionController.Lane.DOOR_WINDOW));
+    assertEquals(1, controller.getDropped(AdmissionController.Lane.ARMING));
+    assertEquals(0, controller.getQueued(AdmissionController.Lane.DOOR_WINDOW));
+  }
+
+  /**
+   * Keeps the worker busy with an image until the test releases it, so further calls have to wait.
+   */
+  private void blockWorker() throws InterruptedException {
+    assertTrue(controller.submitImage("front", image));
+    assertTrue(imageStarted.await(5, TimeUnit.SECONDS));
+  }
+}
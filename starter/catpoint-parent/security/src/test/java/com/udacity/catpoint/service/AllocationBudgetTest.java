@@ -0,0 +1,116 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.application.StatusListener;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.ConcurrentSecurityRepository;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Allocation budgets for the operations every sensor event and camera frame goes through. A change
+ * that makes one of them allocate more fails the build; raise a budget only for garbage that buys
+ * something, and say what in the commit. The only garbage allowed on a sensor change is the new
+ * sensor snapshot with its activation bits, at most 48 bytes with or without compressed pointers.
+ * Budgets assume Flight Recorder is not running, since recorded events are allocated.
+ */
+public class AllocationBudgetTest {
+  private final InMemorySecurityRepository repository = new InMemorySecurityRepository();
+  private boolean catDetected;
+  private final SecurityService securityService = new SecurityService(repository, (image, threshold) -> catDetected);
+  private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+  private final Sensor door = new Sensor("Door", SensorType.DOOR);
+
+  @BeforeEach
+  public void init() {
+    for (int i = 0; i < 20; i++) {
+      securityService.addSensor(new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]));
+    }
+    securityService.addSensor(door);
+    securityService.addStatusListener(new StatusListener() {
+      @Override
+      public void notify(AlarmStatus status) {
+      }
+
+      @Override
+      public void catDetected(boolean catDetected) {
+      }
+
+      @Override
+      public void sensorStatusChanged() {
+      }
+    });
+  }
+
+  private static void assertWithinBudget(double budget, Runnable operation) {
+    double bytes = AllocationMeter.bytesPerOperation(operation);
+    assertTrue(bytes <= budget, "Allocated " + bytes + " bytes per operation, budget is " + budget);
+  }
+
+  @Test
+  public void sensorToggle_whileDisarmed() {
+    assertWithinBudget(48, () -> securityService.changeSensorActivationStatus(door, !door.getActive()));
+  }
+
+  @Test
+  public void sensorToggle_whileArmed() {
+    securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    assertWithinBudget(48, () -> securityService.changeSensorActivationStatus(door, !door.getActive()));
+    assertNotEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+  }
+
+  @Test
+  public void imageWithoutCat() {
+    assertWithinBudget(0, () -> securityService.processImage(image));
+  }
+
+  @Test
+  public void imageWithCat_whileArmedHome() {
+    securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    catDetected = true;
+    assertWithinBudget(0, () -> securityService.processImage(image));
+  }
+
+  @Test
+  public void arming_withNoActiveSensors() {
+    //the batch written to the repository and its sensor list
+    assertWithinBudget(96, () -> securityService.setArmingStatus(
+        securityService.getArmingStatus() == ArmingStatus.ARMED_HOME ? ArmingStatus.ARMED_AWAY : ArmingStatus.ARMED_HOME));
+  }
+
+  @Test
+  public void repositoryUpdate() {
+    assertWithinBudget(48, () -> repository.updateSensor(door));
+  }
+
+  @Test
+  public void concurrentRepositoryUpdate() {
+    try (ConcurrentSecurityRepository concurrentRepository = ConcurrentSecurityRepository.builder()
+        .persister((sensors, alarmStatus, armingStatus) -> { })
+        .writeDelay(Duration.ofHours(1))
+        .build()) {
+      concurrentRepository.addSensor(door);
+      assertWithinBudget(0, () -> {
+        concurrentRepository.updateSensor(door);
+        concurrentRepository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+      });
+    }
+  }
+
+  @Test
+  public void repositoryReads() {
+    assertWithinBudget(0, () -> {
+      repository.getSensorSnapshot();
+      repository.getAlarmStatus();
+      repository.getArmingStatus();
+    });
+  }
+}
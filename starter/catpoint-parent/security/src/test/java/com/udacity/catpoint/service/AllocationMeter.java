@@ -0,0 +1,49 @@
+package com.udacity.catpoint.service;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the heap allocated by an operation on the calling thread, using the JVM's per-thread
+ * allocated-bytes counter. The operation is run until the JIT has compiled it, then measured over
+ * several rounds; the lowest average is reported, since a round can only be inflated by noise such as
+ * a late compilation, never deflated.
+ */
+final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int WARMUP = 50_000;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 10_000;
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * @return Average bytes allocated by one run of the operation
+     */
+    static double bytesPerOperation(Runnable operation) {
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM cannot measure allocations per thread");
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long overhead = measure(() -> { }, 1);
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            best = Math.min(best, (double) Math.max(0, measure(operation, ITERATIONS) - overhead) / ITERATIONS);
+        }
+        return best;
+    }
+
+    private static long measure(Runnable operation, int iterations) {
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+}
@@ -1,18 +1,22 @@
 package com.udacity.catpoint.service;
 
-import com.udacity.catpoint.application.DisplayPanel;
-import com.udacity.catpoint.application.ImagePanel;
 import com.udacity.catpoint.application.StatusListener;
 import com.udacity.catpoint.data.*;
-import com.udacity.image.service.FakeImageService;
+import com.udacity.catpoint.event.AlarmStatusChangedEvent;
+import com.udacity.catpoint.event.ArmingStatusChangedEvent;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
+import com.udacity.image.service.ImageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.platform.commons.util.ReflectionUtils;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,26 +24,57 @@ import static org.mockito.Mockito.*;
 
 
 public class SecurityServiceTest {
-  private FakeImageService imageService;
+  private ImageService imageService;
   private SecurityRepository securityRepository;
-  private final StatusListener displayPanel = Mockito.mock(DisplayPanel.class);
-  private final StatusListener imagePanel = Mockito.mock(ImagePanel.class);
+  private final StatusListener displayPanel = Mockito.mock(StatusListener.class);
+  private final StatusListener imagePanel = Mockito.mock(StatusListener.class);
   private SecurityService securityService;
 
   @BeforeEach
   public void setUp() {
-    this.imageService = mock(FakeImageService.class);
+    this.imageService = mock(ImageService.class);
     this.securityRepository = mock(SecurityRepository.class);
     this.securityService = new SecurityService(this.securityRepository, this.imageService);
     this.securityService.addStatusListener(displayPanel);
   }
 
+  @Test
+  public void setArmingStatus() {
+    var status = ArmingStatus.DISARMED;
+    securityService.setArmingStatus(status);
+    verify(securityRepository, times(1)).setArmingStatus(status);
+  }
+
   @ParameterizedTest
-  @ValueSource(strings = {"DISARMED","ARMED_HOME","ARMED_AWAY"})
-  public void setArmingStatus(String rawStatus) {
+  @ValueSource(strings = {"ARMED_HOME","ARMED_AWAY"})
+  public void setArmedStatus_shouldApplySingleBatch(String rawStatus) {
     var status = ArmingStatus.valueOf(rawStatus);
     securityService.setArmingStatus(status);
-    verify(securityRepository, times(1)).setArmingStatus(status);
+    verify(securityRepository, times(1)).applyBatch(argThat(batch -> batch.getArmingStatus() == status));
+    verify(securityRepository, never()).setArmingStatus(any());
+    verify(securityRepository, never()).updateSensor(any());
+  }
+
+  @Test
+  public void setArmedStatus_withActiveSensorsAndPendingAlarm_shouldResetSensorsInOneBatch() {
+    var activeSensor = new Sensor("dummy",SensorType.DOOR);
+    var otherActiveSensor = new Sensor("dummy2",SensorType.WINDOW);
+    var inactiveSensor = new Sensor("dummy3",SensorType.MOTION);
+    activeSensor.setActive(true);
+    otherActiveSensor.setActive(true);
+    when(securityRepository.getSensors()).thenReturn(Set.of(activeSensor, otherActiveSensor, inactiveSensor));
+    when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.PENDING_ALARM);
+
+    securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+    var batch = ArgumentCaptor.forClass(SecurityBatch.class);
+    verify(securityRepository, times(1)).applyBatch(batch.capture());
+    assertEquals(Set.of(activeSensor, otherActiveSensor), Set.copyOf(batch.getValue().getUpdatedSensors()));
+    assertEquals(AlarmStatus.NO_ALARM, batch.getValue().getAlarmStatus());
+    assertFalse(activeSensor.getActive());
+    assertFalse(otherActiveSensor.getActive());
+    verify(displayPanel, times(1)).sensorStatusChanged();
+    verify(displayPanel, times(1)).notify(AlarmStatus.NO_ALARM);
   }
 
   @Test
@@ -51,8 +86,9 @@ public class SecurityServiceTest {
     isCatOnCam.setAccessible(true);
     isCatOnCam.set(securityService,Boolean.TRUE);
     securityService.setArmingStatus(status);
-    verify(securityRepository, times(1)).setArmingStatus(status);
-    verify(securityRepository, times(1)).setAlarmStatus(alarmStatus);
+    verify(securityRepository, times(1)).applyBatch(argThat(batch ->
+        batch.getArmingStatus() == status && batch.getAlarmStatus() == alarmStatus));
+    verify(displayPanel, times(1)).notify(alarmStatus);
   }
 
   @Test
@@ -263,7 +299,7 @@ public class SecurityServiceTest {
   @Test
   public void imageContainsCat_armingStatusArmedHome_processImage() {
     var image = new BufferedImage(1, 2, 3);
-    when(imageService.imageContainsCat(any(image.getClass()),anyFloat())).thenReturn(true);
+    when(imageService.imageContainsCat(anyString(),any(image.getClass()),anyFloat())).thenReturn(true);
     when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
 
     securityService.processImage(image);
@@ -276,7 +312,7 @@ public class SecurityServiceTest {
   @Test
   public void imageDoesNotContainCat_armingStatusArmedHome_processImage() {
     var image = new BufferedImage(1, 2, 3);
-    when(imageService.imageContainsCat(any(image.getClass()),anyFloat())).thenReturn(false);
+    when(imageService.imageContainsCat(anyString(),any(image.getClass()),anyFloat())).thenReturn(false);
     when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
 
     securityService.processImage(image);
@@ -289,7 +325,7 @@ public class SecurityServiceTest {
   @Test
   public void imageContainsCat_armingStatusNotArmedHome_processImage() {
     var image = new BufferedImage(1, 2, 3);
-    when(imageService.imageContainsCat(any(image.getClass()),anyFloat())).thenReturn(true);
+    when(imageService.imageContainsCat(anyString(),any(image.getClass()),anyFloat())).thenReturn(true);
     when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
 
     securityService.processImage(image);
@@ -304,7 +340,7 @@ public class SecurityServiceTest {
     var image = new BufferedImage(1, 2, 3);
     var mockSensor = Mockito.mock(Sensor.class);
     when(mockSensor.getActive()).thenReturn(true);
-    when(imageService.imageContainsCat(any(image.getClass()),anyFloat())).thenReturn(false);
+    when(imageService.imageContainsCat(anyString(),any(image.getClass()),anyFloat())).thenReturn(false);
     when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
     when(securityRepository.getSensors()).thenReturn(Set.of(mockSensor));
 
@@ -354,4 +390,76 @@ public class SecurityServiceTest {
     when(securityRepository.getArmingStatus()).thenReturn(status);
     assertEquals(securityService.getArmingStatus(), status);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void changeSensorActivationStatus_shouldPublishSensorEventWithPreviousAndNewState() {
+    var sensor = new Sensor("dummy",SensorType.DOOR);
+    List<SensorStatusChangedEvent> events = new ArrayList<>();
+    securityService.getEventBus().subscribe(SensorStatusChangedEvent.class, sensor.getSensorId(), events::add);
+    when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+
+    securityService.changeSensorActivationStatus(sensor, true);
+
+    assertEquals(1, events.size());
+    assertSame(sensor, events.get(0).getSensor());
+    assertFalse(events.get(0).wasActive());
+    assertTrue(events.get(0).isActive());
+  }
+
+  @Test
+  public void changeSensorActivationStatus_failingSubscriber_stillRaisesPendingAlarm() {
+    var sensor = new Sensor("dummy",SensorType.DOOR);
+    securityService.getEventBus().subscribe(SensorStatusChangedEvent.class, e -> {
+      throw new IllegalStateException("broken subscriber");
+    });
+    when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+    when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+
+    securityService.changeSensorActivationStatus(sensor, true);
+
+    verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.PENDING_ALARM);
+    assertEquals(1, securityService.getEventBus().getFailedDeliveryCount());
+  }
+
+  @Test
+  public void setAlarmStatus_shouldPublishAlarmEvent() {
+    List<AlarmStatus> statuses = new ArrayList<>();
+    securityService.getEventBus().subscribe(AlarmStatusChangedEvent.class, e -> statuses.add(e.getStatus()));
+
+    securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+    assertEquals(List.of(AlarmStatus.PENDING_ALARM), statuses);
+  }
+
+  @Test
+  public void setArmingStatus_shouldPublishArmingEvent() {
+    List<ArmingStatus> statuses = new ArrayList<>();
+    securityService.getEventBus().subscribe(ArmingStatusChangedEvent.class, e -> statuses.add(e.getStatus()));
+
+    securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    securityService.setArmingStatus(ArmingStatus.DISARMED);
+
+    assertEquals(List.of(ArmingStatus.ARMED_AWAY, ArmingStatus.DISARMED), statuses);
+  }
+
+  @Test
+  public void processImage_shouldUseConfiguredConfidenceThreshold() {
+    var image = new BufferedImage(1, 2, 3);
+    securityService.setConfidenceThreshold(80.0f);
+    securityService.processImage(image);
+    verify(imageService,times(1)).imageContainsCat(SecurityService.DEFAULT_CAMERA, image, 80.0f);
+  }
+
+  @Test
+  public void processImage_fromCamera_shouldPassCameraIdToImageService() {
+    var image = new BufferedImage(1, 2, 3);
+    securityService.processImage("garage", image);
+    verify(imageService,times(1)).imageContainsCat("garage", image, SecurityService.DEFAULT_CONFIDENCE_THRESHOLD);
+  }
+
+  @Test
+  public void setConfidenceThreshold_outOfRange_shouldThrow() {
+    assertThrows(IllegalArgumentException.class, () -> securityService.setConfidenceThreshold(101.0f));
+    assertEquals(SecurityService.DEFAULT_CONFIDENCE_THRESHOLD, securityService.getConfidenceThreshold());
+  }
+}
@@ -0,0 +1,117 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.event.SensorSupervisionEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorHeartbeatSupervisorTest {
+  private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+  private final SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+  private final List<SensorSupervisionEvent> events = new ArrayList<>();
+  private final Sensor door = new Sensor("Door", SensorType.DOOR);
+  private final Sensor window = new Sensor("Window", SensorType.WINDOW);
+  private SensorHeartbeatSupervisor supervisor;
+
+  @BeforeEach
+  public void setUp() {
+    securityService.getEventBus().subscribe(SensorSupervisionEvent.class, events::add);
+    supervisor = SensorHeartbeatSupervisor.builder(securityService)
+        .nanoClock(clock::get)
+        .interval(Duration.ofSeconds(30))
+        .grace(Duration.ofSeconds(5))
+        .tick(Duration.ofSeconds(1))
+        .wheelSize(16)
+        .build();
+    supervisor.register(door);
+    supervisor.register(window);
+  }
+
+  @Test
+  public void silentSensor_becomesOverdue_reportingSensorDoesNot() {
+    for (int second = 1; second <= 40; second++) {
+      advanceSeconds(1);
+      if (second % 10 == 0) {
+        supervisor.heartbeat(door.getSensorId());
+      }
+      supervisor.advance();
+    }
+
+    assertEquals(1, events.size());
+    assertSame(window, events.get(0).getSensor());
+    assertTrue(events.get(0).isOverdue());
+    assertTrue(events.get(0).getSilentMillis() >= 35_000);
+    assertTrue(supervisor.isOverdue(window.getSensorId()));
+    assertFalse(supervisor.isOverdue(door.getSensorId()));
+    assertEquals(1, supervisor.getOverdueCount());
+  }
+
+  @Test
+  public void heartbeatAfterOverdue_reportsRecovery() {
+    advanceSeconds(36);
+    assertEquals(2, supervisor.advance());
+
+    advanceSeconds(4);
+    supervisor.heartbeat(door.getSensorId());
+
+    assertEquals(3, events.size());
+    assertSame(door, events.get(2).getSensor());
+    assertFalse(events.get(2).isOverdue());
+    assertEquals(40_000, events.get(2).getSilentMillis());
+    assertEquals(1, supervisor.getOverdueCount());
+
+    advanceSeconds(36);
+    assertEquals(1, supervisor.advance());
+  }
+
+  @Test
+  public void unregisteredSensor_isNoLongerSupervised() {
+    supervisor.unregister(window);
+    advanceSeconds(36);
+    supervisor.advance();
+
+    assertEquals(1, events.size());
+    assertSame(door, events.get(0).getSensor());
+    assertFalse(supervisor.heartbeat(window.getSensorId()));
+    assertEquals(1, supervisor.getSupervisedCount());
+  }
+
+  @Test
+  public void timingWheel_expiresTimeoutsAfterSeveralRevolutions() {
+    HashedTimingWheel<HashedTimingWheel.Timeout> wheel = new HashedTimingWheel<>(0, 10, 4);
+    HashedTimingWheel.Timeout soon = new HashedTimingWheel.Timeout();
+    HashedTimingWheel.Timeout late = new HashedTimingWheel.Timeout();
+    List<HashedTimingWheel.Timeout> expired = new ArrayList<>();
+    wheel.schedule(soon, 25);
+    wheel.schedule(late, 125);
+
+    wheel.advance(29, expired::add);
+    assertTrue(expired.isEmpty());
+    wheel.advance(30, expired::add);
+    assertEquals(List.of(soon), expired);
+    wheel.advance(125, expired::add);
+    assertEquals(List.of(soon), expired);
+    wheel.advance(130, expired::add);
+    assertEquals(List.of(soon, late), expired);
+    assertEquals(0, wheel.size());
+
+    wheel.schedule(soon, 200);
+    wheel.schedule(soon, 300);
+    assertTrue(wheel.cancel(soon));
+    assertFalse(wheel.cancel(soon));
+  }
+
+  private void advanceSeconds(long seconds) {
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+}
@@ -0,0 +1,117 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequencedSensorIngestorTest {
+  private final SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+  private final SequencedSensorIngestor ingestor = new SequencedSensorIngestor(securityService);
+  private final Sensor door = new Sensor("Door", SensorType.DOOR);
+  private final Sensor window = new Sensor("Window", SensorType.WINDOW);
+
+  @Test
+  public void retriedActivation_doesNotEscalatePendingAlarm() {
+    securityService.addSensor(door);
+    securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+    assertTrue(ingestor.changeSensorActivationStatus(door, 7, true));
+    assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+    assertFalse(ingestor.changeSensorActivationStatus(door, 7, true));
+    assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+    assertTrue(ingestor.changeSensorActivationStatus(door, 8, true));
+    assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    assertEquals(2, ingestor.getApplied());
+    assertEquals(1, ingestor.getDuplicates());
+  }
+
+  @Test
+  public void lateEvents_areDroppedAndCountedOnce() {
+    securityService.addSensor(door);
+    assertTrue(ingestor.changeSensorActivationStatus(door, 1, true));
+    assertTrue(ingestor.changeSensorActivationStatus(door, 5, false));
+
+    //3 was skipped and arrives late, then is retried
+    assertFalse(ingestor.changeSensorActivationStatus(door, 3, true));
+    assertFalse(ingestor.changeSensorActivationStatus(door, 3, true));
+    assertFalse(ingestor.changeSensorActivationStatus(door, 1, true));
+    assertFalse(door.getActive());
+
+    assertEquals(1, ingestor.getOutOfOrder());
+    assertEquals(2, ingestor.getDuplicates());
+  }
+
+  @Test
+  public void sequences_areTrackedPerSensor() {
+    securityService.addSensor(door);
+    securityService.addSensor(window);
+    assertTrue(ingestor.changeSensorActivationStatus(door, 100, true));
+    assertTrue(ingestor.changeSensorActivationStatus(window, 1, true));
+    assertTrue(ingestor.changeSensorActivationStatus(window, 2, false));
+    assertFalse(ingestor.changeSensorActivationStatus(door, 99, false));
+
+    ingestor.forget(door);
+    assertTrue(ingestor.changeSensorActivationStatus(door, 0, false));
+  }
+
+  @Test
+  public void sequenceFarBehindTheWindow_isDroppedAsStale() {
+    securityService.addSensor(door);
+    assertTrue(ingestor.changeSensorActivationStatus(door, 1000, true));
+    //exactly one window ahead: 1000 is still remembered as the oldest sequence in the window
+    assertTrue(ingestor.changeSensorActivationStatus(door, 1000 + SequencedSensorIngestor.WINDOW, false));
+    assertFalse(ingestor.changeSensorActivationStatus(door, 1000, true));
+    assertEquals(1, ingestor.getDuplicates());
+
+    assertFalse(ingestor.changeSensorActivationStatus(door, 999, true));
+    assertFalse(ingestor.changeSensorActivationStatus(door, 1, true));
+    assertEquals(2, ingestor.getStale());
+    assertFalse(door.getActive());
+  }
+
+  @Test
+  public void activationThatFailedToApply_isAppliedWhenRetried() {
+    InMemorySecurityRepository failingOnce = new InMemorySecurityRepository() {
+      private boolean failed;
+
+      @Override
+      public void updateSensor(Sensor sensor) {
+        if (!failed) {
+          failed = true;
+          throw new IllegalStateException("Unable to persist security state");
+        }
+        super.updateSensor(sensor);
+      }
+    };
+    SecurityService failingService = new SecurityService(failingOnce, (image, threshold) -> false);
+    SequencedSensorIngestor retrying = new SequencedSensorIngestor(failingService);
+    failingService.addSensor(door);
+    failingService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+    assertThrows(IllegalStateException.class, () -> retrying.changeSensorActivationStatus(door, 4, true));
+    assertTrue(retrying.changeSensorActivationStatus(door, 4, true));
+
+    assertEquals(AlarmStatus.PENDING_ALARM, failingService.getAlarmStatus());
+    assertEquals(1, retrying.getApplied());
+    assertEquals(0, retrying.getDuplicates());
+  }
+
+  @Test
+  public void restartedGateway_isAcceptedOnceForgotten() {
+    securityService.addSensor(door);
+    assertTrue(ingestor.changeSensorActivationStatus(door, 1000, true));
+
+    ingestor.forget(door);
+    assertTrue(ingestor.changeSensorActivationStatus(door, 1, false));
+    assertFalse(ingestor.changeSensorActivationStatus(door, 1, false));
+    assertTrue(ingestor.changeSensorActivationStatus(door, 2, true));
+    assertEquals(0, ingestor.getStale());
+    assertTrue(door.getActive());
+  }
+}
@@ -0,0 +1,193 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.SecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.image.service.StubImageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZonedSecurityServiceTest {
+  private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+  private SecurityRepository repository;
+  private StubImageService imageService;
+  private ZonedSecurityService zonedService;
+  private Sensor garageDoor;
+  private Sensor garageMotion;
+  private Sensor officeWindow;
+
+  @BeforeEach
+  public void setUp() {
+    repository = new InMemorySecurityRepository();
+    imageService = new StubImageService(false, 0, TimeUnit.MILLISECONDS);
+    zonedService = new ZonedSecurityService(repository, imageService);
+    garageDoor = new Sensor("Garage door", SensorType.DOOR, "Garage");
+    garageMotion = new Sensor("Garage motion", SensorType.MOTION, "Garage");
+    officeWindow = new Sensor("Office window", SensorType.WINDOW, "Office");
+    zonedService.addSensor(garageDoor);
+    zonedService.addSensor(garageMotion);
+    zonedService.addSensor(officeWindow);
+  }
+
+  @Test
+  public void sensorActivation_onlyAffectsItsOwnZone() {
+    zonedService.setArmingStatus("Garage", ArmingStatus.ARMED_AWAY);
+    zonedService.setArmingStatus("Office", ArmingStatus.ARMED_AWAY);
+
+    zonedService.changeSensorActivationStatus(garageDoor, true);
+
+    assertEquals(AlarmStatus.PENDING_ALARM, zonedService.getAlarmStatus("Garage"));
+    assertEquals(AlarmStatus.NO_ALARM, zonedService.getAlarmStatus("Office"));
+    assertEquals(AlarmStatus.PENDING_ALARM, zonedService.getAlarmStatus());
+    assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+  }
+
+  @Test
+  public void disarmedZone_ignoresActivations() {
+    zonedService.setArmingStatus("Garage", ArmingStatus.ARMED_HOME);
+
+    zonedService.changeSensorActivationStatus(officeWindow, true);
+
+    assertEquals(AlarmStatus.NO_ALARM, zonedService.getAlarmStatus("Office"));
+    assertEquals(1, zonedService.getActiveSensorCount("Office"));
+    assertEquals(ArmingStatus.ARMED_HOME, zonedService.getArmingStatus());
+    assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+  }
+
+  @Test
+  public void lastActiveSensorInZoneDeactivated_clearsPendingAlarm() {
+    zonedService.setArmingStatus("Garage", ArmingStatus.ARMED_AWAY);
+    zonedService.changeSensorActivationStatus(garageDoor, true);
+    zonedService.changeSensorActivationStatus(officeWindow, true);
+
+    zonedService.changeSensorActivationStatus(garageDoor, false);
+
+    assertEquals(AlarmStatus.NO_ALARM, zonedService.getAlarmStatus("Garage"));
+    assertEquals(0, zonedService.getActiveSensorCount("Garage"));
+    assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+  }
+
+  @Test
+  public void premiseRollUp_reportsMostSevereZone() {
+    zonedService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    zonedService.changeSensorActivationStatus(garageDoor, true);
+    zonedService.changeSensorActivationStatus(garageMotion, true);
+    zonedService.changeSensorActivationStatus(officeWindow, true);
+
+    assertEquals(AlarmStatus.ALARM, zonedService.getAlarmStatus());
+    assertEquals(1, zonedService.getZoneCount(AlarmStatus.ALARM));
+    assertEquals(1, zonedService.getZoneCount(AlarmStatus.PENDING_ALARM));
+
+    zonedService.setArmingStatus("Garage", ArmingStatus.DISARMED);
+
+    assertEquals(AlarmStatus.PENDING_ALARM, zonedService.getAlarmStatus());
+    assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+  }
+
+  @Test
+  public void armingZone_resetsOnlyItsActiveSensors() {
+    zonedService.changeSensorActivationStatus(garageDoor, true);
+    zonedService.changeSensorActivationStatus(officeWindow, true);
+
+    zonedService.setArmingStatus("Garage", ArmingStatus.ARMED_AWAY);
+
+    assertFalse(garageDoor.getActive());
+    assertTrue(officeWindow.getActive());
+    assertEquals(0, zonedService.getActiveSensorCount("Garage"));
+  }
+
+  @Test
+  public void catDetected_alarmsOnlyZonesArmedHome() {
+    zonedService.setArmingStatus("Garage", ArmingStatus.ARMED_HOME);
+    zonedService.setArmingStatus("Office", ArmingStatus.ARMED_AWAY);
+    imageService.setVerdict(true);
+
+    zonedService.processImage(image);
+
+    assertEquals(AlarmStatus.ALARM, zonedService.getAlarmStatus("Garage"));
+    assertEquals(AlarmStatus.NO_ALARM, zonedService.getAlarmStatus("Office"));
+  }
+
+  @Test
+  public void processImage_usesConfiguredConfidenceThreshold() {
+    List<Float> thresholds = new ArrayList<>();
+    ZonedSecurityService service = new ZonedSecurityService(repository, (img, threshold) -> thresholds.add(threshold));
+
+    service.processImage(image);
+    service.setConfidenceThreshold(80.0f);
+    service.processImage(image);
+
+    assertEquals(List.of(SecurityService.DEFAULT_CONFIDENCE_THRESHOLD, 80.0f), thresholds);
+    assertThrows(IllegalArgumentException.class, () -> service.setConfidenceThreshold(101.0f));
+  }
+
+  @Test
+  public void existingSensors_areGroupedIntoZonesOnStartup() {
+    garageDoor.setActive(true);
+    ZonedSecurityService reloaded = new ZonedSecurityService(repository, imageService);
+
+    assertEquals(List.of("Garage", "Office"), new ArrayList<>(reloaded.getZones()));
+    assertEquals(1, reloaded.getActiveSensorCount("Garage"));
+  }
+
+  @Test
+  public void unknownZone_throwsIllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> zonedService.setArmingStatus("Attic", ArmingStatus.ARMED_HOME));
+  }
+
+  @Test
+  public void zonesUpdatedConcurrently_keepConsistentCounts() throws Exception {
+    int zoneCount = 8;
+    List<List<Sensor>> sensorsByZone = new ArrayList<>();
+    for (int z = 0; z < zoneCount; z++) {
+      List<Sensor> sensors = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        Sensor sensor = new Sensor("sensor-" + z + "-" + i, SensorType.MOTION, "zone-" + z);
+        zonedService.addSensor(sensor);
+        sensors.add(sensor);
+      }
+      sensorsByZone.add(sensors);
+      zonedService.setArmingStatus("zone-" + z, ArmingStatus.ARMED_AWAY);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (List<Sensor> sensors : sensorsByZone) {
+        futures.add(executor.submit(() -> {
+          for (int round = 0; round < 20; round++) {
+            for (Sensor sensor : sensors) {
+              zonedService.changeSensorActivationStatus(sensor, round % 2 == 0);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    for (int z = 0; z < zoneCount; z++) {
+      assertEquals(0, zonedService.getActiveSensorCount("zone-" + z));
+      assertEquals(AlarmStatus.ALARM, zonedService.getAlarmStatus("zone-" + z));
+    }
+    assertEquals(zoneCount, zonedService.getZoneCount(AlarmStatus.ALARM));
+    assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+  }
+}
@@ -0,0 +1,135 @@
+package com.udacity.catpoint.telemetry;
+
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.event.EventBus;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActivationHistoryStoreTest {
+  private static final long START = 1_600_000_000_000L;
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+  private final UUID door = UUID.randomUUID();
+  private final UUID window = UUID.randomUUID();
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void scan_returnsBufferedAndWrittenEventsInRange() throws IOException {
+    try (ActivationHistoryStore store = new ActivationHistoryStore(directory)) {
+      int events = ActivationHistoryStore.BLOCK_EVENTS + 100;
+      for (int i = 0; i < events; i++) {
+        store.append(START + i * 1000L, i % 2 == 0 ? door : window, i % 4 < 2);
+      }
+
+      List<Long> timestamps = new ArrayList<>();
+      store.scan(START + 10_000, START + 20_000, (timestamp, sensorId, active) -> timestamps.add(timestamp));
+      assertEquals(10, timestamps.size());
+      assertEquals(START + 10_000, (long) timestamps.get(0));
+
+      List<Long> doorTail = new ArrayList<>();
+      store.scan(door, START + (events - 10) * 1000L, Long.MAX_VALUE, (timestamp, sensorId, active) -> {
+        assertEquals(door, sensorId);
+        doorTail.add(timestamp);
+      });
+      assertEquals(5, doorTail.size());
+      assertEquals(events, store.size());
+    }
+  }
+
+  @Test
+  public void reopen_restoresFlushedEventsAndSensorIds() throws IOException {
+    try (ActivationHistoryStore store = new ActivationHistoryStore(directory)) {
+      store.append(START, door, true);
+      store.append(START + 1000, window, true);
+      store.append(START + 2000, door, false);
+    }
+    try (ActivationHistoryStore store = new ActivationHistoryStore(directory)) {
+      assertEquals(3, store.size());
+      List<Boolean> states = new ArrayList<>();
+      store.scan(door, START, START + HOUR, (timestamp, sensorId, active) -> states.add(active));
+      assertEquals(List.of(true, false), states);
+
+      store.append(START + 3000, window, false);
+      assertEquals(4, store.size());
+    }
+  }
+
+  @Test
+  public void segments_rollOverWhenFull() throws IOException {
+    int segmentBytes = 128 * 1024;
+    int events = ActivationHistoryStore.BLOCK_EVENTS * 40;
+    try (ActivationHistoryStore store = new ActivationHistoryStore(directory, segmentBytes)) {
+      for (int i = 0; i < events; i++) {
+        store.append(START + i * 10L, i % 3 == 0 ? door : window, i % 2 == 0);
+      }
+    }
+    assertTrue(directory.resolve("segment-000001.seg").toFile().exists());
+    try (ActivationHistoryStore store = new ActivationHistoryStore(directory, segmentBytes)) {
+      assertEquals(events, store.size());
+      long[] count = new long[1];
+      store.scan(START, Long.MAX_VALUE, (timestamp, sensorId, active) -> count[0]++);
+      assertEquals(events, count[0]);
+    }
+  }
+
+  @Test
+  public void activationsPerHour_countsOnlyActivations() throws IOException {
+    try (ActivationHistoryStore store = new ActivationHistoryStore(directory)) {
+      store.append(START + 10, door, true);
+      store.append(START + 20, door, false);
+      store.append(START + 30, door, true);
+      store.append(START + HOUR + 5, door, true);
+      store.append(START + 2 * HOUR + 5, window, true);
+
+      assertArrayEquals(new long[]{2, 1, 0}, store.activationsPerHour(door, START, START + 3 * HOUR));
+
+      Map<UUID, long[]> perSensor = store.activationsPerSensorPerHour(START, START + 3 * HOUR);
+      assertArrayEquals(new long[]{2, 1, 0}, perSensor.get(door));
+      assertArrayEquals(new long[]{0, 0, 1}, perSensor.get(window));
+    }
+  }
+
+  @Test
+  public void dutyCycle_usesStateFromBeforeTheRange() throws IOException {
+    try (ActivationHistoryStore store = new ActivationHistoryStore(directory)) {
+      store.append(START - HOUR, door, true);
+      store.append(START + HOUR / 4, door, false);
+      store.append(START + HOUR / 2, door, true);
+      store.flush();
+
+      assertEquals(0.75, store.dutyCycle(door, START, START + HOUR), 1e-9);
+      assertEquals(0, store.dutyCycle(window, START, START + HOUR));
+    }
+  }
+
+  @Test
+  public void recordFrom_dropsEventsItCannotWrite() throws IOException {
+    EventBus bus = new EventBus();
+    ActivationHistoryStore store = new ActivationHistoryStore(directory);
+    store.recordFrom(bus);
+    Sensor known = new Sensor("Door", SensorType.DOOR);
+    bus.publish(new SensorStatusChangedEvent(known, false, true));
+    store.close();
+
+    //a new sensor needs a dictionary entry, which fails on the closed store
+    Sensor added = new Sensor("Window", SensorType.WINDOW);
+    bus.publish(new SensorStatusChangedEvent(added, false, true));
+    bus.publish(new SensorStatusChangedEvent(added, true, false));
+
+    assertEquals(2, store.getDroppedEventCount());
+  }
+}
@@ -0,0 +1,167 @@
+package com.udacity.catpoint.telemetry;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.event.SensorStatusChangedEvent;
+import com.udacity.catpoint.service.SecurityService;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FleetAggregatesTest {
+  private final AtomicLong clock = new AtomicLong(1_600_000_000_000L);
+  private final FleetAggregates aggregates = new FleetAggregates(clock::get);
+  private final AtomicBoolean cat = new AtomicBoolean();
+  private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+  private SecurityService newService() {
+    return new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> cat.get());
+  }
+
+  @Test
+  public void register_countsCurrentStateOfEachPremises() {
+    SecurityService first = newService();
+    Sensor door = new Sensor("door", SensorType.DOOR);
+    first.addSensor(door);
+    first.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    first.changeSensorActivationStatus(door, true);
+    SecurityService second = newService();
+    second.addSensor(new Sensor("window", SensorType.WINDOW));
+
+    aggregates.register(first);
+    aggregates.register(second);
+
+    assertEquals(2, aggregates.getPremisesCount());
+    assertEquals(1, aggregates.getPremisesIn(AlarmStatus.PENDING_ALARM));
+    assertEquals(1, aggregates.getPremisesIn(AlarmStatus.NO_ALARM));
+    assertEquals(1, aggregates.getActiveSensors(SensorType.DOOR));
+    assertEquals(0, aggregates.getActiveSensors(SensorType.WINDOW));
+  }
+
+  @Test
+  public void changes_updateAlarmAndSensorCounts() {
+    SecurityService service = newService();
+    Sensor door = new Sensor("door", SensorType.DOOR);
+    Sensor motion = new Sensor("motion", SensorType.MOTION);
+    service.addSensor(door);
+    service.addSensor(motion);
+    service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    aggregates.register(service);
+
+    service.changeSensorActivationStatus(door, true);
+    assertEquals(1, aggregates.getPremisesIn(AlarmStatus.PENDING_ALARM));
+    service.changeSensorActivationStatus(motion, true);
+    service.changeSensorActivationStatus(motion, true);
+    assertEquals(0, aggregates.getPremisesIn(AlarmStatus.PENDING_ALARM));
+    assertEquals(1, aggregates.getPremisesIn(AlarmStatus.ALARM));
+    assertEquals(1, aggregates.getActiveSensors(SensorType.DOOR));
+    assertEquals(1, aggregates.getActiveSensors(SensorType.MOTION));
+
+    //arming again resets every active sensor
+    service.setArmingStatus(ArmingStatus.ARMED_HOME);
+    assertEquals(0, aggregates.getActiveSensors(SensorType.DOOR));
+    assertEquals(0, aggregates.getActiveSensors(SensorType.MOTION));
+    service.setArmingStatus(ArmingStatus.DISARMED);
+    assertEquals(0, aggregates.getPremisesIn(AlarmStatus.ALARM));
+    assertEquals(1, aggregates.getPremisesIn(AlarmStatus.NO_ALARM));
+  }
+
+  @Test
+  public void catDetections_countNewSightingsWithinTheLastMinute() {
+    SecurityService first = newService();
+    SecurityService second = newService();
+    aggregates.register(first);
+    aggregates.register(second);
+
+    cat.set(true);
+    first.processImage(image);
+    first.processImage(image);
+    first.processImage("garage", image);
+    second.processImage(image);
+    assertEquals(3, aggregates.getCatDetectionsPerMinute());
+
+    clock.addAndGet(30_000);
+    cat.set(false);
+    first.processImage(image);
+    cat.set(true);
+    first.processImage(image);
+    assertEquals(4, aggregates.getCatDetectionsPerMinute());
+
+    clock.addAndGet(31_000);
+    assertEquals(1, aggregates.getCatDetectionsPerMinute());
+    clock.addAndGet(30_000);
+    assertEquals(0, aggregates.getCatDetectionsPerMinute());
+  }
+
+  @Test
+  public void close_removesThePremisesContribution() {
+    SecurityService service = newService();
+    Sensor door = new Sensor("door", SensorType.DOOR);
+    service.addSensor(door);
+    service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    FleetAggregates.Premises premises = aggregates.register(service);
+    service.changeSensorActivationStatus(door, true);
+
+    premises.close();
+    premises.close();
+    assertEquals(0, aggregates.getPremisesCount());
+    assertEquals(0, aggregates.getPremisesIn(AlarmStatus.PENDING_ALARM));
+    assertEquals(0, aggregates.getActiveSensors(SensorType.DOOR));
+
+    service.changeSensorActivationStatus(door, false);
+    assertEquals(0, aggregates.getActiveSensors(SensorType.DOOR));
+    assertFalse(service.getEventBus().hasSubscribers(SensorStatusChangedEvent.class));
+  }
+
+  @Test
+  public void removingActiveSensor_takesItOutOfTheTotals() {
+    SecurityService service = newService();
+    Sensor door = new Sensor("door", SensorType.DOOR);
+    service.addSensor(door);
+    service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    aggregates.register(service);
+    service.changeSensorActivationStatus(door, true);
+
+    service.removeSensor(door);
+    assertEquals(0, aggregates.getActiveSensors(SensorType.DOOR));
+    assertEquals(1, aggregates.getPremisesIn(AlarmStatus.PENDING_ALARM));
+  }
+
+  @Test
+  public void addingActiveSensor_addsItToTheTotals() {
+    SecurityService service = newService();
+    aggregates.register(service);
+    Sensor motion = new Sensor("motion", SensorType.MOTION);
+    motion.setActive(true);
+    Sensor window = new Sensor("window", SensorType.WINDOW);
+
+    service.addSensor(motion);
+    service.addSensor(window);
+    assertEquals(1, aggregates.getActiveSensors(SensorType.MOTION));
+    assertEquals(0, aggregates.getActiveSensors(SensorType.WINDOW));
+  }
+
+  @Test
+  public void resync_recountsSensorsRemovedFromTheRepositoryDirectly() {
+    InMemorySecurityRepository repository = new InMemorySecurityRepository();
+    SecurityService service = new SecurityService(repository, (image, threshold) -> false);
+    Sensor door = new Sensor("door", SensorType.DOOR);
+    service.addSensor(door);
+    service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    FleetAggregates.Premises premises = aggregates.register(service);
+    service.changeSensorActivationStatus(door, true);
+
+    repository.removeSensor(door);
+    assertEquals(1, aggregates.getActiveSensors(SensorType.DOOR));
+    premises.resync();
+    assertEquals(0, aggregates.getActiveSensors(SensorType.DOOR));
+    assertEquals(1, aggregates.getPremisesIn(AlarmStatus.PENDING_ALARM));
+  }
+}
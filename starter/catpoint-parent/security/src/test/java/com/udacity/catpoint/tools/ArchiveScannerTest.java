@@ -0,0 +1,113 @@
+package com.udacity.catpoint.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveScannerTest {
+  @TempDir
+  Path directory;
+
+  //a frame is a cat if its first pixel is white
+  private final ArchiveScanner scanner = new ArchiveScanner(
+      (image, threshold) -> (image.getRGB(0, 0) & 0xFFFFFF) == 0xFFFFFF, 3, 50f, "*.{png,jpg,jpeg}");
+
+  @Test
+  public void scan_ofNestedArchive_reportsEveryFrame() throws Exception {
+    Path archive = createArchive();
+    Path reportFile = directory.resolve("report.csv");
+
+    ArchiveScanner.Summary summary;
+    try (ScanReport report = ScanReport.open(reportFile)) {
+      summary = scanner.scan(archive, report);
+    }
+
+    assertEquals(13, summary.getFiles());
+    assertEquals(4, summary.getCats());
+    assertEquals(1, summary.getFailures());
+
+    List<String> lines = Files.readAllLines(reportFile);
+    assertEquals("file,bytes,width,height,cat,decode_us,classify_us,error", lines.get(0));
+    Map<String, String[]> rows = new TreeMap<>();
+    for (String line : lines.subList(1, lines.size())) {
+      String[] columns = line.split(",", -1);
+      rows.put(columns[0], columns);
+    }
+    assertEquals(13, rows.size());
+
+    String[] cat = rows.get(Path.of("day-1", "cam-0", "frame-0.png").toString());
+    assertEquals("16", cat[2]);
+    assertEquals("12", cat[3]);
+    assertEquals("true", cat[4]);
+    assertEquals("", cat[7]);
+    assertEquals("false", rows.get(Path.of("day-1", "cam-0", "frame-1.png").toString())[4]);
+
+    String[] broken = rows.get(Path.of("day-2", "broken.png").toString());
+    assertEquals("0", broken[2]);
+    assertFalse(broken[7].isEmpty());
+    assertFalse(rows.containsKey("notes.txt"));
+  }
+
+  @Test
+  public void scan_withBinaryReport_writesOneRecordPerFrame() throws Exception {
+    Path archive = createArchive();
+    Path reportFile = directory.resolve("report.bin");
+
+    try (ScanReport report = ScanReport.open(reportFile)) {
+      scanner.scan(archive, report);
+    }
+
+    int records = 0;
+    int errors = 0;
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(reportFile))) {
+      assertEquals(ScanReport.BINARY_MAGIC, in.readInt());
+      while (in.available() > 0) {
+        in.readUTF();
+        in.readLong();
+        in.readInt();
+        in.readInt();
+        int flags = in.readByte();
+        if ((flags & 2) != 0) {
+          in.readUTF();
+          errors++;
+        }
+        in.readInt();
+        in.readInt();
+        records++;
+      }
+    }
+    assertEquals(13, records);
+    assertEquals(1, errors);
+  }
+
+  /**
+   * Two days of frames from two cameras, every third frame a cat, plus one corrupt frame and a file
+   * that is not a frame.
+   */
+  private Path createArchive() throws Exception {
+    Path archive = Files.createDirectory(directory.resolve("archive"));
+    for (int day = 1; day <= 2; day++) {
+      for (int camera = 0; camera < 2; camera++) {
+        Path cameraDirectory = Files.createDirectories(archive.resolve("day-" + day).resolve("cam-" + camera));
+        for (int i = 0; i < 3; i++) {
+          BufferedImage image = new BufferedImage(16, 12, BufferedImage.TYPE_INT_RGB);
+          image.setRGB(0, 0, i == 0 ? 0xFFFFFF : 0x202020);
+          ImageIO.write(image, "png", cameraDirectory.resolve("frame-" + i + ".png").toFile());
+        }
+      }
+    }
+    Files.write(archive.resolve("day-2").resolve("broken.png"), new byte[]{1, 2, 3, 4});
+    Files.writeString(archive.resolve("notes.txt"), "not a frame");
+    return archive;
+  }
+}
@@ -0,0 +1,142 @@
+package com.udacity.catpoint.tools;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.InMemorySecurityRepository;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.service.SecurityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceReplayerTest {
+  @TempDir
+  Path directory;
+
+  private boolean nextVerdict;
+  private final SecurityService securityService =
+      new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> nextVerdict);
+  private final BufferedImage frame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+  @Test
+  public void replay_ofRecordedSession_reproducesTheStatusSequence() throws Exception {
+    List<Sensor> sensors = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Sensor sensor = new Sensor("sensor-" + i, SensorType.values()[i % SensorType.values().length], i < 4 ? "Main" : "Garage");
+      sensors.add(sensor);
+      securityService.addSensor(sensor);
+    }
+    Path trace = directory.resolve("session.trace");
+
+    Random random = new Random(39);
+    try (TraceRecorder recorder = TraceRecorder.start(trace, securityService)) {
+      for (int i = 0; i < 2000; i++) {
+        int choice = random.nextInt(10);
+        if (choice < 6) {
+          securityService.changeSensorActivationStatus(sensors.get(random.nextInt(sensors.size())), random.nextBoolean());
+        } else if (choice < 8) {
+          securityService.setArmingStatus(ArmingStatus.values()[random.nextInt(ArmingStatus.values().length)]);
+        } else {
+          nextVerdict = random.nextInt(4) == 0;
+          securityService.processImage(random.nextBoolean() ? SecurityService.DEFAULT_CAMERA : "garage", frame);
+        }
+      }
+    }
+
+    TraceReplayer.Result result = new TraceReplayer(trace, false).replay();
+
+    assertEquals(2000, result.getInputCount());
+    assertFalse(result.getExpected().isEmpty());
+    assertTrue(result.isIdentical());
+    assertEquals(-1, result.getFirstMismatch());
+    assertTrue(result.getInputsPerSecond() > 0);
+  }
+
+  @Test
+  public void recorder_leavesOutSensorResetsCausedByArming() throws Exception {
+    Sensor door = new Sensor("Door", SensorType.DOOR);
+    securityService.addSensor(door);
+    Path trace = directory.resolve("arming.trace");
+
+    try (TraceRecorder recorder = TraceRecorder.start(trace, securityService)) {
+      securityService.changeSensorActivationStatus(door, true);
+      securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+      //activation, arming; the sensor is defined in the header
+      assertEquals(2, recorder.getRecordCount());
+    }
+
+    TraceReplayer.Result result = new TraceReplayer(trace, true).replay();
+    assertEquals(2, result.getInputCount());
+    assertEquals(List.of(ArmingStatus.ARMED_AWAY), result.getActual());
+    assertTrue(result.isIdentical());
+    assertTrue(Files.size(trace) < 64);
+  }
+
+  @Test
+  public void replay_startsFromTheStateBeforeRecording() throws Exception {
+    Sensor door = new Sensor("Door", SensorType.DOOR);
+    securityService.addSensor(door);
+    nextVerdict = true;
+    securityService.processImage(frame);
+    securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    securityService.changeSensorActivationStatus(door, true);
+    Path trace = directory.resolve("state.trace");
+
+    try (TraceRecorder recorder = TraceRecorder.start(trace, securityService)) {
+      //only the header knows the door is active and that a cat was seen
+      securityService.changeSensorActivationStatus(door, false);
+      securityService.setArmingStatus(ArmingStatus.DISARMED);
+      securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    }
+
+    TraceReplayer.Result result = new TraceReplayer(trace, false).replay();
+
+    assertEquals(3, result.getInputCount());
+    assertEquals(List.of(AlarmStatus.NO_ALARM, AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, ArmingStatus.ARMED_HOME, AlarmStatus.ALARM),
+        result.getExpected());
+    assertTrue(result.isIdentical());
+  }
+
+  @Test
+  public void replay_includesSensorsAddedAndRemovedWhileRecording() throws Exception {
+    Sensor door = new Sensor("Door", SensorType.DOOR);
+    securityService.addSensor(door);
+    securityService.changeSensorActivationStatus(door, true);
+    Path trace = directory.resolve("sensors.trace");
+
+    try (TraceRecorder recorder = TraceRecorder.start(trace, securityService)) {
+      Sensor motion = new Sensor("Motion", SensorType.MOTION);
+      securityService.addSensor(motion);
+      securityService.removeSensor(door);
+      securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+      securityService.changeSensorActivationStatus(motion, true);
+      nextVerdict = false;
+      securityService.processImage(frame);
+    }
+
+    TraceReplayer.Result result = new TraceReplayer(trace, false).replay();
+
+    assertEquals(5, result.getInputCount());
+    assertEquals(List.of(ArmingStatus.ARMED_HOME, AlarmStatus.PENDING_ALARM), result.getExpected());
+    assertTrue(result.isIdentical());
+  }
+
+  @Test
+  public void replay_ofDifferentOutcome_reportsFirstMismatch() {
+    TraceReplayer.Result result = new TraceReplayer.Result(1, 1,
+        List.of(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM),
+        List.of(AlarmStatus.PENDING_ALARM, AlarmStatus.NO_ALARM));
+
+    assertFalse(result.isIdentical());
+    assertEquals(1, result.getFirstMismatch());
+  }
+}